@@ -0,0 +1,156 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * What we know about the directories a batch of files is being moved into.
+ *
+ * A batch may move thousands of files into a few hundred directories, possibly on
+ * a network share, where every stat is a round trip.  Rather than asking about each
+ * destination file individually, we list each destination directory once, and
+ * answer "is there already a file with this name?" from the listing.  Likewise,
+ * each directory is created (if necessary), checked for writability, and resolved
+ * to its real path only once, by whichever move gets to it first; the other moves
+ * into the same directory reuse the result.  A directory that can't be used is not
+ * remembered, so each move into it tries again (and fails on its own account); and
+ * a directory that is removed during the batch, because a move into it failed and
+ * left it empty, is forgotten, so that the next move into it creates it again.
+ *
+ * The listing is only a cache.  A name that is in it is double-checked against
+ * the filesystem before we act on it; and a name that is not in it can still
+ * turn up, if some other program creates it, so the move itself must not
+ * overwrite an existing file.
+ *
+ * Instances are safe to use from several threads at once.
+ */
+final class DestinationDirectories {
+    private static final Logger logger = Logger.getLogger(DestinationDirectories.class.getName());
+
+    private static final class Listing {
+        // The exact names in the directory
+        final Set<String> names = ConcurrentHashMap.newKeySet();
+        // The names, normalized and in lower case, for filesystems that don't
+        // distinguish names that differ only that way
+        final Set<String> looseNames = ConcurrentHashMap.newKeySet();
+
+        void add(final String name) {
+            names.add(name);
+            looseNames.add(loosen(name));
+        }
+    }
+
+    private final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+    private final Map<Path, Path> realPaths = new ConcurrentHashMap<>();
+
+    private static String loosen(final String name) {
+        return StringUtils.toLower(Normalizer.normalize(name, Normalizer.Form.NFC));
+    }
+
+    private static Listing list(final Path dir) {
+        final Listing listing = new Listing();
+        try (DirectoryStream<Path> contents = Files.newDirectoryStream(dir)) {
+            for (Path entry : contents) {
+                Path name = entry.getFileName();
+                if (name != null) {
+                    listing.add(name.toString());
+                }
+            }
+        } catch (NoSuchFileException | NotDirectoryException e) {
+            // Nothing is there yet; the listing is empty
+            logger.finer("destination does not exist yet: " + dir);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to list destination " + dir, ioe);
+        }
+        return listing;
+    }
+
+    private Listing listingOf(final Path dir) {
+        return listings.computeIfAbsent(dir, DestinationDirectories::list);
+    }
+
+    /**
+     * Finds out whether a file with the given name may already exist in the given
+     * directory.  The directory is listed the first time it is asked about.
+     *
+     * @param dir
+     *    the destination directory
+     * @param filename
+     *    the name of the file, without any directory
+     * @return true if there is a file with that name in the directory; false if
+     *    there was none when the directory was listed, and no move in this batch
+     *    has since put one there
+     */
+    boolean exists(final Path dir, final String filename) {
+        Listing listing = listingOf(dir);
+        if (listing.names.contains(filename)) {
+            return true;
+        }
+        if (listing.looseNames.contains(loosen(filename))) {
+            // Some other name differs only by case or normalization.  Whether that
+            // counts as the same file depends on the filesystem, so ask it.
+            return Files.exists(dir.resolve(filename));
+        }
+        return false;
+    }
+
+    /**
+     * Records that a file with the given name now exists in the given directory.
+     *
+     * @param dir
+     *    the destination directory
+     * @param filename
+     *    the name of the file, without any directory
+     */
+    void added(final Path dir, final String filename) {
+        listingOf(dir).add(filename);
+    }
+
+    /**
+     * Makes sure the given directory exists and is writable, and gets its real
+     * path.  Once this has succeeded for a directory, it is not done again, unless
+     * we're told the directory has been removed.
+     *
+     * @param dir
+     *    the destination directory
+     * @return the real path of the directory, or null if it can't be used
+     */
+    Path prepare(final Path dir) {
+        // If the function returns null, nothing is put in the map
+        return realPaths.computeIfAbsent(dir, d -> {
+                if (!FileUtilities.ensureWritableDirectory(d)) {
+                    return null;
+                }
+                try {
+                    return d.toRealPath();
+                } catch (IOException ioe) {
+                    logger.warning("could not get real path of " + d);
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Records that the given directory has been removed.  It, and any directory
+     * we've prepared inside it, will have to be prepared again before use.
+     *
+     * @param removed
+     *    the directory that was removed, as a real path
+     */
+    void removed(final Path removed) {
+        realPaths.values().removeIf(realPath -> realPath.startsWith(removed));
+    }
+}
@@ -3,6 +3,7 @@ package org.tvrenamer.controller;
 import static org.tvrenamer.model.util.Constants.*;
 
 import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.ResumableCopy;
 import org.tvrenamer.model.FileEpisode;
 import org.tvrenamer.model.MoveObserver;
 import org.tvrenamer.model.UserPreferences;
@@ -11,6 +12,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -23,7 +27,18 @@ public class FileMover implements Callable<Boolean> {
     private final Path destRoot;
     private final String destBasename;
     private final String destSuffix;
+    private final boolean keepOriginal;
+    private final boolean verifyCopies;
     private MoveObserver observer = null;
+    private DestinationDirectories destinations = new DestinationDirectories();
+    private MoveJournal.Batch journalBatch = null;
+    private MoveJournal.Entry journalEntry = null;
+    // Whether to rename (or link) the file rather than copy it, as decided when
+    // the batch was scheduled; null to find out when the move runs
+    private Boolean rename = null;
+    private Set<Path> emptiedDirectories = null;
+    // When call() began, as given by System.nanoTime(); null until then
+    private volatile Long startedNanos = null;
     Integer destIndex = null;
 
     /**
@@ -38,6 +53,8 @@ public class FileMover implements Callable<Boolean> {
         destRoot = episode.getMoveToPath();
         destBasename = episode.getDestinationBasename();
         destSuffix = episode.getFilenameSuffix();
+        keepOriginal = userPrefs.isKeepOriginals();
+        verifyCopies = userPrefs.isVerifyCopies();
     }
 
     /**
@@ -50,6 +67,67 @@ public class FileMover implements Callable<Boolean> {
         this.observer = observer;
     }
 
+    /**
+     * Shares what is known about the destination directories with the other moves
+     * in the same batch.
+     *
+     * @param destinations
+     *   the destination directories of the batch
+     */
+    void setDestinations(DestinationDirectories destinations) {
+        this.destinations = destinations;
+    }
+
+    /**
+     * Sets how the file is to be moved, as decided when the batch was scheduled
+     * (see MoveScheduler).  The move is then made exactly the way it's recorded
+     * in the journal, rather than the way it would find for itself when it runs.
+     *
+     * @param rename
+     *   true to rename the file, or, if the original is kept, to try to link it;
+     *   false to copy it
+     */
+    void setRename(boolean rename) {
+        this.rename = rename;
+    }
+
+    /**
+     * Records, in the given journal batch, that this move is about to be made.
+     * This does not wait for the record to be written; the move waits for that
+     * when it runs, and is not made if the record could not be written.  So the
+     * whole batch can be recorded with a single sync, before any move starts.
+     *
+     * The move is recorded as a rename or a copy according to setRename.  If
+     * that has not been called, it's recorded, and made, as a copy, which is
+     * safe either way.
+     *
+     * @param journalBatch
+     *   the batch this move is part of
+     */
+    void recordIntent(MoveJournal.Batch journalBatch) {
+        if (rename == null) {
+            rename = false;
+        }
+        this.journalBatch = journalBatch;
+        Path dest = getActualDestDirectory().resolve(getActualDestName());
+        journalEntry = keepOriginal ? journalBatch.keepIntent(getCurrentPath(), dest)
+            : journalBatch.intent(!rename, getCurrentPath(), dest);
+    }
+
+    /**
+     * Sets where to collect the directories this move may leave empty.  If this is
+     * set, and the user wants emptied directories removed, they're left for whoever
+     * collects them to remove, once the whole batch is done, rather than removed
+     * right after the move.
+     *
+     * @param emptiedDirectories
+     *   the directories that moves of the batch have moved files out of; may be
+     *   null, in which case this move removes them itself
+     */
+    void setEmptiedDirectories(Set<Path> emptiedDirectories) {
+        this.emptiedDirectories = emptiedDirectories;
+    }
+
     /**
      * Gets the current location of the file to be moved
      *
@@ -59,6 +137,16 @@ public class FileMover implements Callable<Boolean> {
         return episode.getPath();
     }
 
+    /**
+     * Gets the time at which this move started running.
+     *
+     * @return the time call() was invoked, as given by System.nanoTime(); or
+     *    null, if it has not been invoked yet
+     */
+    Long getStartedNanos() {
+        return startedNanos;
+    }
+
     /**
      * Gets the size (in bytes) of the file to be moved
      *
@@ -129,6 +217,7 @@ public class FileMover implements Callable<Boolean> {
                     boolean rmdired = FileUtilities.rmdir(parent);
                     if (rmdired) {
                         logger.info("removing empty directory " + parent);
+                        destinations.removed(parent);
                     } else {
                         break;
                     }
@@ -146,6 +235,12 @@ public class FileMover implements Callable<Boolean> {
      * source are copied to the destination, the source is deleted, and
      * <code>true</code> is returned.
      *
+     * <p>If the copy fails partway through, what was copied so far is kept
+     * next to the destination, and the next attempt to move the same file to
+     * the same place continues from there; see ResumableCopy.  If the user has
+     * asked for copies to be verified, the source is only deleted if the copy
+     * matches it.
+     *
      * @param source
      *            The source file to move.
      * @param dest
@@ -156,7 +251,7 @@ public class FileMover implements Callable<Boolean> {
         if (observer != null) {
             observer.initializeProgress(episode.getFileSize());
         }
-        boolean ok = FileUtilities.copyWithUpdates(source, dest, observer);
+        boolean ok = ResumableCopy.copy(source, dest, observer, verifyCopies);
         if (ok) {
             ok = FileUtilities.deleteFile(source);
             if (!ok) {
@@ -170,6 +265,41 @@ public class FileMover implements Callable<Boolean> {
         }
     }
 
+    /**
+     * Gives the source file its place at the destination, while leaving the
+     * original where it is.  If the two are on the same disk, that's done by
+     * creating a hard link, which takes no time and no space, no matter how big
+     * the file is.  If they're not, or if the file system doesn't support hard
+     * links, the file is copied.
+     *
+     * @param source
+     *            The source file to keep.
+     * @param dest
+     *            The destination where the file should also appear.
+     * @param tryLink
+     *            if false, do not try to link the file; always copy it
+     * @return true if the file was linked; false if it was copied, or if
+     *            neither could be done
+     */
+    private boolean linkOrCopy(final Path source, final Path dest, final boolean tryLink) {
+        if (tryLink) {
+            if (FileUtilities.linkFile(source, dest)) {
+                episode.setLinked();
+                return true;
+            }
+            logger.info("could not link " + dest + "; copying instead");
+        }
+        if (observer != null) {
+            observer.initializeProgress(episode.getFileSize());
+        }
+        if (ResumableCopy.copy(source, dest, observer, verifyCopies)) {
+            episode.setCopied();
+        } else {
+            failToCopy(source, dest);
+        }
+        return false;
+    }
+
     private void finishMove(final Path actualDest) {
         // TODO: why do we set the file modification time to "now"?  Would like to
         // at least make this behavior configurable.
@@ -189,7 +319,11 @@ public class FileMover implements Callable<Boolean> {
      * completed and that everything is ready to go: source file and destination directory
      * exist, destination file doesn't, etc.
      *
-     * At the end, if the move was successful, it sets the file modification time.
+     * If the user has chosen to keep the original files, the source is linked or
+     * copied to the destination, rather than moved.
+     *
+     * At the end, if the move was successful, it sets the file modification time
+     * (unless the file was linked, in which case the original would be touched, too).
      * Does not return a value, but sets the episode status.
      *
      * @param srcPath
@@ -197,12 +331,22 @@ public class FileMover implements Callable<Boolean> {
      * @param destPath
      *    the Path to which the file should be moved
      * @param tryRename
-     *    if false, do not try to simply rename the file; always do a "copy-and-delete"
+     *    if false, do not try to simply rename (or link) the file; always do a
+     *    "copy-and-delete" (or copy)
      */
     private void doActualMove(final Path srcPath, final Path destPath, final boolean tryRename) {
         logger.fine("Going to move\n  '" + srcPath + "'\n  '" + destPath + "'");
         episode.setMoving();
-        if (tryRename) {
+        if (keepOriginal) {
+            boolean linked = linkOrCopy(srcPath, destPath, tryRename);
+            if (!episode.isSuccess()) {
+                return;
+            }
+            if (linked) {
+                episode.setPath(destPath);
+                return;
+            }
+        } else if (tryRename) {
             Path actualDest = FileUtilities.renameFile(srcPath, destPath);
             if (actualDest == null) {
                 logger.severe("Unable to move " + srcPath);
@@ -243,18 +387,42 @@ public class FileMover implements Callable<Boolean> {
      *    an existent ancestor of destPath
      */
     private void tryToMoveRealPaths(Path realSrc, Path destPath, Path destDir) {
-        boolean tryRename = FileUtilities.areSameDisk(realSrc, destDir);
+        boolean tryRename = (rename != null) ? rename
+            : FileUtilities.areSameDisk(realSrc, destDir);
         Path srcDir = realSrc.getParent();
 
+        if ((journalEntry != null) && !journalEntry.awaitDurable()) {
+            logger.warning("could not record move of " + realSrc + " in journal; not moving it");
+            episode.setFailToMove();
+            return;
+        }
+        Path originalPath = episode.getPath();
         doActualMove(realSrc, destPath, tryRename);
+        if (journalEntry != null) {
+            // A "misnamed" file is not a success, but it has still been moved
+            boolean moved = episode.isSuccess() || !originalPath.equals(episode.getPath());
+            journalEntry.finished(moved, episode.getPath());
+        }
         if (!episode.isSuccess()) {
             logger.info("failed to move " + realSrc);
             return;
         }
 
         logger.info("successful:\n  " + realSrc + "\n  " + destPath);
-        if (userPrefs.isRemoveEmptiedDirectories()) {
-            FileUtilities.removeWhileEmpty(srcDir);
+        if (userPrefs.isRemoveEmptiedDirectories() && !keepOriginal) {
+            if (emptiedDirectories != null) {
+                // Other moves of the batch may be taking files out of the same
+                // directory; see MoveRunner.removeEmptiedDirectories
+                emptiedDirectories.add(srcDir);
+            } else {
+                List<Path> removed = new ArrayList<>();
+                FileUtilities.removeWhileEmpty(srcDir, removed);
+                if (journalBatch != null) {
+                    for (Path dir : removed) {
+                        journalBatch.removedDirectory(dir);
+                    }
+                }
+            }
         }
     }
 
@@ -270,6 +438,41 @@ public class FileMover implements Callable<Boolean> {
         return " (" + destIndex + ")";
     }
 
+    /**
+     * Gets the directory the file will actually be moved to.  This is the
+     * moveToDirectory, unless the move conflicts with another file, in which case
+     * it may be a subdirectory of it, for duplicates.
+     *
+     * @return the directory the file will be moved to
+     */
+    Path getActualDestDirectory() {
+        if ((destIndex != null) && userPrefs.isMoveEnabled()) {
+            return destRoot.resolve(DUPLICATES_DIRECTORY);
+        }
+        return destRoot;
+    }
+
+    /**
+     * Gets the filename the file will actually be given.  This is the desired
+     * destination name, with a version added if the move conflicts with another
+     * file.
+     *
+     * @return the filename the file will be given
+     */
+    String getActualDestName() {
+        return destBasename + versionString() + destSuffix;
+    }
+
+    /**
+     * Gets whether this move will leave the original in place; see
+     * UserPreferences.isKeepOriginals().
+     *
+     * @return true if the original will be kept
+     */
+    boolean isKeepingOriginal() {
+        return keepOriginal;
+    }
+
     /**
      * Check/verify numerous things, and if everything is as it should be,
      * execute the move.
@@ -296,31 +499,18 @@ public class FileMover implements Callable<Boolean> {
             return;
         }
         episode.setFileVerified();
-        Path destDir = destRoot;
-        String filename = destBasename + destSuffix;
-        if (destIndex != null) {
-            if (userPrefs.isMoveEnabled()) {
-                destDir = destRoot.resolve(DUPLICATES_DIRECTORY);
-            }
-            filename =  destBasename + versionString() + destSuffix;
-        }
+        Path destDir = getActualDestDirectory();
+        String filename = getActualDestName();
 
-        if (!FileUtilities.ensureWritableDirectory(destDir)) {
+        Path realDestDir = destinations.prepare(destDir);
+        if (realDestDir == null) {
             logger.warning("not attempting to move " + srcPath);
             episode.setFailToMove();
             return;
         }
 
-        try {
-            destDir = destDir.toRealPath();
-        } catch (IOException ioe) {
-            logger.warning("could not get real path of " + destDir);
-            episode.setFailToMove();
-            return;
-        }
-
-        Path destPath = destDir.resolve(filename);
-        if (Files.exists(destPath)) {
+        Path destPath = realDestDir.resolve(filename);
+        if (destinations.exists(destDir, filename) && Files.exists(destPath)) {
             if (destPath.equals(realSrc)) {
                 logger.info("nothing to be done to " + srcPath);
                 episode.setAlreadyInPlace();
@@ -331,7 +521,10 @@ public class FileMover implements Callable<Boolean> {
             return;
         }
 
-        tryToMoveRealPaths(realSrc, destPath, destDir);
+        tryToMoveRealPaths(realSrc, destPath, realDestDir);
+        if (episode.isSuccess()) {
+            destinations.added(destDir, filename);
+        }
     }
 
     /**
@@ -345,6 +538,7 @@ public class FileMover implements Callable<Boolean> {
      */
     @Override
     public Boolean call() {
+        startedNanos = System.nanoTime();
         try {
             // There are numerous reasons why the move would fail.  Instead of calling
             // setFailToMove on the episode in each individual case, make the functionality
@@ -359,6 +553,10 @@ public class FileMover implements Callable<Boolean> {
                 episode.setFailToMove();
             }
         } finally {
+            if ((journalEntry != null) && !journalEntry.isFinished()) {
+                // The file was not moved at all
+                journalEntry.finished(false, null);
+            }
             if (observer != null) {
                 observer.finishProgress(episode);
             }
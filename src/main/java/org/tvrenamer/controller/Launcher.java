@@ -2,6 +2,7 @@ package org.tvrenamer.controller;
 
 import static org.tvrenamer.model.util.Constants.*;
 
+import org.tvrenamer.controller.util.StringPool;
 import org.tvrenamer.model.ShowStore;
 import org.tvrenamer.view.UIStarter;
 
@@ -32,6 +33,7 @@ class Launcher {
      */
     private static void tvRenamerThreadShutdown() {
         MoveRunner.shutDown();
+        MoveJournal.closeDefault();
         ShowStore.cleanUp();
         ListingsLookup.cleanUp();
     }
@@ -46,9 +48,11 @@ class Launcher {
      */
     public static void main(String[] args) {
         initializeLogger();
+        MoveJournal.startDefault(MOVE_JOURNAL_FILE);
         UIStarter ui = new UIStarter();
         int status = ui.run();
         tvRenamerThreadShutdown();
+        StringPool.logStatistics();
         System.exit(status);
     }
 }
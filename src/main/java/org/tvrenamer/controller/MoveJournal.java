@@ -0,0 +1,801 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.ResumableCopy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A write-ahead log of the file moves we do.
+ *
+ * Before a batch of moves starts, the intent of each move -- the source, the
+ * destination, and whether it's a rename or a copy -- is recorded, and a FileMover
+ * doesn't touch its file until that record is on disk.  After the move, it records
+ * whether the file was moved, and where it ended up.  So if the program dies
+ * partway through a batch, the journal says which moves might have been in
+ * progress.  The next time the program starts, it looks
+ * at each of those, and finishes it or rolls it back: a copy that completed but
+ * whose source was not deleted is finished by deleting the source; a copy that was
+ * cut short leaves the source where it was (the partial copy is kept, if it can be
+ * resumed; see ResumableCopy).  A move that keeps the original, by linking or
+ * copying it to the destination, is finished if the destination exists, and
+ * otherwise rolled back the same way.
+ *
+ * Forcing the journal to disk for every move would limit us to one move per disk
+ * sync.  Instead, records are appended to a buffer, and whichever thread needs its
+ * record to be durable writes out everything in the buffer, and syncs once for all
+ * of it; the other threads that were waiting find their records already written.
+ * A MoveRunner records the intents of all its moves before it starts any of them,
+ * and then syncs once (see Batch.commit), so its moves don't wait on the journal
+ * at all.  Records of completed moves aren't waited for either; they go out with
+ * the next sync, or at the end of the batch.  If a record can't be written, the
+ * move it's about is not made.
+ *
+ * The journal also records the directories that a batch removed because moving
+ * files out of them left them empty, and which batches were undoing earlier ones,
+ * so that a batch can be undone (see MoveUndo).
+ *
+ * The journal is a text file, with one record per line, and tab-separated fields.
+ * It is compacted when the program starts, keeping the last few batches.
+ */
+public final class MoveJournal {
+    private static final Logger logger = Logger.getLogger(MoveJournal.class.getName());
+
+    static final int KEPT_BATCHES = 10;
+
+    private static final String BEGIN = "B";
+    private static final String INTENT = "I";
+    private static final String DONE = "D";
+    private static final String FAILED = "F";
+    private static final String END = "E";
+    private static final String REMOVED_DIRECTORY = "X";
+    private static final String UNDO = "U";
+    private static final String RESTORED = "O";
+    private static final String RENAME = "R";
+    private static final String COPY = "C";
+    private static final String KEEP = "K";
+
+    private static volatile MoveJournal defaultJournal = null;
+
+    private static final AtomicInteger batchCounter = new AtomicInteger(0);
+
+    /**
+     * A move, as read back from the journal.
+     */
+    static final class RecordedMove {
+        final String id;
+        final boolean copy;
+        // Whether the original was to be left in place, and linked or copied
+        final boolean keep;
+        final Path source;
+        final Path dest;
+        // Null until we know whether the move happened
+        Boolean moved = null;
+        // Where the file ended up, if it was moved
+        Path result = null;
+        // Whether a later batch has put the file back
+        boolean restored = false;
+
+        RecordedMove(final String id, final String kind, final Path source, final Path dest) {
+            this.id = id;
+            this.copy = COPY.equals(kind);
+            this.keep = KEEP.equals(kind);
+            this.source = source;
+            this.dest = dest;
+        }
+
+        String kind() {
+            return keep ? KEEP : (copy ? COPY : RENAME);
+        }
+    }
+
+    /**
+     * A batch of moves, as read back from the journal.
+     */
+    static final class RecordedBatch {
+        final String id;
+        final long startTime;
+        final List<RecordedMove> moves = new ArrayList<>();
+        final List<Path> removedDirectories = new ArrayList<>();
+        // If this batch was undoing another one, the ID of that one
+        String undoOf = null;
+        // If this batch was undoing another one, the IDs of the moves it put back
+        final List<String> restoredMoves = new ArrayList<>();
+        // Whether later batches have put back every file this one moved
+        boolean undone = false;
+        boolean ended = false;
+
+        RecordedBatch(final String id, final long startTime) {
+            this.id = id;
+            this.startTime = startTime;
+        }
+    }
+
+    /**
+     * The record of one move in progress.
+     */
+    final class Entry {
+        private final String id;
+        private final long seq;
+        private boolean finished = false;
+
+        private Entry(final String id, final long seq) {
+            this.id = id;
+            this.seq = seq;
+        }
+
+        /**
+         * Waits until the intent of the move is on disk.  Returns at once if it
+         * already is.
+         *
+         * @return true if the intent is on disk; false if it could not be written,
+         *    or the thread was interrupted while waiting
+         */
+        boolean awaitDurable() {
+            return sync(seq);
+        }
+
+        /**
+         * @return whether the result of the move has been recorded
+         */
+        boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Records how the move turned out.  Does not wait for the record to be written.
+         *
+         * @param moved
+         *    whether the file is no longer at its source; or, for a move that
+         *    keeps the original, whether the file is now at its destination
+         * @param result
+         *    where the file is now, if it was moved
+         */
+        void finished(final boolean moved, final Path result) {
+            finished = true;
+            if (moved) {
+                append(DONE, id, result.toString());
+            } else {
+                append(FAILED, id);
+            }
+        }
+    }
+
+    /**
+     * The record of a batch of moves in progress.
+     */
+    final class Batch {
+        private final String id;
+        private final AtomicInteger moveCounter = new AtomicInteger(0);
+
+        private Batch(final String id) {
+            this.id = id;
+            append(BEGIN, id, Long.toString(System.currentTimeMillis()));
+        }
+
+        /**
+         * Records that we are about to move a file.  Does not wait for the record
+         * to be written; the file must not be moved until Entry.awaitDurable, or
+         * commit, has returned true.
+         *
+         * @param copy
+         *    true if the move will be a copy-and-delete; false if it's a rename
+         * @param source
+         *    the file to be moved
+         * @param dest
+         *    where the file is to be moved to
+         * @return an Entry, on which to record the result of the move
+         */
+        Entry intent(final boolean copy, final Path source, final Path dest) {
+            return record(copy ? COPY : RENAME, source, dest);
+        }
+
+        /**
+         * Records that we are about to link or copy a file to a destination, while
+         * leaving the original in place.  Like intent, does not wait for the
+         * record to be written.
+         *
+         * @param source
+         *    the file to be linked or copied
+         * @param dest
+         *    where the link or copy is to be created
+         * @return an Entry, on which to record the result
+         */
+        Entry keepIntent(final Path source, final Path dest) {
+            return record(KEEP, source, dest);
+        }
+
+        private Entry record(final String kind, final Path source, final Path dest) {
+            String entryId = id + "/" + moveCounter.incrementAndGet();
+            long seq = append(INTENT, entryId, kind, source.toString(), dest.toString());
+            return new Entry(entryId, seq);
+        }
+
+        /**
+         * Waits until everything recorded so far is on disk, with a single sync.
+         *
+         * @return true if it is; false if it could not be written, or the thread
+         *    was interrupted while waiting
+         */
+        boolean commit() {
+            return sync(lastAppended());
+        }
+
+        /**
+         * Records that a directory was removed, because moving files out of it
+         * left it empty.  Does not wait for the record to be written.
+         *
+         * @param dir
+         *    the directory that was removed
+         */
+        void removedDirectory(final Path dir) {
+            append(REMOVED_DIRECTORY, id, dir.toString());
+        }
+
+        /**
+         * Records that a file moved by the batch being undone has been put back.
+         * Does not wait for the record to be written.
+         *
+         * @param moveId
+         *    the ID of the move, in the batch being undone
+         */
+        void restored(final String moveId) {
+            append(RESTORED, id, moveId);
+        }
+
+        /**
+         * Records that the batch is over, and waits until everything about it is
+         * on disk.
+         */
+        void end() {
+            sync(append(END, id));
+        }
+    }
+
+    private final Path file;
+    private final CountDownLatch ready = new CountDownLatch(1);
+
+    // Guarded by "this"
+    private final StringBuilder buffer = new StringBuilder();
+    private long appended = 0L;
+    private long durable = 0L;
+    private boolean flushing = false;
+
+    private volatile FileChannel channel = null;
+    private volatile boolean broken = false;
+
+    /**
+     * Creates a journal that will be kept in the given file.  Nothing can be written
+     * to it until recover() has been run.
+     *
+     * @param file
+     *    the file to keep the journal in
+     */
+    MoveJournal(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the journal in the given file, as the journal used by default for all
+     * batches of moves, and recovers it, in the background.
+     *
+     * @param file
+     *    the file to keep the journal in
+     */
+    public static void startDefault(final Path file) {
+        final MoveJournal journal = new MoveJournal(file);
+        defaultJournal = journal;
+        Thread recovery = new Thread(journal::recover, "MoveJournalRecovery");
+        recovery.setDaemon(true);
+        recovery.start();
+    }
+
+    /**
+     * @return the journal to use by default; null if none has been started
+     */
+    static MoveJournal getDefault() {
+        return defaultJournal;
+    }
+
+    /**
+     * Closes the default journal, if there is one.
+     */
+    public static void closeDefault() {
+        MoveJournal journal = defaultJournal;
+        defaultJournal = null;
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Finds out whether moves are being recorded.  They're not if the journal
+     * could not be opened, or if writing to it has failed.
+     *
+     * @return false if nothing more can be written to the journal
+     */
+    synchronized boolean isRecording() {
+        return !broken;
+    }
+
+    /**
+     * Starts recording a new batch of moves.
+     *
+     * @return the Batch, on which to record the individual moves
+     */
+    Batch startBatch() {
+        return new Batch(System.currentTimeMillis() + "." + batchCounter.incrementAndGet());
+    }
+
+    /**
+     * Starts recording a batch of moves that undoes an earlier batch.  The earlier
+     * batch counts as undone once every file it moved has been put back, by this
+     * batch or another (see Batch.restored).
+     *
+     * @param original
+     *    the ID of the batch being undone
+     * @return the Batch, on which to record the individual moves
+     */
+    Batch startUndoBatch(final String original) {
+        Batch batch = startBatch();
+        append(UNDO, batch.id, original);
+        return batch;
+    }
+
+    /**
+     * Reads back the batches recorded so far, including those of earlier runs.
+     *
+     * @return the batches, in the order they were started; empty if the journal
+     *    can't be read
+     */
+    List<RecordedBatch> readBatches() {
+        sync(lastAppended());
+        try {
+            return read(file);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to read move journal " + file, ioe);
+            return new ArrayList<>();
+        }
+    }
+
+    private static String escape(final String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(final String field) {
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if ((c == '\\') && (i + 1 < field.length())) {
+                i++;
+                char next = field.charAt(i);
+                switch (next) {
+                    case 't':
+                        unescaped.append('\t');
+                        break;
+                    case 'n':
+                        unescaped.append('\n');
+                        break;
+                    case 'r':
+                        unescaped.append('\r');
+                        break;
+                    default:
+                        unescaped.append(next);
+                }
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private static String formatRecord(final String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append('\t');
+            }
+            line.append(escape(field));
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * Adds a record to the buffer.
+     *
+     * @param fields
+     *    the fields of the record
+     * @return the sequence number of the record, to pass to sync()
+     */
+    private long append(final String... fields) {
+        String record = formatRecord(fields);
+        synchronized (this) {
+            if (!broken) {
+                buffer.append(record);
+            }
+            return ++appended;
+        }
+    }
+
+    /**
+     * @return the sequence number of the last record added to the buffer
+     */
+    private synchronized long lastAppended() {
+        return appended;
+    }
+
+    private boolean write(final String records) {
+        FileChannel out = channel;
+        if (out == null) {
+            return false;
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(false);
+            return true;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to write move journal " + file
+                       + "; moves will not be recorded", ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number, and all the records
+     * before it, are on disk.  If no other thread is writing the journal, this
+     * thread writes out all the records buffered so far.
+     *
+     * @param seq
+     *    the sequence number of the record, as returned by append()
+     * @return true if the record is on disk; false if it could not be written, or
+     *    the thread was interrupted while waiting
+     */
+    private boolean sync(final long seq) {
+        try {
+            ready.await();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        while (true) {
+            final String records;
+            final long target;
+            synchronized (this) {
+                while (flushing && (durable < seq)) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                if (durable >= seq) {
+                    return true;
+                }
+                if (broken) {
+                    return false;
+                }
+                flushing = true;
+                records = buffer.toString();
+                buffer.setLength(0);
+                target = appended;
+            }
+            boolean ok = write(records);
+            synchronized (this) {
+                if (ok) {
+                    durable = target;
+                } else {
+                    broken = true;
+                    buffer.setLength(0);
+                }
+                flushing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads the batches recorded in a journal file.  Records that can't be
+     * understood, such as one that was only partly written, are skipped.
+     *
+     * @param file
+     *    the journal file
+     * @return the batches, in the order they were started
+     * @throws IOException if the file can't be read
+     */
+    static List<RecordedBatch> read(final Path file) throws IOException {
+        final Map<String, RecordedBatch> batches = new LinkedHashMap<>();
+        final Map<String, RecordedMove> moves = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = unescape(fields[i]);
+                }
+                try {
+                    String type = fields[0];
+                    if (BEGIN.equals(type)) {
+                        batches.put(fields[1],
+                                    new RecordedBatch(fields[1], Long.parseLong(fields[2])));
+                    } else if (INTENT.equals(type)) {
+                        String batchId = fields[1].substring(0, fields[1].lastIndexOf('/'));
+                        RecordedBatch batch = batches.get(batchId);
+                        if (batch != null) {
+                            RecordedMove move = new RecordedMove(fields[1], fields[2],
+                                                                 Paths.get(fields[3]),
+                                                                 Paths.get(fields[4]));
+                            batch.moves.add(move);
+                            moves.put(move.id, move);
+                        }
+                    } else if (DONE.equals(type) || FAILED.equals(type)) {
+                        RecordedMove move = moves.get(fields[1]);
+                        if (move != null) {
+                            move.moved = DONE.equals(type);
+                            if (move.moved) {
+                                move.result = Paths.get(fields[2]);
+                            }
+                        }
+                    } else if (REMOVED_DIRECTORY.equals(type)) {
+                        RecordedBatch batch = batches.get(fields[1]);
+                        if (batch != null) {
+                            batch.removedDirectories.add(Paths.get(fields[2]));
+                        }
+                    } else if (UNDO.equals(type)) {
+                        RecordedBatch batch = batches.get(fields[1]);
+                        if (batch != null) {
+                            batch.undoOf = fields[2];
+                        }
+                    } else if (RESTORED.equals(type)) {
+                        RecordedBatch batch = batches.get(fields[1]);
+                        if (batch != null) {
+                            batch.restoredMoves.add(fields[2]);
+                        }
+                    } else if (END.equals(type)) {
+                        RecordedBatch batch = batches.get(fields[1]);
+                        if (batch != null) {
+                            batch.ended = true;
+                        }
+                    } else {
+                        logger.fine("skipping unknown journal record: " + line);
+                    }
+                } catch (RuntimeException re) {
+                    logger.fine("skipping malformed journal record: " + line);
+                }
+            }
+        }
+        final Set<RecordedBatch> undoneBatches = new LinkedHashSet<>();
+        for (RecordedBatch batch : batches.values()) {
+            if (batch.undoOf != null) {
+                for (String moveId : batch.restoredMoves) {
+                    RecordedMove move = moves.get(moveId);
+                    if (move != null) {
+                        move.restored = true;
+                    }
+                }
+                RecordedBatch original = batches.get(batch.undoOf);
+                if (original != null) {
+                    undoneBatches.add(original);
+                }
+            }
+        }
+        for (RecordedBatch original : undoneBatches) {
+            original.undone = true;
+            for (RecordedMove move : original.moves) {
+                if (Boolean.TRUE.equals(move.moved) && !move.restored) {
+                    // Some of it is still to be undone
+                    original.undone = false;
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(batches.values());
+    }
+
+    private static void writeBatch(final BufferedWriter writer, final RecordedBatch batch)
+        throws IOException
+    {
+        writer.write(formatRecord(BEGIN, batch.id, Long.toString(batch.startTime)));
+        if (batch.undoOf != null) {
+            writer.write(formatRecord(UNDO, batch.id, batch.undoOf));
+        }
+        for (RecordedMove move : batch.moves) {
+            writer.write(formatRecord(INTENT, move.id, move.kind(),
+                                      move.source.toString(), move.dest.toString()));
+        }
+        for (RecordedMove move : batch.moves) {
+            if (Boolean.TRUE.equals(move.moved)) {
+                writer.write(formatRecord(DONE, move.id, move.result.toString()));
+            } else if (Boolean.FALSE.equals(move.moved)) {
+                writer.write(formatRecord(FAILED, move.id));
+            }
+        }
+        for (Path dir : batch.removedDirectories) {
+            writer.write(formatRecord(REMOVED_DIRECTORY, batch.id, dir.toString()));
+        }
+        for (String moveId : batch.restoredMoves) {
+            writer.write(formatRecord(RESTORED, batch.id, moveId));
+        }
+        if (batch.ended) {
+            writer.write(formatRecord(END, batch.id));
+        }
+    }
+
+    /**
+     * Finds out what became of a move that was in progress when the program died,
+     * and finishes it or rolls it back.
+     *
+     * @param move
+     *    a move for which the journal has no result
+     */
+    static void resolve(final RecordedMove move) {
+        final boolean sourceExists = Files.exists(move.source);
+        final boolean destExists = Files.exists(move.dest);
+        move.moved = false;
+        if (move.keep) {
+            // A link is created all at once, and a copy is only put in place once
+            // it's complete, so if the destination is there, it's done
+            if (destExists) {
+                logger.info("link or copy of " + move.source + " had completed");
+                move.moved = true;
+                move.result = move.dest;
+            } else if (ResumableCopy.cleanUpPartial(move.source, move.dest)) {
+                logger.info("copy of " + move.source + " was interrupted; it will be "
+                            + "resumed if the file is copied again");
+            } else {
+                logger.info("link or copy of " + move.source + " had not happened");
+            }
+        } else if (destExists && !sourceExists) {
+            logger.info("move of " + move.source + " had completed");
+            move.moved = true;
+            move.result = move.dest;
+        } else if (sourceExists && !destExists) {
+            if (move.copy && ResumableCopy.cleanUpPartial(move.source, move.dest)) {
+                logger.info("copy of " + move.source + " was interrupted; it will be "
+                            + "resumed if the file is moved again");
+            } else {
+                logger.info("move of " + move.source + " had not happened");
+            }
+        } else if (sourceExists && move.copy && sameSize(move.source, move.dest)) {
+            // The copy is complete, but the original was not deleted yet
+            if (FileUtilities.deleteFile(move.source)) {
+                logger.info("finished move of " + move.source + " by deleting original");
+                move.moved = true;
+                move.result = move.dest;
+            } else {
+                logger.warning("copied " + move.source + " to " + move.dest
+                               + " but could not delete original");
+            }
+        } else if (sourceExists) {
+            logger.warning("interrupted move left both " + move.source + " and " + move.dest
+                           + "; leaving them alone");
+        } else {
+            logger.warning("interrupted move of " + move.source + " to " + move.dest
+                           + ": neither file exists");
+        }
+    }
+
+    private static boolean sameSize(final Path path1, final Path path2) {
+        try {
+            return Files.size(path1) == Files.size(path2);
+        } catch (IOException ioe) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the journal left by earlier runs, resolves any moves that were in
+     * progress, rewrites the journal keeping only the last KEPT_BATCHES batches,
+     * and then opens it to record new batches.
+     */
+    void recover() {
+        try {
+            List<RecordedBatch> batches;
+            try {
+                batches = read(file);
+            } catch (NoSuchFileException nsfe) {
+                batches = new ArrayList<>();
+            }
+            int unresolved = 0;
+            for (RecordedBatch batch : batches) {
+                for (RecordedMove move : batch.moves) {
+                    if (move.moved == null) {
+                        unresolved++;
+                        resolve(move);
+                    }
+                }
+                // An undo that was cut short is left as it was; the files it put
+                // back are recorded, and the rest can be tried again
+                if (batch.undoOf == null) {
+                    batch.ended = true;
+                }
+            }
+            if (unresolved > 0) {
+                logger.info("resolved " + unresolved + " interrupted moves");
+            }
+
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                int first = Math.max(0, batches.size() - KEPT_BATCHES);
+                for (RecordedBatch batch : batches.subList(first, batches.size())) {
+                    writeBatch(writer, batch);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+
+            channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                                       StandardOpenOption.APPEND);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "unable to open move journal " + file
+                       + "; moves will not be recorded", e);
+            synchronized (this) {
+                broken = true;
+                buffer.setLength(0);
+            }
+        } finally {
+            ready.countDown();
+        }
+    }
+
+    /**
+     * Writes out anything buffered, and closes the journal.
+     */
+    void close() {
+        sync(lastAppended());
+        FileChannel out = channel;
+        channel = null;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                logger.log(Level.FINE, "exception closing move journal", ioe);
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * What a batch of moves would do, worked out without doing any of it.
+ *
+ * Before moving a large collection, the user may want to see exactly where every
+ * file would go.  The plan is made by the same code that the moves themselves use:
+ * MoveRunner.resolveDestinations adds versions to conflicting names; FileMover
+ * decides when those go into the duplicates folder; MoveScheduler tells renames from
+ * copies; and SpaceCheck holds back copies there's no room for.  But nothing is
+ * created, moved or deleted.  Each destination directory is listed once, and the
+ * listing is used to answer every question about the files in it, so that even a
+ * plan for tens of thousands of files takes only a few seconds.
+ *
+ * The plan can be written out as JSON lines; see writeJsonLines.
+ */
+public final class MovePlan {
+    private static final Logger logger = Logger.getLogger(MovePlan.class.getName());
+
+    /**
+     * What would be done with a file.
+     */
+    public enum Action {
+        // Moved by renaming it, on the same device
+        RENAME("rename"),
+        // Moved by copying it to another device, and deleting the original
+        COPY("copy"),
+        // The original kept, and a hard link made at the destination
+        LINK("link"),
+        // The original kept, and a copy made at the destination
+        KEEP_COPY("keep-copy"),
+        // The file is already where it would be moved to
+        IN_PLACE("in-place"),
+        // A different file is already where this one would be moved to
+        CONFLICT("conflict"),
+        // The file is no longer there to be moved
+        MISSING("missing"),
+        // There is not enough space at the destination to copy the file
+        NO_SPACE("no-space");
+
+        private final String label;
+
+        Action(final String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return how the action is identified in the exported plan
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * What would be done with one file.
+     */
+    public static final class Step {
+        private final Path source;
+        private final Path destination;
+        private final Action action;
+        private final long bytes;
+        private final String device;
+
+        Step(final Path source, final Path destination, final Action action,
+             final long bytes, final String device)
+        {
+            this.source = source;
+            this.destination = destination;
+            this.action = action;
+            this.bytes = bytes;
+            this.device = device;
+        }
+
+        /**
+         * @return where the file is now
+         */
+        public Path getSource() {
+            return source;
+        }
+
+        /**
+         * @return where the file would be moved to, including any version added to
+         *    its name
+         */
+        public Path getDestination() {
+            return destination;
+        }
+
+        /**
+         * @return what would be done with the file
+         */
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * @return the size of the file, in bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the device the destination is on
+         */
+        public String getDevice() {
+            return device;
+        }
+    }
+
+    private final List<Step> steps;
+    private final Map<String, Long> bytesToCopy;
+    private final Map<Action, Integer> counts = new EnumMap<>(Action.class);
+
+    private MovePlan(final List<Step> steps, final Map<String, Long> bytesToCopy) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.bytesToCopy = Collections.unmodifiableMap(bytesToCopy);
+        for (Step step : steps) {
+            counts.merge(step.action, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Works out what would be done with a single file.
+     *
+     * @param move
+     *    the move, with its destination already resolved
+     * @param destinations
+     *    the listings of the destination directories
+     * @param scheduler
+     *    tells renames from copies
+     * @param fits
+     *    whether there is space for the move, if it's a copy
+     * @return the step
+     */
+    private static Step planStep(final FileMover move, final DestinationDirectories destinations,
+                                 final MoveScheduler scheduler, final boolean fits)
+    {
+        final Path source = move.getCurrentPath();
+        final Path destDir = move.getActualDestDirectory();
+        final String filename = move.getActualDestName();
+        final Path dest = destDir.resolve(filename);
+        final long bytes = move.getFileSize();
+        final String device = scheduler.storeNameOf(destDir);
+
+        final Action action;
+        if (Files.notExists(source)) {
+            action = Action.MISSING;
+        } else if (destinations.exists(destDir, filename) && Files.exists(dest)) {
+            action = FileUtilities.isSameFile(source, dest) ? Action.IN_PLACE : Action.CONFLICT;
+        } else if (!scheduler.mayCopy(move)) {
+            // Within one device: linked if the original is kept, else renamed
+            action = move.isKeepingOriginal() ? Action.LINK : Action.RENAME;
+        } else if (!fits) {
+            action = Action.NO_SPACE;
+        } else if (move.isKeepingOriginal()) {
+            action = Action.KEEP_COPY;
+        } else {
+            action = Action.COPY;
+        }
+        return new Step(source, dest, action, bytes, device);
+    }
+
+    /**
+     * Works out what moving the given files would do, without moving them.
+     *
+     * @param moves
+     *    the moves to plan, as they would be given to a MoveRunner
+     * @return the plan, with a step for each move, in the order given
+     */
+    public static MovePlan plan(final List<FileMover> moves) {
+        final long start = System.nanoTime();
+        final DestinationDirectories destinations = new DestinationDirectories();
+        final List<FileMover> resolved = MoveRunner.resolveDestinations(destinations, moves);
+
+        final MoveScheduler scheduler = new MoveScheduler();
+        final SpaceCheck spaceCheck = new SpaceCheck(scheduler);
+        final Set<FileMover> fitting = Collections.newSetFromMap(new IdentityHashMap<>());
+        fitting.addAll(spaceCheck.check(resolved));
+
+        final List<Step> steps = new ArrayList<>(moves.size());
+        final Map<String, Long> bytesToCopy = new LinkedHashMap<>();
+        for (FileMover move : moves) {
+            Step step = planStep(move, destinations, scheduler, fitting.contains(move));
+            if ((step.action == Action.COPY) || (step.action == Action.KEEP_COPY)) {
+                bytesToCopy.merge(step.device, step.bytes, Long::sum);
+            }
+            steps.add(step);
+        }
+        logger.fine("planned " + steps.size() + " moves in "
+                    + ((System.nanoTime() - start) / 1000000L) + " ms");
+        return new MovePlan(steps, bytesToCopy);
+    }
+
+    /**
+     * @return the steps of the plan, in the order the moves were given
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return for each device that files would be copied to, the number of bytes
+     *    that would be copied there
+     */
+    public Map<String, Long> getBytesToCopy() {
+        return bytesToCopy;
+    }
+
+    /**
+     * @param action
+     *    an action
+     * @return the number of files the action would be taken on
+     */
+    public int count(final Action action) {
+        return counts.getOrDefault(action, 0);
+    }
+
+    /**
+     * Gives a string as a JSON string literal.
+     *
+     * @param value
+     *    the string; may be null
+     * @return the JSON literal, with quotes
+     */
+    private static String quote(final String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Writes the plan as JSON lines: one object per line.  There is a line for each
+     * step, in order, like
+     *
+     * <pre>
+     * {"type":"move","action":"copy","source":"...","destination":"...","bytes":9,"device":"..."}
+     * </pre>
+     *
+     * followed by a line for each device that files would be copied to, like
+     *
+     * <pre>
+     * {"type":"device","device":"...","bytesToCopy":9}
+     * </pre>
+     *
+     * @param writer
+     *    where to write the plan
+     * @throws IOException
+     *    if the writer does
+     */
+    public void writeJsonLines(final Writer writer) throws IOException {
+        for (Step step : steps) {
+            writer.write("{\"type\":\"move\",\"action\":" + quote(step.action.label)
+                         + ",\"source\":" + quote(step.source.toString())
+                         + ",\"destination\":" + quote(step.destination.toString())
+                         + ",\"bytes\":" + step.bytes
+                         + ",\"device\":" + quote(step.device) + "}\n");
+        }
+        for (Map.Entry<String, Long> entry : bytesToCopy.entrySet()) {
+            writer.write("{\"type\":\"device\",\"device\":" + quote(entry.getKey())
+                         + ",\"bytesToCopy\":" + entry.getValue() + "}\n");
+        }
+    }
+
+    /**
+     * Writes the plan to the given file, as JSON lines; see writeJsonLines.
+     *
+     * @param file
+     *    the file to write; replaced if it exists
+     * @return true if the plan was written
+     */
+    public boolean export(final Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeJsonLines(writer);
+            return true;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to write move plan to " + file, ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Describes the plan, for the user.
+     *
+     * @return a line for each action that would be taken on any file, with the
+     *    number of files; and a line for each device that files would be copied to
+     */
+    public String describe() {
+        StringBuilder report = new StringBuilder();
+        for (Action action : Action.values()) {
+            int count = count(action);
+            if (count > 0) {
+                if (report.length() > 0) {
+                    report.append('\n');
+                }
+                report.append(action.label).append(": ").append(count);
+            }
+        }
+        for (Map.Entry<String, Long> entry : bytesToCopy.entrySet()) {
+            report.append('\n').append(StringUtils.formatFileSize(entry.getValue()))
+                .append(" to copy to ").append(entry.getKey());
+        }
+        return report.toString();
+    }
+}
@@ -2,77 +2,235 @@ package org.tvrenamer.controller;
 
 import static org.tvrenamer.model.util.Constants.*;
 
+import org.tvrenamer.controller.util.FileUtilities;
 import org.tvrenamer.model.ProgressUpdater;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 public class MoveRunner implements Runnable {
     private static final Logger logger = Logger.getLogger(MoveRunner.class.getName());
 
+    // Every move is allowed at least this long to finish...
     private static final int DEFAULT_TIMEOUT = 120;
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    // ... and a copy is allowed as long as it would take at this speed, on top
+    static final long SLOWEST_EXPECTED_BYTES_PER_SECOND = 2L * 1024 * 1024;
+    // How often to look for moves that have started, or taken too long
+    private static final long POLL_INTERVAL_MILLIS = 500L;
+
+    /**
+     * A move that has not finished yet, and how long it may take.
+     */
+    private static final class PendingMove {
+        final FileMover move;
+        final long allowedNanos;
+
+        PendingMove(final FileMover move, final long allowedNanos) {
+            this.move = move;
+            this.allowedNanos = allowedNanos;
+        }
+    }
 
     private final Thread progressThread = new Thread(this);
-    private final Queue<Future<Boolean>> futures = new LinkedList<>();
+    private final BlockingQueue<Future<Boolean>> completed = new LinkedBlockingQueue<>();
+    private final Map<Future<Boolean>, PendingMove> pending = new HashMap<>();
+    private final MoveScheduler scheduler = new MoveScheduler();
+    // The moves there is room for, in the order they'll be submitted
+    private final List<FileMover> toRun;
     private final int numMoves;
     private final int timeout;
+    private final MoveJournal journal;
+    private MoveJournal.Batch journalBatch = null;
+    private long bytesToCopy = 0L;
+    // The directories files were moved out of, to be removed at the end if empty
+    private final Set<Path> emptiedDirectories = ConcurrentHashMap.newKeySet();
+    private final String spaceReport;
     private ProgressUpdater updater = null;
 
     /**
-     * Does the activity of the thread, which is to dequeue a move task, and block
-     * until it returns, then update the progress bar and repeat the whole thing,
-     * until the queue is empty.
+     * Works out how long a move may run before we give up on it.  A rename gets
+     * the minimum; a copy gets as long as it would take at the slowest speed we
+     * expect, on top of that.
+     *
+     * @param move
+     *    the move
+     * @param copy
+     *    whether the move may be a copy
+     * @param timeout
+     *    the minimum number of seconds to allow
+     * @return the number of nanoseconds to allow the move, once it's started
      */
-    @Override
-    public void run() {
-        while (true) {
-            int remaining = futures.size();
-            if (updater != null) {
-                updater.setProgress(numMoves, remaining);
+    static long allowedNanos(final FileMover move, final boolean copy, final int timeout) {
+        long seconds = timeout;
+        if (copy) {
+            seconds += move.getFileSize() / SLOWEST_EXPECTED_BYTES_PER_SECOND;
+        }
+        return TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private static boolean succeeded(final Future<Boolean> future) {
+        if (future.isCancelled()) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(future.get());
+        } catch (InterruptedException | ExecutionException e) {
+            logger.warning("exception executing move: " + e.getClass().getName());
+            return false;
+        }
+    }
+
+    /**
+     * Cancels any move that has been running for longer than it's allowed.  The
+     * cancelled move's Future is then added to the completion queue, like any
+     * other.
+     *
+     * @return the number of moves that are running
+     */
+    private int cancelOverdueMoves() {
+        final long now = System.nanoTime();
+        int inFlight = 0;
+        for (Map.Entry<Future<Boolean>, PendingMove> entry : pending.entrySet()) {
+            FileMover move = entry.getValue().move;
+            long allowed = entry.getValue().allowedNanos;
+            Long started = move.getStartedNanos();
+            if (started == null) {
+                continue;
             }
+            inFlight++;
+            if ((now - started > allowed) && !entry.getKey().isDone()) {
+                logger.warning("move of " + move.getCurrentPath() + " has taken more than "
+                               + TimeUnit.NANOSECONDS.toSeconds(allowed)
+                               + " seconds; cancelling it");
+                entry.getKey().cancel(true);
+            }
+        }
+        return inFlight;
+    }
+
+    private void reportProgress(final int inFlight, final int done, final int failed) {
+        if (updater != null) {
+            updater.setProgress(numMoves, pending.size());
+            updater.setMoveCounts(inFlight, done, failed);
+        }
+    }
 
-            if (remaining > 0) {
-                final Future<Boolean> future = futures.remove();
-                try {
-                    Boolean success = future.get(timeout, TimeUnit.SECONDS);
-                    logger.finer("future returned: " + success);
-                } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                    future.cancel(true);
-                    logger.warning("exception executing move: " + e.getClass().getName());
+    /**
+     * Does the activity of the thread, which is to take each move as it finishes,
+     * in whatever order they finish, and update the progress, until all of them
+     * are over.  Meanwhile, moves that run too long are cancelled.
+     */
+    @Override
+    public void run() {
+        if (updater != null) {
+            updater.setBytesToCopy(bytesToCopy);
+        }
+        int done = 0;
+        int failed = 0;
+        reportProgress(0, done, failed);
+        while (!pending.isEmpty()) {
+            final Future<Boolean> future;
+            try {
+                future = completed.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                logger.warning("interrupted waiting for moves; cancelling " + pending.size());
+                for (Future<Boolean> unfinished : pending.keySet()) {
+                    unfinished.cancel(true);
                 }
-            } else {
-                if (updater != null) {
-                    updater.finish();
+                failed += pending.size();
+                pending.clear();
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if ((future != null) && (pending.remove(future) != null)) {
+                boolean success = succeeded(future);
+                logger.finer("future returned: " + success);
+                if (success) {
+                    done++;
+                } else {
+                    failed++;
                 }
-                return;
+            }
+            reportProgress(cancelOverdueMoves(), done, failed);
+        }
+        logger.fine("moves done: " + done + " succeeded, " + failed + " failed");
+        removeEmptiedDirectories();
+        if (journalBatch != null) {
+            journalBatch.end();
+        }
+        if (updater != null) {
+            updater.finish();
+        }
+    }
+
+    /**
+     * Removes the directories that the moves have left empty, if the user wants
+     * that, and records them in the journal.  This is done once, at the end of the
+     * batch, rather than after each move: when many files are moved out of one
+     * directory, all but the last move would find it still has files in it.
+     */
+    private void removeEmptiedDirectories() {
+        if (emptiedDirectories.isEmpty()) {
+            return;
+        }
+        final List<Path> removed = new ArrayList<>();
+        FileUtilities.removeEmptyDirectories(emptiedDirectories, removed);
+        logger.fine("removed " + removed.size() + " of " + emptiedDirectories.size()
+                    + " directories files were moved out of, or their parents");
+        if (journalBatch != null) {
+            for (Path dir : removed) {
+                journalBatch.removedDirectory(dir);
             }
         }
     }
 
     /**
-     * Runs the thread for this FileMover, to move all the files.
+     * Starts moving the files: submits the moves to the threads that will run them,
+     * and runs the thread for this MoveRunner, to follow them.
      *
-     * This actually could be done right in the constructor, as that is, in fact, the only
-     * way it's only currently used.  But it's nice to let it be more explicit.
+     * Nothing is moved until this is called, so that whoever created the
+     * MoveRunner can look at what it worked out (see getSpaceReport), and decide
+     * not to go ahead.  It should be called at most once.
      *
      */
     public void runThread() {
+        for (FileMover move : toRun) {
+            // Each move is made the way the scheduler classified it, so that what's
+            // recorded in the journal is what's actually done
+            move.setRename(!scheduler.mayCopy(move));
+        }
+        if ((journal != null) && journal.isRecording()) {
+            journalBatch = journal.startBatch();
+            for (FileMover move : toRun) {
+                move.recordIntent(journalBatch);
+            }
+            // One sync for the whole batch, rather than one for each move; a move
+            // whose intent isn't on disk won't be made
+            if (!journalBatch.commit()) {
+                logger.warning("could not record the moves in the journal");
+            }
+        }
+        final List<Future<Boolean>> futures = scheduler.schedule(toRun, completed);
+        for (int i = 0; i < futures.size(); i++) {
+            FileMover move = toRun.get(i);
+            long allowed = allowedNanos(move, scheduler.mayCopy(move), timeout);
+            pending.put(futures.get(i), new PendingMove(move, allowed));
+        }
+        bytesToCopy = scheduler.getBytesToCopy();
         progressThread.start();
     }
 
@@ -142,6 +300,8 @@ public class MoveRunner implements Runnable {
      * common.  Nevertheless, they can happen, and we are prepared to
      * deal with them.
      *
+     * @param destinations
+     *    the listings of the destination directories
      * @param destDirName
      *    the specific directory into which we'll be moving files
      * @param desiredFilename
@@ -157,7 +317,8 @@ public class MoveRunner implements Runnable {
      * @return a set of paths that have conflicts; may be empty, and
      *         in fact almost always would be.
      */
-    private static Set<Path> existingConflicts(String destDirName,
+    private static Set<Path> existingConflicts(DestinationDirectories destinations,
+                                               String destDirName,
                                                String desiredFilename,
                                                List<FileMover> moves)
     {
@@ -167,11 +328,8 @@ public class MoveRunner implements Runnable {
         // future, we will be able to find other potentially conflicting files.
         Set<Path> hits = new HashSet<>();
         Path destDir = Paths.get(destDirName);
-        if (Files.exists(destDir) && Files.isDirectory(destDir)) {
-            Path conflict = destDir.resolve(desiredFilename);
-            if (Files.exists(conflict)) {
-                hits.add(conflict);
-            }
+        if (destinations.exists(destDir, desiredFilename)) {
+            hits.add(destDir.resolve(desiredFilename));
         }
         return hits;
     }
@@ -195,19 +353,24 @@ public class MoveRunner implements Runnable {
      * - can we integrate with a library that gives us information about the
      *   content (actual video quality, length, etc.)?
      *
+     * @param destinations
+     *   the listings of the destination directories
      * @param listOfMoves
      *   a list of FileMover tasks to be done
      * @param destDir
      *   the name of the destination directory
      */
-    private static void resolveConflicts(List<FileMover> listOfMoves, String destDir) {
+    private static void resolveConflicts(DestinationDirectories destinations,
+                                         List<FileMover> listOfMoves, String destDir)
+    {
         Map<String, List<FileMover>> desiredFilenames = new HashMap<>();
         for (FileMover move : listOfMoves) {
             getListValue(desiredFilenames, move.getDesiredDestName()).add(move);
         }
         for (String desiredFilename : desiredFilenames.keySet()) {
             List<FileMover> moves = desiredFilenames.get(desiredFilename);
-            Set<Path> existing = existingConflicts(destDir, desiredFilename, moves);
+            Set<Path> existing = existingConflicts(destinations, destDir,
+                                                   desiredFilename, moves);
             int nFiles = existing.size() + moves.size();
             if (nFiles > 1) {
                 addIndices(moves, existing);
@@ -235,39 +398,77 @@ public class MoveRunner implements Runnable {
         return toMove;
     }
 
+    /**
+     * Works out where each of the given moves will actually put its file: which
+     * moves conflict with each other, or with files already at the destination,
+     * and so get a version added to their names (see resolveConflicts).  Nothing is
+     * changed on disk; the destination directories are only listed.
+     *
+     * @param destinations
+     *   the listings of the destination directories, to be shared by the moves
+     * @param episodes
+     *   a list of FileMovers -- the move tasks to be done
+     * @return the same moves, grouped by destination directory
+     */
+    static List<FileMover> resolveDestinations(final DestinationDirectories destinations,
+                                               final List<FileMover> episodes)
+    {
+        for (FileMover move : episodes) {
+            // In case the move was resolved before, as part of a plan
+            move.destIndex = null;
+        }
+        final Map<String, List<FileMover>> mappings = mapByDestDir(episodes);
+        final List<FileMover> allMoves = new ArrayList<>(episodes.size());
+        for (String destDir : mappings.keySet()) {
+            List<FileMover> moves = mappings.get(destDir);
+            resolveConflicts(destinations, moves, destDir);
+            allMoves.addAll(moves);
+        }
+        return allMoves;
+    }
+
     /**
      * Creates a MoveRunner to move all the episodes in the list, and update the progress
-     * bar, using the specified timeout.
+     * bar, using the specified timeout.  This works out where each file will go, and
+     * which there is room for, but doesn't move anything until runThread is called.
      *
      * @param episodes a list of FileMovers to execute
      * @param updater a ProgressUpdater to be informed of our progress
-     * @param timeout the number of seconds to allow each FileMover to run, before killing it
+     * @param timeout the minimum number of seconds to allow each FileMover to run, before
+     *        killing it; copies are allowed more, according to their size
+     * @param journal the journal in which to record the moves; may be null
      *
      */
     @SuppressWarnings("SameParameterValue")
     private MoveRunner(final List<FileMover> episodes,
                        final ProgressUpdater updater,
-                       final int timeout)
+                       final int timeout,
+                       final MoveJournal journal)
     {
         this.updater = updater;
         this.timeout = timeout;
+        this.journal = journal;
 
         progressThread.setName(FILE_MOVE_THREAD_LABEL);
         progressThread.setDaemon(true);
 
-        final Map<String, List<FileMover>> mappings = mapByDestDir(episodes);
-        for (String destDir : mappings.keySet()) {
-            resolveConflicts(mappings.get(destDir), destDir);
+        // Each destination directory is listed once, here, and the listing and the
+        // real path of the directory are then shared by all the moves into it
+        final DestinationDirectories destinations = new DestinationDirectories();
+        // The moves don't all run in the order given; see MoveScheduler.
+        final List<FileMover> allMoves = resolveDestinations(destinations, episodes);
+        for (FileMover move : allMoves) {
+            move.setDestinations(destinations);
+            move.setEmptiedDirectories(emptiedDirectories);
         }
 
-        int count = 0;
-        for (List<FileMover> moves : mappings.values()) {
-            for (FileMover move : moves) {
-                futures.add(EXECUTOR.submit(move));
-                count++;
-            }
-        }
-        numMoves = count;
+        // Hold back any copies there isn't room for, rather than have them fail
+        // one by one when the destination fills up
+        final SpaceCheck spaceCheck = new SpaceCheck(scheduler);
+        toRun = spaceCheck.check(allMoves);
+        spaceReport = spaceCheck.describe();
+
+        numMoves = toRun.size();
         logger.fine("have " + numMoves + " files to move");
     }
 
@@ -278,7 +479,31 @@ public class MoveRunner implements Runnable {
      *
      */
     public MoveRunner(final List<FileMover> episodes) {
-        this(episodes, null, DEFAULT_TIMEOUT);
+        this(episodes, null, DEFAULT_TIMEOUT, MoveJournal.getDefault());
+    }
+
+    /**
+     * Creates a MoveRunner to move all the episodes in the list, using the default
+     * timeout, and recording the moves in the given journal.
+     *
+     * @param episodes a list of FileMovers to execute
+     * @param journal the journal in which to record the moves; may be null
+     *
+     */
+    MoveRunner(final List<FileMover> episodes, final MoveJournal journal) {
+        this(episodes, null, DEFAULT_TIMEOUT, journal);
+    }
+
+    /**
+     * Gets a description of the moves that were held back because there was not
+     * enough space for them at their destination.  Those moves will not be run.
+     * This is known as soon as the MoveRunner is created, before anything is moved.
+     *
+     * @return a description of the devices that did not have enough space; or
+     *    null, if there was room for everything
+     */
+    public String getSpaceReport() {
+        return spaceReport;
     }
 
     /**
@@ -299,6 +524,6 @@ public class MoveRunner implements Runnable {
      *
      */
     public static void shutDown() {
-        EXECUTOR.shutdownNow();
+        MoveScheduler.shutDown();
     }
 }
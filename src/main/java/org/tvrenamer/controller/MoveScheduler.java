@@ -0,0 +1,295 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.FileUtilities;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Decides where each FileMover runs.
+ *
+ * A move within a single filesystem is just a rename, which takes next to no time,
+ * no matter how big the file is.  A move between filesystems is a copy, which can
+ * take minutes, and which mostly waits on the two devices involved.  Running all
+ * the moves one at a time means a batch of instant renames can sit behind a slow
+ * copy to a network drive.
+ *
+ * So we group the moves by the FileStore of the source file and of the destination
+ * folder, telling FileStores apart the same way FileUtilities.areSameDisk does: by
+ * their equals method.  Renames all go to one pool, with many threads.  Copies go to a "lane"
+ * for their pair of devices; each lane runs only a few copies at once, so we don't
+ * thrash the disks, but copies between unrelated devices run side by side.  Since
+ * the renames have their own threads, they overtake any copies queued before them.
+ * A move that keeps the original links the file when it's within one FileStore,
+ * and takes no time, like a rename; but if that FileStore can't do hard links, it
+ * copies the file.  So we try linking a file, once for each destination FileStore,
+ * to find out which it will be.
+ */
+final class MoveScheduler {
+    private static final Logger logger = Logger.getLogger(MoveScheduler.class.getName());
+
+    static final int RENAME_PARALLELISM = 8;
+    static final int DEFAULT_COPIES_PER_DEVICE_PAIR = 1;
+
+    private static final String UNKNOWN_STORE = "(unknown)";
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static final ExecutorService RENAME_EXECUTOR
+        = Executors.newFixedThreadPool(RENAME_PARALLELISM, daemonThreads("FileRenamer"));
+
+    // Keyed by the source and destination FileStores; either may be null, if the
+    // FileStore could not be found
+    private static final Map<List<FileStore>, ExecutorService> COPY_LANES
+        = new ConcurrentHashMap<>();
+
+    private static volatile int copiesPerDevicePair = DEFAULT_COPIES_PER_DEVICE_PAIR;
+
+    // The FileStores of the directories we've looked at while scheduling this batch.
+    // Finding a FileStore can be expensive, and a batch tends to involve only a few
+    // directories.  A null value means we could not find the FileStore.
+    private final Map<Path, FileStore> stores = new HashMap<>();
+
+    // Whether each destination FileStore supports hard links; see canLink
+    private final Map<FileStore, Boolean> linkable = new HashMap<>();
+
+    private long bytesToCopy = 0L;
+
+    /**
+     * Set how many copies may run at once between any one pair of devices.  Affects
+     * only lanes created after this is called.
+     *
+     * @param copies
+     *    the number of copies to allow at once; at least one
+     */
+    static void setCopiesPerDevicePair(final int copies) {
+        copiesPerDevicePair = Math.max(1, copies);
+    }
+
+    /**
+     * Get the FileStore the given path is on.  If the path doesn't exist (as is
+     * often the case for a destination folder), use its closest ancestor that does.
+     *
+     * @param path
+     *    the path to look up
+     * @return the FileStore, or null if it could not be found
+     */
+    FileStore fileStoreOf(final Path path) {
+        Path existing = FileUtilities.existingAncestor(path.toAbsolutePath());
+        if (existing == null) {
+            return null;
+        }
+        if (stores.containsKey(existing)) {
+            return stores.get(existing);
+        }
+        FileStore store = null;
+        try {
+            store = Files.getFileStore(existing);
+        } catch (IOException | SecurityException e) {
+            logger.fine("could not get file store of " + existing + ": " + e.getMessage());
+        }
+        stores.put(existing, store);
+        return store;
+    }
+
+    /**
+     * Get a name for the FileStore the given path is on; see fileStoreOf.
+     *
+     * @param path
+     *    the path to look up
+     * @return a name identifying the FileStore, or UNKNOWN_STORE
+     */
+    String storeNameOf(final Path path) {
+        return nameOf(fileStoreOf(path));
+    }
+
+    private static String nameOf(final FileStore store) {
+        // A FileStore's toString gives its mount point and device, which is
+        // what the user needs to tell devices apart
+        return (store == null) ? UNKNOWN_STORE : store.toString();
+    }
+
+    private FileStore sourceStoreOf(final Path source) {
+        Path sourceDir = source.toAbsolutePath().getParent();
+        return (sourceDir == null) ? null : fileStoreOf(sourceDir);
+    }
+
+    private static ExecutorService copyLane(final FileStore source, final FileStore dest) {
+        return COPY_LANES.computeIfAbsent(Arrays.asList(source, dest), k -> {
+                String name = nameOf(source) + " -> " + nameOf(dest);
+                logger.fine("creating copy lane " + name);
+                return Executors.newFixedThreadPool(copiesPerDevicePair,
+                                                    daemonThreads("FileCopier " + name));
+            });
+    }
+
+    /**
+     * Finds out whether moving the given file into the given directory can be
+     * done with a rename.
+     *
+     * @param source
+     *    the file to be moved
+     * @param destDir
+     *    the directory it will be moved into; need not exist yet
+     * @return true if the file and the directory are on the same FileStore, as
+     *    FileUtilities.areSameDisk would find
+     */
+    boolean isRename(final Path source, final Path destDir) {
+        FileStore sourceStore = sourceStoreOf(source);
+        return (sourceStore != null) && sourceStore.equals(fileStoreOf(destDir));
+    }
+
+    /**
+     * Finds out whether files can be hard-linked into the given directory.  The
+     * first time this is asked about a FileStore, a temporary file is linked in
+     * the directory (or its closest existing ancestor) to find out; the answer is
+     * then used for every directory on that FileStore.
+     *
+     * @param destDir
+     *    the directory files would be linked into; need not exist yet
+     * @return true if the directory's FileStore supports hard links
+     */
+    boolean canLink(final Path destDir) {
+        FileStore store = fileStoreOf(destDir);
+        if (store == null) {
+            return false;
+        }
+        Boolean known = linkable.get(store);
+        if (known == null) {
+            Path existing = FileUtilities.existingAncestor(destDir.toAbsolutePath());
+            known = (existing != null) && FileUtilities.supportsLinks(existing);
+            logger.fine(nameOf(store) + (known ? " supports" : " does not support")
+                        + " hard links");
+            linkable.put(store, known);
+        }
+        return known;
+    }
+
+    /**
+     * Finds out whether the given move will copy its file.  A move to another
+     * FileStore does.  A move within one FileStore renames the file; or, if the
+     * original is kept, links it, unless the FileStore doesn't support hard links
+     * (see canLink), in which case it copies it.
+     *
+     * @param move
+     *    the move
+     * @return true if the move will copy the file, rather than rename or link it
+     */
+    boolean mayCopy(final FileMover move) {
+        Path destDir = move.getMoveToDirectory();
+        if (!isRename(move.getCurrentPath(), destDir)) {
+            return true;
+        }
+        return move.isKeepingOriginal() && !canLink(destDir);
+    }
+
+    private ExecutorService copyLaneFor(final Path source, final Path destDir) {
+        return copyLane(sourceStoreOf(source), fileStoreOf(destDir));
+    }
+
+    /**
+     * Gets the executor on which to move the given file into the given directory:
+     * the rename pool, or the copy lane for the pair of devices.
+     *
+     * @param source
+     *    the file to be moved
+     * @param destDir
+     *    the directory it will be moved into; need not exist yet
+     * @return the executor to submit the move to
+     */
+    ExecutorService executorFor(final Path source, final Path destDir) {
+        if (isRename(source, destDir)) {
+            return RENAME_EXECUTOR;
+        }
+        return copyLaneFor(source, destDir);
+    }
+
+    /**
+     * Gets the executor on which to run the given move: the copy lane for its pair
+     * of devices, if it may copy the file (see mayCopy); otherwise the rename pool.
+     *
+     * @param move
+     *    the move
+     * @return the executor to submit the move to
+     */
+    ExecutorService executorFor(final FileMover move) {
+        if (mayCopy(move)) {
+            return copyLaneFor(move.getCurrentPath(), move.getMoveToDirectory());
+        }
+        return RENAME_EXECUTOR;
+    }
+
+    /**
+     * Start running the given moves.
+     *
+     * @param moves
+     *    the FileMovers to run
+     * @param completed
+     *    each move's Future is added to this queue when the move is over, whichever
+     *    executor it ran on
+     * @return the Futures of the moves, in the same order as the moves were given
+     */
+    List<Future<Boolean>> schedule(final List<FileMover> moves,
+                                   final BlockingQueue<Future<Boolean>> completed)
+    {
+        final List<Future<Boolean>> futures = new ArrayList<>(moves.size());
+        final Map<ExecutorService, CompletionService<Boolean>> services = new HashMap<>();
+        int renames = 0;
+        for (FileMover move : moves) {
+            CompletionService<Boolean> service = services
+                .computeIfAbsent(executorFor(move),
+                                 executor -> new ExecutorCompletionService<>(executor, completed));
+            futures.add(service.submit(move));
+            if (mayCopy(move)) {
+                bytesToCopy += move.getFileSize();
+            } else {
+                renames++;
+            }
+        }
+        logger.fine("scheduled " + renames + " renames and " + (moves.size() - renames)
+                    + " copies");
+        return futures;
+    }
+
+    /**
+     * @return the total size of the files that have been scheduled to be copied,
+     *    or that may be copied, rather than renamed or linked
+     */
+    long getBytesToCopy() {
+        return bytesToCopy;
+    }
+
+    /**
+     * Shut down all the threads, interrupting any moves that are running.
+     */
+    static void shutDown() {
+        RENAME_EXECUTOR.shutdownNow();
+        for (ExecutorService lane : COPY_LANES.values()) {
+            lane.shutdownNow();
+        }
+    }
+}
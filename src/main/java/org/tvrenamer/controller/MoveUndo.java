@@ -0,0 +1,270 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.ResumableCopy;
+import org.tvrenamer.model.UserPreferences;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Undoes the most recent batch of moves, as recorded in the MoveJournal.
+ *
+ * Each file that the batch moved is moved back to where it came from, in reverse
+ * order, on the same threads a batch of moves would use (see MoveScheduler): a
+ * file that was renamed is renamed back, and one that was copied to another device
+ * is copied back.  A file whose original was kept (see
+ * UserPreferences.isKeepOriginals) is undone by removing the link or copy that the
+ * batch made of it, as long as the original is still there.  Directories that the
+ * batch removed because they were left empty are created again first; and
+ * directories under the destination folder that are left empty by the undo are
+ * removed afterwards.
+ *
+ * The undo is itself recorded in the journal, as a batch of moves, so that it is
+ * safe against crashes in the same way.  Each file that is put back is recorded
+ * too.  If some of a batch's files couldn't be put back, undoing again tries just
+ * those; once they're all back, the batch won't be undone again.
+ */
+public final class MoveUndo {
+    private static final Logger logger = Logger.getLogger(MoveUndo.class.getName());
+
+    /**
+     * What happened to one file, when we tried to move it back.
+     */
+    public static final class Result {
+        private final Path from;
+        private final Path to;
+        private final boolean restored;
+        private final String problem;
+
+        Result(final Path from, final Path to, final boolean restored, final String problem) {
+            this.from = from;
+            this.to = to;
+            this.restored = restored;
+            this.problem = problem;
+        }
+
+        /**
+         * @return where the batch had moved the file to
+         */
+        public Path getFrom() {
+            return from;
+        }
+
+        /**
+         * @return where the file originally was, and was to be moved back to
+         */
+        public Path getTo() {
+            return to;
+        }
+
+        /**
+         * @return true if the file is now back where it originally was
+         */
+        public boolean isRestored() {
+            return restored;
+        }
+
+        /**
+         * @return a description of what went wrong, or of anything unusual; null
+         *    if the file was simply moved back
+         */
+        public String getProblem() {
+            return problem;
+        }
+    }
+
+    private MoveUndo() {
+        // Prevents instantiation
+    }
+
+    private static Result moveBack(final MoveJournal.Batch undoBatch, final Path from,
+                                   final Path to, final boolean rename)
+    {
+        if (Files.notExists(from)) {
+            if (Files.exists(to)) {
+                return new Result(from, to, true, "already back in place");
+            }
+            return new Result(from, to, false, "file no longer exists");
+        }
+        if (Files.exists(to)) {
+            return new Result(from, to, false, "another file is at the original location");
+        }
+        if (!FileUtilities.mkdirs(to.getParent())) {
+            return new Result(from, to, false, "could not create original directory");
+        }
+
+        MoveJournal.Entry entry = undoBatch.intent(!rename, from, to);
+        if (!entry.awaitDurable()) {
+            entry.finished(false, null);
+            return new Result(from, to, false, "could not record move in journal");
+        }
+        boolean ok;
+        if (rename) {
+            ok = to.equals(FileUtilities.renameFile(from, to));
+        } else {
+            ok = ResumableCopy.copy(from, to, null,
+                                    UserPreferences.getInstance().isVerifyCopies());
+            if (ok && !FileUtilities.deleteFile(from)) {
+                logger.warning("copied " + from + " back, but could not delete it");
+                FileUtilities.deleteFile(to);
+                ok = false;
+            }
+        }
+        entry.finished(ok, to);
+        return new Result(from, to, ok, ok ? null : "could not move file back");
+    }
+
+    private static Result removeKept(final Path from, final Path to) {
+        if (Files.notExists(from)) {
+            return new Result(from, to, true, "already removed");
+        }
+        if (Files.notExists(to)) {
+            // It may be the only copy left; leave it
+            return new Result(from, to, false, "original no longer exists");
+        }
+        boolean ok = FileUtilities.deleteFile(from);
+        return new Result(from, to, ok, ok ? null : "could not remove file");
+    }
+
+    private static void removeEmptiedDirectories(final Set<Path> dirs, final Path stopAt) {
+        // Sorted in reverse, so a directory comes before its parent
+        Set<Path> candidates = new TreeSet<>(Collections.reverseOrder());
+        candidates.addAll(dirs);
+        for (Path dir : candidates) {
+            Path current = dir;
+            while ((current != null) && current.startsWith(stopAt) && !current.equals(stopAt)
+                   && Files.isDirectory(current) && FileUtilities.isDirEmpty(current))
+            {
+                if (!FileUtilities.rmdir(current)) {
+                    break;
+                }
+                logger.info("removed empty directory " + current);
+                current = current.getParent();
+            }
+        }
+    }
+
+    /**
+     * Undoes the most recent batch of moves that has ended, and moved any files
+     * that have not already been put back.  Only those files are moved back.  A
+     * batch that is still running is never undone.
+     *
+     * @param journal
+     *    the journal the batch was recorded in
+     * @param stopAt
+     *    the top-level destination folder; directories under it left empty by
+     *    the undo are removed.  May be null, to leave all directories in place.
+     * @return what happened to each file that was to be moved back; or null, if
+     *    there was no batch to undo
+     */
+    static List<Result> undoLastBatch(final MoveJournal journal, final Path stopAt) {
+        MoveJournal.RecordedBatch last = null;
+        for (MoveJournal.RecordedBatch batch : journal.readBatches()) {
+            if ((batch.undoOf == null) && !batch.undone && batch.ended) {
+                for (MoveJournal.RecordedMove move : batch.moves) {
+                    if (Boolean.TRUE.equals(move.moved) && !move.restored) {
+                        last = batch;
+                        break;
+                    }
+                }
+            }
+        }
+        if (last == null) {
+            logger.info("no moves to undo");
+            return null;
+        }
+
+        final MoveJournal.Batch undoBatch = journal.startUndoBatch(last.id);
+        for (int i = last.removedDirectories.size() - 1; i >= 0; i--) {
+            FileUtilities.mkdirs(last.removedDirectories.get(i));
+        }
+
+        final MoveScheduler scheduler = new MoveScheduler();
+        final List<Future<Result>> futures = new ArrayList<>();
+        final List<MoveJournal.RecordedMove> undone = new ArrayList<>();
+        for (int i = last.moves.size() - 1; i >= 0; i--) {
+            final MoveJournal.RecordedMove move = last.moves.get(i);
+            if (!Boolean.TRUE.equals(move.moved) || move.restored) {
+                continue;
+            }
+            final Path from = move.result;
+            final Path to = move.source;
+            if (move.keep) {
+                // Removing a file takes no time; use the rename pool
+                futures.add(scheduler.executorFor(from, from.getParent())
+                            .submit(() -> removeKept(from, to)));
+            } else {
+                final boolean rename = scheduler.isRename(from, to.getParent());
+                futures.add(scheduler.executorFor(from, to.getParent())
+                            .submit(() -> moveBack(undoBatch, from, to, rename)));
+            }
+            undone.add(move);
+        }
+
+        final List<Result> results = new ArrayList<>(futures.size());
+        final Set<Path> leftBehind = new TreeSet<>();
+        int restored = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            MoveJournal.RecordedMove move = undone.get(i);
+            Result result;
+            try {
+                result = futures.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                logger.log(Level.WARNING, "exception moving back " + move.result, e);
+                result = new Result(move.result, move.source, false, e.getClass().getSimpleName());
+            }
+            if (result.isRestored()) {
+                undoBatch.restored(move.id);
+                restored++;
+                Path parent = move.result.getParent();
+                if (parent != null) {
+                    leftBehind.add(parent);
+                }
+            } else {
+                logger.warning("could not move back " + result.getFrom() + ": "
+                               + result.getProblem());
+            }
+            results.add(result);
+        }
+        if ((stopAt != null) && Files.isDirectory(stopAt)) {
+            try {
+                // The moves were recorded with real paths
+                removeEmptiedDirectories(leftBehind, stopAt.toRealPath());
+            } catch (IOException ioe) {
+                logger.log(Level.FINE, "could not get real path of " + stopAt, ioe);
+            }
+        }
+        undoBatch.end();
+
+        logger.info("undo moved back " + restored + " of " + results.size() + " files");
+        return results;
+    }
+
+    /**
+     * Undoes the most recent batch of moves recorded in the default journal.  This
+     * can take as long as the moves themselves did, and should not be called on
+     * the UI thread.
+     *
+     * @return what happened to each file that was to be moved back; or null, if
+     *    there was no batch to undo
+     */
+    public static List<Result> undoLastBatch() {
+        MoveJournal journal = MoveJournal.getDefault();
+        if (journal == null) {
+            logger.info("no move journal; cannot undo");
+            return null;
+        }
+        return undoLastBatch(journal, UserPreferences.getInstance().getDestinationDirectory());
+    }
+}
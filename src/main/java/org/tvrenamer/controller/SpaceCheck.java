@@ -0,0 +1,210 @@
+package org.tvrenamer.controller;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+/**
+ * Checks, before a batch of moves starts, that there is room for it.
+ *
+ * A move within a FileStore is a rename, and needs no space.  A move to another
+ * FileStore is a copy, and needs as much room there as the file takes up.  So may
+ * a move that keeps the original, if the file can't be linked instead.  If we
+ * just started copying, and the destination filled up partway through, each of the
+ * remaining copies would fail in turn, after writing as much as it could.
+ *
+ * So we add up the bytes to be copied to each destination FileStore, and compare
+ * that with its usable space, less a safety margin (see marginFor).  If it doesn't
+ * all fit, we pick out as many files as do fit, smallest first, and hold back the
+ * rest.  What was held back, and why, is reported all at once, before anything is
+ * moved.
+ */
+final class SpaceCheck {
+    private static final Logger logger = Logger.getLogger(SpaceCheck.class.getName());
+
+    // Leave at least this much space free on any device we copy to...
+    static final long MINIMUM_SPACE_MARGIN = 256L * 1024 * 1024;
+    // ... or this percentage of its total size, whichever is more
+    static final int SPACE_MARGIN_PERCENT = 1;
+
+    /**
+     * A device that does not have room for everything we wanted to copy to it.
+     */
+    static final class Shortfall {
+        final String store;
+        final long needed;
+        final long available;
+        final List<FileMover> held;
+
+        Shortfall(final String store, final long needed, final long available,
+                  final List<FileMover> held)
+        {
+            this.store = store;
+            this.needed = needed;
+            this.available = available;
+            this.held = held;
+        }
+    }
+
+    private final MoveScheduler scheduler;
+    private final List<Shortfall> shortfalls = new ArrayList<>();
+
+    /**
+     * Creates a SpaceCheck that finds out where each move goes the same way the
+     * given scheduler does.
+     *
+     * @param scheduler
+     *    the scheduler that will run the moves
+     */
+    SpaceCheck(final MoveScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * How much space to leave free on a device, beyond what we copy to it.
+     *
+     * @param totalSpace
+     *    the size of the device, in bytes
+     * @return the number of bytes not to use
+     */
+    static long marginFor(final long totalSpace) {
+        return Math.max(MINIMUM_SPACE_MARGIN, totalSpace / 100 * SPACE_MARGIN_PERCENT);
+    }
+
+    /**
+     * Picks out as many of the given items as fit in the given space, smallest
+     * first.
+     *
+     * @param items
+     *    the items to choose from
+     * @param sizeOf
+     *    gives the size of an item
+     * @param available
+     *    the space to fit them in
+     * @param left
+     *    the items that don't fit are added to this list
+     * @param <T> the type of the items
+     * @return the items that fit, smallest first
+     */
+    static <T> List<T> fit(final List<T> items, final ToLongFunction<T> sizeOf,
+                           final long available, final List<T> left)
+    {
+        final List<T> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingLong(sizeOf));
+        final List<T> fitting = new ArrayList<>();
+        long used = 0L;
+        for (T item : sorted) {
+            long size = sizeOf.applyAsLong(item);
+            if (used + size <= available) {
+                used += size;
+                fitting.add(item);
+            } else {
+                left.add(item);
+            }
+        }
+        return fitting;
+    }
+
+    /**
+     * Works out which of the given moves there is room for.  Moves that can't
+     * copy the file (see MoveScheduler.mayCopy) are always included.  The copies
+     * are checked against the usable space of the FileStore they go to; if a
+     * FileStore's space can't be found out, its copies are let through, and left
+     * to succeed or fail on their own.
+     *
+     * @param moves
+     *    the moves of the batch
+     * @return the moves there is room for; the rest are described by
+     *    getShortfalls()
+     */
+    List<FileMover> check(final List<FileMover> moves) {
+        final List<FileMover> toRun = new ArrayList<>(moves.size());
+        final Map<String, List<FileMover>> copiesByStore = new LinkedHashMap<>();
+        final Map<String, FileStore> storesByName = new LinkedHashMap<>();
+        for (FileMover move : moves) {
+            Path destDir = move.getMoveToDirectory();
+            if (!scheduler.mayCopy(move)) {
+                toRun.add(move);
+                continue;
+            }
+            FileStore store = scheduler.fileStoreOf(destDir);
+            if (store == null) {
+                toRun.add(move);
+                continue;
+            }
+            String name = store.toString();
+            storesByName.put(name, store);
+            copiesByStore.computeIfAbsent(name, k -> new ArrayList<>()).add(move);
+        }
+
+        for (Map.Entry<String, List<FileMover>> entry : copiesByStore.entrySet()) {
+            final String name = entry.getKey();
+            final List<FileMover> copies = entry.getValue();
+            long needed = 0L;
+            for (FileMover move : copies) {
+                needed += move.getFileSize();
+            }
+            final long available;
+            try {
+                FileStore store = storesByName.get(name);
+                available = Math.max(0L, store.getUsableSpace()
+                                     - marginFor(store.getTotalSpace()));
+            } catch (IOException | SecurityException e) {
+                logger.fine("could not get space on " + name + ": " + e.getMessage());
+                toRun.addAll(copies);
+                continue;
+            }
+            if (needed <= available) {
+                toRun.addAll(copies);
+                continue;
+            }
+            final List<FileMover> held = new ArrayList<>();
+            toRun.addAll(fit(copies, FileMover::getFileSize, available, held));
+            logger.warning("not enough space on " + name + ": " + needed + " bytes to copy, "
+                           + available + " available; holding back " + held.size()
+                           + " of " + copies.size() + " files");
+            shortfalls.add(new Shortfall(name, needed, available, held));
+        }
+        return toRun;
+    }
+
+    /**
+     * @return the devices that did not have room for everything we wanted to copy
+     *    to them, as found by check(); empty if everything fit
+     */
+    List<Shortfall> getShortfalls() {
+        return shortfalls;
+    }
+
+    /**
+     * Describes the shortfalls, for the user.
+     *
+     * @return a description of the devices that did not have enough room, and how
+     *    many files were held back; or null, if everything fit
+     */
+    String describe() {
+        if (shortfalls.isEmpty()) {
+            return null;
+        }
+        StringBuilder report = new StringBuilder();
+        for (Shortfall shortfall : shortfalls) {
+            if (report.length() > 0) {
+                report.append('\n');
+            }
+            report.append(shortfall.store).append(": ")
+                .append(StringUtils.formatFileSize(shortfall.needed)).append(" to copy, ")
+                .append(StringUtils.formatFileSize(shortfall.available)).append(" available; ")
+                .append(shortfall.held.size()).append(" files not moved");
+        }
+        return report.toString();
+    }
+}
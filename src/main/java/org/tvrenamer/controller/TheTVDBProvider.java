@@ -4,6 +4,7 @@ import static org.tvrenamer.controller.util.XPathUtilities.nodeListValue;
 import static org.tvrenamer.controller.util.XPathUtilities.nodeTextValue;
 import static org.tvrenamer.model.util.Constants.*;
 
+import org.tvrenamer.controller.util.StringPool;
 import org.tvrenamer.controller.util.StringUtils;
 import org.tvrenamer.model.DiscontinuedApiException;
 import org.tvrenamer.model.EpisodeInfo;
@@ -186,14 +187,25 @@ public class TheTVDBProvider {
         }
     }
 
+    // Get the text value of the given node, as an instance shared with every other
+    // equal value.  Used for the fields of the listings which are kept, and very often
+    // repeated (air dates, common titles).  The episode ID is unique, by definition,
+    // and the season and episode numbers are parsed into ints and then dropped, so
+    // there is no point pooling them.
+    private static String pooledTextValue(final String path, final Node eNode)
+        throws XPathExpressionException
+    {
+        return StringPool.dedupe(nodeTextValue(path, eNode));
+    }
+
     private static EpisodeInfo createEpisodeInfo(final Node eNode) {
         try {
             return new EpisodeInfo.Builder()
                 .episodeId(nodeTextValue(XPATH_EPISODE_ID, eNode))
                 .seasonNumber(nodeTextValue(XPATH_SEASON_NUM, eNode))
                 .episodeNumber(nodeTextValue(XPATH_EPISODE_NUM, eNode))
-                .episodeName(nodeTextValue(XPATH_EPISODE_NAME, eNode))
-                .firstAired(nodeTextValue(XPATH_AIRDATE, eNode))
+                .episodeName(pooledTextValue(XPATH_EPISODE_NAME, eNode))
+                .firstAired(pooledTextValue(XPATH_AIRDATE, eNode))
                 .dvdSeason(nodeTextValue(XPATH_DVD_SEASON_NUM, eNode))
                 .dvdEpisodeNumber(nodeTextValue(XPATH_DVD_EPISODE_NUM, eNode))
                 .build();
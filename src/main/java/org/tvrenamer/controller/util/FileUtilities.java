@@ -3,15 +3,28 @@ package org.tvrenamer.controller.util;
 import org.tvrenamer.model.MoveObserver;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  *
@@ -22,6 +35,11 @@ import java.util.logging.Logger;
 public class FileUtilities {
     private static final Logger logger = Logger.getLogger(FileUtilities.class.getName());
 
+    // How much to copy between progress updates and interrupt checks
+    static final long COPY_CHUNK_SIZE = 16L * 1024 * 1024;
+    // The buffer to copy through, when we can't transfer directly
+    static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
     public static void loggingOff() {
         logger.setLevel(Level.SEVERE);
     }
@@ -210,6 +228,71 @@ public class FileUtilities {
         return unexpectedMoveResult(srcFile, destFile, actualDest);
     }
 
+    /**
+     * Creates a hard link to an existing file, so that the same file is
+     * available at both paths, without copying any of its contents.
+     *
+     * <p>This only works within a single FileStore, and only on file systems
+     * that support hard links; many (such as FAT) don't.  The caller is expected
+     * to fall back to copying the file when this returns false.
+     *
+     * @param existing
+     *    the file to link to
+     * @param link
+     *    the path at which to create the link; should not exist
+     * @return
+     *    true if the link was created; false if it was not
+     */
+    public static boolean linkFile(final Path existing, final Path link) {
+        if (Files.exists(link)) {
+            logger.warning("will not overwrite existing file: " + link);
+            return false;
+        }
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // Not unusual at all; the file system just doesn't do hard links,
+            // or not between these two places
+            logger.fine("could not link " + link + " to " + existing + ": " + e);
+        } catch (IOException | SecurityException e) {
+            logger.log(Level.WARNING, "Error linking " + link + " to " + existing, e);
+        }
+        return false;
+    }
+
+    /**
+     * Finds out whether files can be hard-linked within the given directory, by
+     * creating a temporary file there, and trying to link to it.  Both are
+     * removed again.
+     *
+     * @param dir
+     *    an existing directory
+     * @return
+     *    true if a link could be created; false if not, including if the
+     *    temporary file could not be created
+     */
+    public static boolean supportsLinks(final Path dir) {
+        final Path probe;
+        try {
+            probe = Files.createTempFile(dir, ".tvrenamer-link", ".tmp");
+        } catch (IOException | SecurityException e) {
+            logger.fine("could not test links in " + dir + ": " + e);
+            return false;
+        }
+        final Path link = probe.resolveSibling(probe.getFileName() + ".lnk");
+        try {
+            return linkFile(probe, link);
+        } finally {
+            try {
+                Files.deleteIfExists(link);
+                Files.deleteIfExists(probe);
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "could not remove " + probe, ioe);
+            }
+        }
+    }
+
     /**
      * areSameDisk -- returns true if two Paths exist on the same FileStore.
      *
@@ -326,28 +409,15 @@ public class FileUtilities {
                                           final MoveObserver observer)
     {
         boolean ok = false;
-        try (OutputStream fos = Files.newOutputStream(dest);
-             InputStream fis = Files.newInputStream(source))
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dest, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.WRITE))
         {
-            byte[] buffer = new byte[32768];
-            int n;
-            long copied = 0L;
-            while (-1 != (n = fis.read(buffer))) {
-                fos.write(buffer, 0, n);
-                copied += n;
-                if (observer != null) {
-                    observer.setProgressStatus(StringUtils.formatFileSize(copied));
-                    observer.setProgressValue(copied);
-                }
-                if (Thread.interrupted()) {
-                    break;
-                }
-            }
-            if (-1 == n) {
-                ok = true;
-            }
+            ok = transferWithUpdates(in, out, 0L, in.size(), observer);
+        } catch (ClosedByInterruptException cbie) {
+            logger.info("copy of " + source + " was interrupted");
         } catch (IOException ioe) {
-            ok = false;
             String errMsg = "Error moving file " + source;
             if (ioe.getMessage() != null) {
                 errMsg += ": " + ioe.getMessage();
@@ -361,6 +431,160 @@ public class FileUtilities {
         return ok;
     }
 
+    /**
+     * Transfers bytes from one channel to another, in chunks of COPY_CHUNK_SIZE,
+     * notifying the observer after each chunk.
+     *
+     * <p>FileChannel.transferTo lets the operating system move the data directly
+     * (on Linux, with sendfile), rather than reading it into a Java buffer and
+     * writing it out again.  The chunks are large, so the observer -- which will
+     * generally post to the UI thread -- is called a few times a second rather
+     * than thousands of times.
+     *
+     * <p>The copy stops, and returns false, if the thread is interrupted.  An
+     * interrupt that arrives during a transfer closes the channels, and makes
+     * the transfer throw ClosedByInterruptException.
+     *
+     * @param in
+     *    the channel to read from
+     * @param out
+     *    the channel to write to; bytes are written at the same positions they
+     *    were read from
+     * @param start
+     *    the position in the input at which to start
+     * @param end
+     *    the position in the input at which to stop; normally, its size
+     * @param observer
+     *    the observer to notify, if any.  May be null.
+     * @return true if all the bytes up to <code>end</code> were transferred;
+     *    false if the copy was interrupted, or the input turned out to be
+     *    shorter than expected
+     * @throws IOException if the transfer fails
+     */
+    static boolean transferWithUpdates(final FileChannel in, final FileChannel out,
+                                       final long start, final long end,
+                                       final MoveObserver observer)
+        throws IOException
+    {
+        long copied = start;
+        out.position(start);
+        while (copied < end) {
+            long n = in.transferTo(copied, Math.min(COPY_CHUNK_SIZE, end - copied), out);
+            if (n <= 0) {
+                // The source is shorter than it was when we started
+                logger.warning("source ended after " + copied + " of " + end + " bytes");
+                return false;
+            }
+            copied += n;
+            if (observer != null) {
+                observer.setProgressStatus(StringUtils.formatFileSize(copied));
+                observer.setProgressValue(copied);
+            }
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies bytes from one channel to another, like transferWithUpdates, but
+     * through a buffer, computing the checksum of the bytes as they go by.  This
+     * gives up the direct transfer, but means the data doesn't have to be read
+     * a second time to find out what was copied.
+     *
+     * @param in
+     *    the channel to read from
+     * @param out
+     *    the channel to write to; bytes are written at the same positions they
+     *    were read from
+     * @param start
+     *    the position in the input at which to start
+     * @param end
+     *    the position in the input at which to stop
+     * @param crc
+     *    the checksum to update with the bytes copied
+     * @param observer
+     *    the observer to notify, if any.  May be null.
+     * @return true if all the bytes up to <code>end</code> were copied; false if
+     *    the copy was interrupted, or the input turned out to be shorter than
+     *    expected
+     * @throws IOException if the copy fails
+     */
+    static boolean copyWithChecksum(final FileChannel in, final FileChannel out,
+                                    final long start, final long end, final CRC32 crc,
+                                    final MoveObserver observer)
+        throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        long copied = start;
+        long reported = start;
+        out.position(start);
+        while (copied < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(COPY_BUFFER_SIZE, end - copied));
+            int n = in.read(buffer, copied);
+            if (n <= 0) {
+                logger.warning("source ended after " + copied + " of " + end + " bytes");
+                return false;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            copied += n;
+            if ((observer != null) && ((copied - reported >= COPY_CHUNK_SIZE) || (copied == end))) {
+                observer.setProgressStatus(StringUtils.formatFileSize(copied));
+                observer.setProgressValue(copied);
+                reported = copied;
+            }
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the checksum of part of a file.
+     *
+     * @param in
+     *    the channel to read
+     * @param start
+     *    the position at which to start
+     * @param end
+     *    the position at which to stop
+     * @param crc
+     *    the checksum to update with the bytes read
+     * @return true if all the bytes up to <code>end</code> were read; false if
+     *    the thread was interrupted, or the file is shorter than expected
+     * @throws IOException if the file can't be read
+     */
+    static boolean checksum(final FileChannel in, final long start, final long end,
+                            final CRC32 crc)
+        throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        long read = start;
+        while (read < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(COPY_BUFFER_SIZE, end - read));
+            int n = in.read(buffer, read);
+            if (n <= 0) {
+                return false;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            read += n;
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Given a Path, if the Path exists, returns it.  If not, but its parent
      * exists, returns that, etc.  That is, returns the closest ancestor
@@ -432,25 +656,32 @@ public class FileUtilities {
      * directory cannot be created, or is not a directory, or is not writable, this method
      * fails.
      *
+     * The directory is looked at only once: if it exists, we read its attributes to
+     * find out whether it's a directory; if it doesn't, and we create it, we know it
+     * is.  That matters on a network share, where each look is a round trip.
+     *
      * @param destDir
      *    the Path that the caller will want to write into
      * @return true if, upon completion of this method, the desired Path exists, is a
      *         directory, and is writable.  False otherwise.
      */
     public static boolean ensureWritableDirectory(final Path destDir) {
-        if (Files.notExists(destDir)) {
+        boolean isDirectory;
+        try {
+            isDirectory = Files.readAttributes(destDir, BasicFileAttributes.class).isDirectory();
+        } catch (NoSuchFileException nsfe) {
             try {
                 Files.createDirectories(destDir);
+                isDirectory = true;
             } catch (IOException ioe) {
                 logger.log(Level.SEVERE, "Unable to create directory " + destDir, ioe);
                 return false;
             }
-        }
-        if (!Files.exists(destDir)) {
+        } catch (IOException ioe) {
             logger.warning("could not create destination directory " + destDir);
             return false;
         }
-        if (!Files.isDirectory(destDir)) {
+        if (!isDirectory) {
             logger.warning("cannot use specified destination " + destDir
                            + " because it is not a directory");
             return false;
@@ -513,6 +744,23 @@ public class FileUtilities {
      *    or was not a directory, or if we can't remove a directory we tried to remove
      */
     public static boolean removeWhileEmpty(final Path dir) {
+        return removeWhileEmpty(dir, null);
+    }
+
+    /**
+     * If the given argument is an empty directory, remove it, and then its parent,
+     * and so on, as removeWhileEmpty(Path) does; and add each directory removed
+     * to the given list.
+     *
+     * @param dir
+     *    the leaf directory to check for emptiness
+     * @param removed
+     *    a list to add the removed directories to, deepest first; may be null
+     * @return true if the Path is an existent directory, and we succeeded in removing
+     *    any empty directories we tried; false if the Path was null, didn't exist,
+     *    or was not a directory, or if we can't remove a directory we tried to remove
+     */
+    public static boolean removeWhileEmpty(final Path dir, final List<Path> removed) {
         if (dir == null) {
             return false;
         }
@@ -532,10 +780,75 @@ public class FileUtilities {
         boolean success = rmdir(dir);
         if (success) {
             logger.info("removed empty directory " + dir);
+            if (removed != null) {
+                removed.add(dir);
+            }
             if (parent != null) {
-                return removeWhileEmpty(parent);
+                return removeWhileEmpty(parent, removed);
             }
         }
         return success;
     }
+
+    /**
+     * Removes whichever of the given directories are empty, and then their parents,
+     * as removeWhileEmpty does for each of them; but looks at each directory only
+     * once, however many of the given directories it contains.
+     *
+     * The directories are taken deepest first.  So by the time we look at a
+     * directory, we've already removed whatever we're going to remove from inside
+     * it.  When a directory is removed, its parent is added to the ones to look at.
+     *
+     * @param dirs
+     *    the directories that might be empty
+     * @param removed
+     *    a list to add the removed directories to, deepest first; may be null
+     * @return the number of directories removed
+     */
+    public static int removeEmptyDirectories(final Collection<Path> dirs,
+                                             final List<Path> removed)
+    {
+        final PriorityQueue<Path> toCheck
+            = new PriorityQueue<>((p1, p2) -> p2.getNameCount() - p1.getNameCount());
+        final Set<Path> seen = new HashSet<>();
+        for (Path dir : dirs) {
+            if ((dir != null) && seen.add(dir)) {
+                toCheck.add(dir);
+            }
+        }
+        int nRemoved = 0;
+        while (!toCheck.isEmpty()) {
+            final Path dir = toCheck.poll();
+            try (DirectoryStream<Path> contents = Files.newDirectoryStream(dir)) {
+                if (contents.iterator().hasNext()) {
+                    continue;
+                }
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                continue;
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "exception checking directory " + dir, ioe);
+                continue;
+            }
+            try {
+                Files.delete(dir);
+            } catch (DirectoryNotEmptyException dne) {
+                // Something was put there since we looked
+                logger.fine("directory no longer empty: " + dir);
+                continue;
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "exception trying to remove directory " + dir, ioe);
+                continue;
+            }
+            logger.info("removed empty directory " + dir);
+            nRemoved++;
+            if (removed != null) {
+                removed.add(dir);
+            }
+            Path parent = dir.getParent();
+            if ((parent != null) && seen.add(parent)) {
+                toCheck.add(parent);
+            }
+        }
+        return nRemoved;
+    }
 }
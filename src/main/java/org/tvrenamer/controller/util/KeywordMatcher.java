@@ -0,0 +1,167 @@
+package org.tvrenamer.controller.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds which of a list of keywords occur in a string, in a single pass over the
+ * string, no matter how many keywords there are.
+ *
+ * Checking each keyword with String.contains means scanning the string once per
+ * keyword.  Instead, we compile the keywords into an Aho-Corasick automaton: a
+ * state machine which reads the string one character at a time, and whose state
+ * at each point tells us which keywords end there.  The automaton is built once,
+ * when the keywords change, and can then be used by any number of threads at once.
+ *
+ * Matching is case-sensitive, exactly like String.contains.
+ */
+public final class KeywordMatcher {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<String> keywords;
+
+    // Characters that appear in any keyword are numbered from 1; every other
+    // character is class 0, and always leads back to the start state.
+    private final int[] asciiClasses = new int[128];
+    private final Map<Character, Integer> otherClasses = new HashMap<>();
+    private final int width;
+
+    // transitions[(state * width) + charClass] is the next state
+    private final int[] transitions;
+
+    // For each state, the lowest index of any keyword that ends there
+    private final int[] firstMatch;
+
+    /**
+     * Compile the given keywords.
+     *
+     * @param keywords
+     *    the keywords to look for, in order of priority; when several are found,
+     *    the one earliest in the list is reported
+     */
+    public KeywordMatcher(final List<String> keywords) {
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+
+        int nClasses = 1;
+        int maxStates = 1;
+        for (String keyword : this.keywords) {
+            maxStates += keyword.length();
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (charClass(c) == 0) {
+                    if (c < asciiClasses.length) {
+                        asciiClasses[c] = nClasses;
+                    } else {
+                        otherClasses.put(c, nClasses);
+                    }
+                    nClasses++;
+                }
+            }
+        }
+        width = nClasses;
+
+        // Build the trie.  Zero means "no edge" here; the start state is zero, and
+        // nothing ever leads back to it within the trie.
+        int[] trie = new int[maxStates * width];
+        int[] best = new int[maxStates];
+        Arrays.fill(best, NO_MATCH);
+        int nStates = 1;
+        for (int k = 0; k < this.keywords.size(); k++) {
+            String keyword = this.keywords.get(k);
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int edge = (state * width) + charClass(keyword.charAt(i));
+                if (trie[edge] == 0) {
+                    trie[edge] = nStates++;
+                }
+                state = trie[edge];
+            }
+            best[state] = Math.min(best[state], k);
+        }
+
+        // Breadth-first, fill in the missing transitions from the failure links,
+        // and let each state inherit the matches of the state it falls back to.
+        transitions = Arrays.copyOf(trie, nStates * width);
+        firstMatch = Arrays.copyOf(best, nStates);
+        int[] failure = new int[nStates];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < width; c++) {
+            int child = transitions[c];
+            if (child != 0) {
+                failure[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            firstMatch[state] = Math.min(firstMatch[state], firstMatch[failure[state]]);
+            for (int c = 0; c < width; c++) {
+                int edge = (state * width) + c;
+                int child = transitions[edge];
+                int fallback = transitions[(failure[state] * width) + c];
+                if (child == 0) {
+                    transitions[edge] = fallback;
+                } else {
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private int charClass(final char c) {
+        if (c < asciiClasses.length) {
+            return asciiClasses[c];
+        }
+        Integer cls = otherClasses.get(c);
+        return (cls == null) ? 0 : cls;
+    }
+
+    /**
+     * Find the first keyword, in list order, that occurs in the given text.
+     *
+     * @param text
+     *    the string to search
+     * @return the index, in the list given to the constructor, of the first keyword
+     *    that occurs in the text, or -1 if none do
+     */
+    public int firstMatchIndex(final String text) {
+        int found = firstMatch[0];
+        int state = 0;
+        for (int i = 0; (i < text.length()) && (found != 0); i++) {
+            state = transitions[(state * width) + charClass(text.charAt(i))];
+            if (firstMatch[state] < found) {
+                found = firstMatch[state];
+            }
+        }
+        return (found == NO_MATCH) ? -1 : found;
+    }
+
+    /**
+     * Find the first keyword, in list order, that occurs in the given text.  This
+     * gives the same result as calling String.contains with each keyword in turn,
+     * and returning the first one that is found.
+     *
+     * @param text
+     *    the string to search
+     * @return the first keyword found in the text, or null if none are
+     */
+    public String firstMatch(final String text) {
+        int index = firstMatchIndex(text);
+        return (index < 0) ? null : keywords.get(index);
+    }
+
+    /**
+     * @return the number of keywords this matcher looks for
+     */
+    public int size() {
+        return keywords.size();
+    }
+}
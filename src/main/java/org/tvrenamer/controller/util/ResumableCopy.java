@@ -0,0 +1,470 @@
+package org.tvrenamer.controller.util;
+
+import static org.tvrenamer.model.util.Constants.*;
+
+import org.tvrenamer.model.MoveObserver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Copies a file in a way that can be picked up again after a failure.
+ *
+ * A copy of a large file to another device can take a long time, and if the
+ * program is killed, or the destination (say, a network drive) goes away, we
+ * don't want to have to start over.  So the data is written to a "partial" file
+ * next to the destination, and every so often, we record in a "checkpoint" file
+ * how many bytes have safely been written, along with the size and modification
+ * time of the source.
+ *
+ * When a copy is started and a checkpoint for the same destination exists, the
+ * checkpoint is only trusted if it is for the same source path, and the source's
+ * size and modification time haven't changed.  In that case, we continue from
+ * where it left off.  Otherwise, we start over.  Only when every byte has been
+ * copied is the partial file renamed to the destination name.  So the destination
+ * either doesn't exist, or is complete.
+ *
+ * The copy can also be verified.  Then the data is copied through a buffer, and a
+ * CRC32 of each checkpoint-sized segment of the source is computed as it goes by.
+ * Once a segment has been forced to the device, another thread reads it back from
+ * the partial file and checks it, while the copy goes on with the next segment.
+ * (Any segments kept from an earlier attempt are checked against the source, too.)
+ * If any segment doesn't match, the partial copy is thrown away, and the copy
+ * fails, so the source is never deleted in favor of a bad copy.  Note that the
+ * operating system may answer the read-back from its cache, rather than the
+ * device; so this catches data that was lost or mangled on the way, but not
+ * necessarily a device that corrupts what it stores.
+ */
+public final class ResumableCopy {
+    private static final Logger logger = Logger.getLogger(ResumableCopy.class.getName());
+
+    private static final int MAGIC = 0x54564350; // "TVCP"
+    private static final int FORMAT_VERSION = 1;
+
+    // How much to copy between checkpoints.  Each checkpoint forces the data to the
+    // device, so this should not be too small.
+    static final long CHECKPOINT_INTERVAL = 256L * 1024 * 1024;
+
+    static final int VERIFIER_THREADS = 2;
+
+    private static final ExecutorService VERIFIER
+        = Executors.newFixedThreadPool(VERIFIER_THREADS, r -> {
+                Thread t = new Thread(r, "CopyVerifier");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Checks that one segment of a copy matches the source.
+     */
+    private static final class SegmentCheck implements Callable<Boolean> {
+        private final Path source;
+        private final Path copy;
+        private final long start;
+        private final long end;
+        // The checksum of the source segment, if it was computed as it was copied
+        private final Long expected;
+        private final LongAdder nanos;
+
+        SegmentCheck(final Path source, final Path copy, final long start, final long end,
+                     final Long expected, final LongAdder nanos)
+        {
+            this.source = source;
+            this.copy = copy;
+            this.start = start;
+            this.end = end;
+            this.expected = expected;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public Boolean call() throws IOException {
+            final long began = System.nanoTime();
+            try {
+                long sourceCrc;
+                if (expected == null) {
+                    sourceCrc = checksumOf(source, start, end);
+                } else {
+                    sourceCrc = expected;
+                }
+                boolean matches = (sourceCrc >= 0L) && (sourceCrc == checksumOf(copy, start, end));
+                if (!matches) {
+                    logger.warning("bytes " + start + " to " + end + " of " + copy
+                                   + " do not match " + source);
+                }
+                return matches;
+            } finally {
+                nanos.add(System.nanoTime() - began);
+            }
+        }
+    }
+
+    private ResumableCopy() {
+        // Prevents instantiation
+    }
+
+    /**
+     * Gets the path of the file the data is copied into before it is complete.
+     *
+     * @param dest
+     *    the destination of the copy
+     * @return the path of the partial file
+     */
+    static Path partialPath(final Path dest) {
+        return dest.resolveSibling(dest.getFileName() + PARTIAL_COPY_SUFFIX);
+    }
+
+    /**
+     * Gets the path of the file recording how much of the copy is done.
+     *
+     * @param dest
+     *    the destination of the copy
+     * @return the path of the checkpoint file
+     */
+    static Path checkpointPath(final Path dest) {
+        return dest.resolveSibling(dest.getFileName() + COPY_CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Records how much of a copy is done.
+     *
+     * The checkpoint is written to a temporary file and moved into place, so a
+     * checkpoint file is never half-written.
+     *
+     * @param checkpoint
+     *    the checkpoint file
+     * @param source
+     *    the file being copied
+     * @param attrs
+     *    the attributes of the source when the copy began
+     * @param copied
+     *    the number of bytes that have been written, and forced to the device
+     * @throws IOException if the checkpoint could not be written
+     */
+    static void writeCheckpoint(final Path checkpoint, final Path source,
+                                final BasicFileAttributes attrs, final long copied)
+        throws IOException
+    {
+        Path temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(source.toString());
+            out.writeLong(attrs.size());
+            out.writeLong(attrs.lastModifiedTime().toMillis());
+            out.writeLong(copied);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a checkpoint, and decides whether the copy it describes can be
+     * continued.
+     *
+     * @param checkpoint
+     *    the checkpoint file
+     * @param partial
+     *    the partial file the checkpoint describes
+     * @param source
+     *    the file we are about to copy
+     * @param attrs
+     *    the current attributes of the source
+     * @return the number of bytes of the partial file that can be kept; zero if
+     *    there is no usable checkpoint
+     */
+    static long readCheckpoint(final Path checkpoint, final Path partial,
+                               final Path source, final BasicFileAttributes attrs)
+    {
+        if (Files.notExists(checkpoint) || Files.notExists(partial)) {
+            return 0L;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+            if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT_VERSION)) {
+                logger.info("ignoring unrecognized checkpoint " + checkpoint);
+                return 0L;
+            }
+            String savedSource = in.readUTF();
+            long savedSize = in.readLong();
+            long savedModified = in.readLong();
+            long copied = in.readLong();
+            if (!source.toString().equals(savedSource)
+                || (savedSize != attrs.size())
+                || (savedModified != attrs.lastModifiedTime().toMillis()))
+            {
+                logger.info("source has changed since checkpoint " + checkpoint);
+                return 0L;
+            }
+            if ((copied < 0L) || (copied > savedSize) || (copied > Files.size(partial))) {
+                logger.info("checkpoint " + checkpoint + " does not match partial copy");
+                return 0L;
+            }
+            return copied;
+        } catch (IOException ioe) {
+            logger.log(Level.INFO, "unable to read checkpoint " + checkpoint, ioe);
+            return 0L;
+        }
+    }
+
+    /**
+     * Cleans up after a copy that did not finish.  If the partial copy can be
+     * resumed, it is kept; otherwise, it is deleted, along with its checkpoint.
+     *
+     * @param source
+     *    the file that was being copied
+     * @param dest
+     *    the destination of the copy
+     * @return true if there is a partial copy that a later copy can continue
+     */
+    public static boolean cleanUpPartial(final Path source, final Path dest) {
+        final Path partial = partialPath(dest);
+        final Path checkpoint = checkpointPath(dest);
+        try {
+            if (Files.exists(partial) && Files.exists(source)) {
+                BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+                if (readCheckpoint(checkpoint, partial, source, attrs) > 0L) {
+                    return true;
+                }
+            }
+            Files.deleteIfExists(partial);
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to clean up partial copy " + partial, ioe);
+        }
+        return false;
+    }
+
+    private static long checksumOf(final Path file, final long start, final long end)
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (!FileUtilities.checksum(in, start, end, crc)) {
+                return -1L;
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Finds out whether two files have the same contents in the given range.
+     *
+     * @param file1
+     *    one file
+     * @param file2
+     *    the other file
+     * @param start
+     *    the position at which to start comparing
+     * @param end
+     *    the position at which to stop
+     * @return true if the checksums of the two ranges are the same
+     */
+    static boolean sameContents(final Path file1, final Path file2,
+                                final long start, final long end)
+    {
+        try {
+            return new SegmentCheck(file1, file2, start, end, null, new LongAdder()).call();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "unable to compare " + file1 + " and " + file2, ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the checks of all the segments of a copy.
+     *
+     * @param checks
+     *    the checks
+     * @return true if every segment matched
+     */
+    private static boolean allMatch(final List<Future<Boolean>> checks) {
+        boolean ok = true;
+        for (Future<Boolean> check : checks) {
+            try {
+                ok = ok && check.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                ok = false;
+            } catch (ExecutionException ee) {
+                logger.log(Level.WARNING, "unable to verify copy", ee.getCause());
+                ok = false;
+            }
+            if (!ok) {
+                check.cancel(true);
+            }
+        }
+        return ok;
+    }
+
+    private static void cancelAll(final List<Future<Boolean>> checks) {
+        for (Future<Boolean> check : checks) {
+            check.cancel(true);
+        }
+    }
+
+    private static void moveIntoPlace(final Path partial, final Path dest) throws IOException {
+        try {
+            Files.move(partial, dest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(partial, dest);
+        }
+    }
+
+    /**
+     * Copies the source file to the destination, providing progress updates, and
+     * continuing an earlier attempt if possible.  The copy is not verified.
+     *
+     * @param source
+     *            The source file to copy.
+     * @param dest
+     *            The destination to copy the file to.  It should not exist.
+     * @param observer
+     *            The observer to notify, if any.  May be null.
+     * @return true on success, false otherwise.
+     */
+    public static boolean copy(final Path source, final Path dest, final MoveObserver observer) {
+        return copy(source, dest, observer, false);
+    }
+
+    /**
+     * Copies the source file to the destination, providing progress updates, and
+     * continuing an earlier attempt if possible.
+     *
+     * <p>If the copy fails, the partial file and its checkpoint are left in place,
+     * so that the next attempt can continue it.  If it succeeds, they are gone, and
+     * the destination exists.  If it's verified, and doesn't match the source, they
+     * are gone, too, so the next attempt starts over.
+     *
+     * @param source
+     *            The source file to copy.
+     * @param dest
+     *            The destination to copy the file to.  It should not exist.
+     * @param observer
+     *            The observer to notify, if any.  May be null.
+     * @param verify
+     *            whether to check that the copy matches the source
+     * @return true on success, false otherwise.
+     */
+    public static boolean copy(final Path source, final Path dest, final MoveObserver observer,
+                               final boolean verify)
+    {
+        final Path partial = partialPath(dest);
+        final Path checkpoint = checkpointPath(dest);
+        final List<Future<Boolean>> checks = new ArrayList<>();
+        final LongAdder verifyNanos = new LongAdder();
+        boolean ok = false;
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+            long copied = readCheckpoint(checkpoint, partial, source, attrs);
+            if (observer != null) {
+                // Where we're starting from; see MoveObserver
+                observer.setProgressValue(copied);
+            }
+            if (copied > 0L) {
+                logger.info("resuming copy of " + source + " after "
+                            + StringUtils.formatFileSize(copied));
+                if (verify) {
+                    for (long start = 0L; start < copied; start += CHECKPOINT_INTERVAL) {
+                        long end = Math.min(start + CHECKPOINT_INTERVAL, copied);
+                        checks.add(VERIFIER.submit(new SegmentCheck(source, partial, start, end,
+                                                                    null, verifyNanos)));
+                    }
+                }
+            }
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE))
+            {
+                final long size = attrs.size();
+                // Throw away anything past the checkpoint; it may not be intact
+                out.truncate(copied);
+                ok = true;
+                while (ok && (copied < size)) {
+                    long end = Math.min(copied + CHECKPOINT_INTERVAL, size);
+                    CRC32 crc = null;
+                    if (verify) {
+                        crc = new CRC32();
+                        ok = FileUtilities.copyWithChecksum(in, out, copied, end, crc, observer);
+                    } else {
+                        ok = FileUtilities.transferWithUpdates(in, out, copied, end, observer);
+                    }
+                    if (ok) {
+                        out.force(false);
+                        if (verify) {
+                            checks.add(VERIFIER.submit(new SegmentCheck(source, partial, copied,
+                                                                        end, crc.getValue(),
+                                                                        verifyNanos)));
+                        }
+                        copied = end;
+                        writeCheckpoint(checkpoint, source, attrs, copied);
+                    }
+                }
+            }
+            if (ok && verify) {
+                if (observer != null) {
+                    observer.setProgressStatus(VERIFYING_COPY_STATUS);
+                }
+                final long waitStart = System.nanoTime();
+                ok = allMatch(checks);
+                final long waited = System.nanoTime() - waitStart;
+                if (ok) {
+                    logger.info("verified copy of " + source + " ("
+                                + StringUtils.formatFileSize(attrs.size()) + "): read back in "
+                                + TimeUnit.NANOSECONDS.toMillis(verifyNanos.sum()) + " ms, "
+                                + "waited " + TimeUnit.NANOSECONDS.toMillis(waited) + " ms");
+                } else if (!Thread.currentThread().isInterrupted()) {
+                    logger.warning("copy of " + source + " does not match the original; "
+                                   + "discarding it");
+                    Files.deleteIfExists(partial);
+                    Files.deleteIfExists(checkpoint);
+                    return false;
+                }
+            }
+            if (ok && Files.exists(dest)) {
+                // Something else was put there while we were copying
+                logger.warning("will not overwrite existing file: " + dest);
+                ok = false;
+            }
+            if (ok) {
+                moveIntoPlace(partial, dest);
+                Files.deleteIfExists(checkpoint);
+            }
+        } catch (ClosedByInterruptException cbie) {
+            ok = false;
+            logger.info("copy of " + source + " was interrupted");
+        } catch (IOException ioe) {
+            ok = false;
+            String errMsg = "Error copying file " + source;
+            if (ioe.getMessage() != null) {
+                errMsg += ": " + ioe.getMessage();
+            }
+            logger.log(Level.WARNING, errMsg, ioe);
+        }
+
+        if (!ok) {
+            cancelAll(checks);
+            logger.warning("failed to copy " + source + "; partial copy kept at " + partial);
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,126 @@
+package org.tvrenamer.controller.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * A pool of canonical String instances.
+ *
+ * The listings we get from the provider are full of repeated values: air dates
+ * shared by every episode of a double-length premiere, titles like "Pilot" or
+ * "TBA", and so on.  Each value parsed out of the XML is a brand new String, and
+ * the ones we keep stay alive for as long as the listings do.  By passing each
+ * kept value through {@link #dedupe}, all equal values share a single instance.
+ * Values that are only parsed and then dropped, like season and episode numbers,
+ * aren't worth pooling, and would only inflate the savings reported.
+ *
+ * Unlike {@link String#intern}, the pool only holds its strings weakly, so once
+ * nothing else refers to a value (for example, after a series's listings have been
+ * evicted), it can be garbage collected.
+ */
+public final class StringPool {
+    private static final Logger logger = Logger.getLogger(StringPool.class.getName());
+
+    // Approximate overhead of a String: the object itself plus the header of its
+    // char array, assuming compressed references.
+    private static final int STRING_OVERHEAD_BYTES = 24 + 16;
+
+    private static final Map<String, WeakReference<String>> POOL = new WeakHashMap<>();
+
+    private static long lookups = 0;
+    private static long hits = 0;
+    private static long bytesSaved = 0;
+
+    private StringPool() {
+        // utility class; prevent instantiation
+    }
+
+    /**
+     * Return the canonical instance of the given String.  If an equal String is
+     * already in the pool, that instance is returned; otherwise, the given String
+     * is added to the pool and returned.
+     *
+     * @param str
+     *    the String to deduplicate; may be null
+     * @return a String equal to the given one, or null if the given one is null
+     */
+    public static String dedupe(final String str) {
+        if (str == null) {
+            return null;
+        }
+        synchronized (POOL) {
+            lookups++;
+            WeakReference<String> ref = POOL.get(str);
+            if (ref != null) {
+                String pooled = ref.get();
+                if (pooled != null) {
+                    if (pooled != str) {
+                        hits++;
+                        bytesSaved += sizeOf(str);
+                    }
+                    return pooled;
+                }
+            }
+            POOL.put(str, new WeakReference<>(str));
+            return str;
+        }
+    }
+
+    /**
+     * Estimate the heap used by the given String.
+     *
+     * @param str
+     *    the String to measure
+     * @return the approximate number of bytes used by the String
+     */
+    static long sizeOf(final String str) {
+        return STRING_OVERHEAD_BYTES + (2L * str.length());
+    }
+
+    /**
+     * Get the approximate number of bytes saved so far, by returning an already
+     * pooled instance rather than keeping a duplicate.
+     *
+     * @return the approximate number of bytes saved
+     */
+    public static long getBytesSaved() {
+        synchronized (POOL) {
+            return bytesSaved;
+        }
+    }
+
+    /**
+     * Get the number of times a duplicate was replaced by the pooled instance.
+     *
+     * @return the number of duplicates replaced
+     */
+    public static long getHits() {
+        synchronized (POOL) {
+            return hits;
+        }
+    }
+
+    /**
+     * Get the number of distinct Strings currently in the pool.
+     *
+     * @return the number of pooled Strings
+     */
+    public static int size() {
+        synchronized (POOL) {
+            return POOL.size();
+        }
+    }
+
+    /**
+     * Log a summary of how effective the pool has been.
+     */
+    public static void logStatistics() {
+        synchronized (POOL) {
+            logger.info("string pool: " + POOL.size() + " strings, "
+                        + hits + " of " + lookups + " lookups were duplicates, saving about "
+                        + StringUtils.formatFileSize(bytesSaved));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.tvrenamer.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A registry of objects, indexed by key, which keeps track of how recently each
+ * entry was used, and which can be trimmed back to a maximum number of entries.
+ *
+ * The program may be left running for days, with new files being added all the
+ * time.  The static registries of show names and query strings would otherwise
+ * grow without limit.  This class lets those registries drop their least
+ * recently used entries, but only those that the owner says are safe to drop;
+ * for example, we must never drop a query string that is still waiting for the
+ * provider to answer.
+ *
+ * All methods are synchronized; the registry is meant to be used from multiple
+ * threads, just like the ConcurrentHashMaps it replaces.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the registered objects
+ */
+final class BoundedRegistry<K, V> {
+    private final Map<K, V> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final int maxEntries;
+    private final Predicate<V> evictable;
+
+    /**
+     * Create a registry.
+     *
+     * @param maxEntries
+     *    the number of entries above which the registry tries to evict entries
+     * @param evictable
+     *    a test of whether a given entry may be evicted
+     */
+    BoundedRegistry(final int maxEntries, final Predicate<V> evictable) {
+        this.maxEntries = maxEntries;
+        this.evictable = evictable;
+    }
+
+    /**
+     * Look up the entry for the given key, and mark it as recently used.
+     *
+     * @param key
+     *    the key to look up
+     * @return the registered object, or null if there is none
+     */
+    synchronized V get(final K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Look up the entry for the given key, creating and registering one if none
+     * exists.  Registering a new entry may cause older entries to be evicted.
+     *
+     * @param key
+     *    the key to look up
+     * @param creator
+     *    the function to create a new entry for the key
+     * @return the registered object for the key
+     */
+    synchronized V computeIfAbsent(final K key, final Function<K, V> creator) {
+        V value = entries.get(key);
+        if (value == null) {
+            value = creator.apply(key);
+            entries.put(key, value);
+            trim();
+        }
+        return value;
+    }
+
+    /**
+     * @return the number of entries currently registered
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evict the least recently used evictable entries, until the registry is no
+     * larger than its maximum size, or there are no more evictable entries.
+     *
+     * @return the number of entries that were evicted
+     */
+    synchronized int trim() {
+        int evicted = 0;
+        Iterator<V> eldestFirst = entries.values().iterator();
+        while ((entries.size() > maxEntries) && eldestFirst.hasNext()) {
+            if (evictable.test(eldestFirst.next())) {
+                eldestFirst.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
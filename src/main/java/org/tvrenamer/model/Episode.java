@@ -36,40 +36,82 @@ public class Episode {
      *   the EpisodeInfo to use to create this Episode
      */
     public Episode(EpisodeInfo info) {
-        title = info.episodeName;
-        episodeId = info.episodeId;
+        this(info.episodeId, info.episodeName, info.firstAired,
+             airPlacementOf(info), dvdPlacementOf(info));
+    }
 
-        airDateString = info.firstAired;
+    /**
+     * Constructs an Episode from values that have already been extracted from
+     * an EpisodeInfo.  Used by {@link EpisodeListings}, which keeps the raw
+     * listings and only creates an Episode when one is actually asked for.
+     *
+     * @param episodeId
+     *   the provider's ID for this episode
+     * @param title
+     *   the title of this episode
+     * @param airDateString
+     *   the unparsed air date, as given by the provider; may be null
+     * @param airPlacement
+     *   where this episode falls in the over-the-air ordering; may be null
+     * @param dvdPlacement
+     *   where this episode falls in the DVD ordering; may be null
+     */
+    Episode(String episodeId, String title, String airDateString,
+            EpisodePlacement airPlacement, EpisodePlacement dvdPlacement) {
+        this.episodeId = episodeId;
+        this.title = title;
+        this.airDateString = airDateString;
+        this.airPlacement = airPlacement;
+        this.dvdPlacement = dvdPlacement;
+    }
 
+    /**
+     * Determine the over-the-air placement described by the given EpisodeInfo.
+     *
+     * @param info
+     *   the EpisodeInfo to examine
+     * @return the placement, or null if the info does not have integer values
+     *   for both the season and the episode number
+     */
+    static EpisodePlacement airPlacementOf(EpisodeInfo info) {
         // stringToInt handles null or empty values ok
         final Integer airSeasonNumber = StringUtils.stringToInt(info.seasonNumber);
         final Integer airEpisodeNumber = StringUtils.stringToInt(info.episodeNumber);
-        final Integer dvdSeasonNumber = StringUtils.stringToInt(info.dvdSeason);
-        final Integer dvdEpisodeNumber = StringUtils.stringToInt(info.dvdEpisodeNumber);
 
         if (airSeasonNumber == null) {
-            logger.warning("episode \"" + title + "\" does not have an integer season ("
+            logger.warning("episode \"" + info.episodeName + "\" does not have an integer season ("
                            + info.seasonNumber + ")");
-            airPlacement = null;
+            return null;
         } else if (airEpisodeNumber == null) {
-            logger.info("episode \"" + title + "\" does not have an integer episode number ("
+            logger.info("episode \"" + info.episodeName + "\" does not have an integer episode number ("
                         + info.episodeNumber + ")");
-            airPlacement = null;
-        } else {
-            airPlacement = new EpisodePlacement(airSeasonNumber, airEpisodeNumber);
+            return null;
         }
+        return new EpisodePlacement(airSeasonNumber, airEpisodeNumber);
+    }
+
+    /**
+     * Determine the DVD placement described by the given EpisodeInfo.
+     *
+     * @param info
+     *   the EpisodeInfo to examine
+     * @return the placement, or null if the info does not have integer values
+     *   for both the DVD season and the DVD episode number
+     */
+    static EpisodePlacement dvdPlacementOf(EpisodeInfo info) {
+        final Integer dvdSeasonNumber = StringUtils.stringToInt(info.dvdSeason);
+        final Integer dvdEpisodeNumber = StringUtils.stringToInt(info.dvdEpisodeNumber);
 
         if (dvdSeasonNumber == null) {
-            logger.finer("episode \"" + title + "\" does not have an integer DVD season ("
+            logger.finer("episode \"" + info.episodeName + "\" does not have an integer DVD season ("
                          + info.dvdSeason + ")");
-            dvdPlacement = null;
+            return null;
         } else if (dvdEpisodeNumber == null) {
-            logger.fine("episode \"" + title + "\" does not have an integer DVD episode number ("
+            logger.fine("episode \"" + info.episodeName + "\" does not have an integer DVD episode number ("
                         + info.dvdEpisodeNumber + ")");
-            dvdPlacement = null;
-        } else {
-            dvdPlacement = new EpisodePlacement(dvdSeasonNumber, dvdEpisodeNumber);
+            return null;
         }
+        return new EpisodePlacement(dvdSeasonNumber, dvdEpisodeNumber);
     }
 
     public String getTitle() {
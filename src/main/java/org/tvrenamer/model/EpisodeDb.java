@@ -2,19 +2,25 @@ package org.tvrenamer.model;
 
 import org.tvrenamer.controller.AddEpisodeListener;
 import org.tvrenamer.controller.util.FileUtilities;
+import org.tvrenamer.controller.util.KeywordMatcher;
+import org.tvrenamer.controller.util.ParallelFileWalker;
+import org.tvrenamer.model.util.Constants;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public class EpisodeDb implements Observer {
@@ -22,25 +28,60 @@ public class EpisodeDb implements Observer {
     private static final Logger logger = Logger.getLogger(EpisodeDb.class.getName());
     private static final UserPreferences prefs = UserPreferences.getInstance();
 
+    // While adding files, we publish what we have so far whenever we've found this
+    // many new files, or whenever this much time has passed since the last publish,
+    // whichever comes first.
+    static final int PUBLISH_BATCH_SIZE = 100;
+    private static final long PUBLISH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
     private final Map<String, FileEpisode> episodes = new ConcurrentHashMap<>(1000);
-    private List<String> ignoreKeywords = prefs.getIgnoreKeywords();
+    // The ignore keywords, compiled so that a filename can be checked against all of
+    // them at once.  Rebuilt only when the preference changes.
+    private volatile KeywordMatcher ignoreMatcher = new KeywordMatcher(prefs.getIgnoreKeywords());
+
+    // What we knew about the files in the preload folder, from the last time we
+    // scanned it; see ScanIndex.  Null until the preload is complete.
+    private volatile ScanIndex preloadIndex = null;
+    private volatile Path preloadIndexFile = null;
+
+    // Watches the preload folder for new files, if the user has asked us to.
+    private FolderWatcher watcher = null;
 
     public EpisodeDb() {
         prefs.addObserver(this);
+        Series.registerEpisodeDb(this);
     }
 
+    /**
+     * Find the reason, if any, to ignore the given file.
+     *
+     * @param fileName
+     *    the path of the file
+     * @return the first of the ignore keywords (in the order the user gave them)
+     *    that the path contains, or null if it contains none of them
+     */
     private String ignorableReason(String fileName) {
-        for (String ignoreKeyword : ignoreKeywords) {
-            if (fileName.contains(ignoreKeyword)) {
-                return ignoreKeyword;
-            }
-        }
-        return null;
+        return ignoreMatcher.firstMatch(fileName);
     }
 
-    private FileEpisode add(final String pathname) {
+    private FileEpisode add(final String pathname, final BasicFileAttributes attrs,
+                            final ScanIndex index)
+    {
         Path path = Paths.get(pathname);
-        final FileEpisode episode = new FileEpisode(path);
+        final FileEpisode episode;
+        ScanIndex.Entry saved = null;
+        if ((index != null) && (attrs != null)) {
+            saved = index.reuse(pathname, attrs);
+        }
+        if (saved == null) {
+            episode = new FileEpisode(path, attrs);
+            if ((index != null) && (attrs != null)) {
+                index.record(pathname, attrs, episode);
+            }
+        } else {
+            episode = new FileEpisode(path, attrs, false);
+            saved.restoreTo(episode);
+        }
         episode.setIgnoreReason(ignorableReason(pathname));
         if (!episode.wasParsed()) {
             // We're putting the episode in the table anyway, but it's
@@ -72,6 +113,23 @@ public class EpisodeDb implements Observer {
         return episodes.get(key);
     }
 
+    /**
+     * Add to the given set every Show that is referenced by a FileEpisode in
+     * this database.  Used to make sure we never evict the listings of a show
+     * that the user is still working with.
+     *
+     * @param shows
+     *    the set to add the referenced shows to
+     */
+    void collectReferencedShows(final Set<Show> shows) {
+        for (FileEpisode episode : episodes.values()) {
+            Show show = episode.getActualShow();
+            if (show != null) {
+                shows.add(show);
+            }
+        }
+    }
+
     private boolean fileIsVisible(Path path) {
         boolean isVisible = false;
         try {
@@ -148,56 +206,102 @@ public class EpisodeDb implements Observer {
         }
     }
 
-    private void addFileToQueue(final Queue<FileEpisode> contents,
-                                final Path path)
+    /**
+     * Collects the FileEpisodes created while adding a folder or array of files, and
+     * publishes them in batches as they come in, rather than all at once at the end.
+     * That way, the listeners can start looking up the shows of the first files while
+     * we're still finding the rest.
+     *
+     * Files may be added from several threads at once.
+     */
+    private class BatchPublisher {
+        private final Queue<FileEpisode> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger(0);
+        private volatile long lastPublished = System.nanoTime();
+
+        void add(final FileEpisode episode) {
+            pending.add(episode);
+            if ((pendingCount.incrementAndGet() >= PUBLISH_BATCH_SIZE)
+                || ((System.nanoTime() - lastPublished) >= PUBLISH_INTERVAL_NANOS))
+            {
+                flush();
+            }
+        }
+
+        /**
+         * Publish everything that has been added, and not yet published.
+         * Must be called once all the files have been added.
+         */
+        synchronized void flush() {
+            lastPublished = System.nanoTime();
+            while (!pending.isEmpty()) {
+                Queue<FileEpisode> batch = new ConcurrentLinkedQueue<>();
+                int batchSize = 0;
+                FileEpisode episode;
+                while ((batchSize < PUBLISH_BATCH_SIZE) && ((episode = pending.poll()) != null)) {
+                    batch.add(episode);
+                    batchSize++;
+                }
+                pendingCount.addAndGet(-batchSize);
+                publish(batch);
+            }
+        }
+    }
+
+    private void addFileToQueue(final BatchPublisher contents,
+                                final Path path,
+                                final BasicFileAttributes attrs,
+                                final ScanIndex index)
     {
         final Path absPath = path.toAbsolutePath();
         final String key = absPath.toString();
         if (episodes.containsKey(key)) {
             logger.info("already in table: " + key);
         } else {
-            FileEpisode ep = add(key);
+            FileEpisode ep = add(key, attrs, index);
             contents.add(ep);
         }
     }
 
-    private void addFileIfVisible(final Queue<FileEpisode> contents,
+    private void addFileIfVisible(final BatchPublisher contents,
                                   final Path path)
     {
         if (fileIsVisible(path) && Files.isRegularFile(path)) {
-            addFileToQueue(contents, path);
+            addFileToQueue(contents, path, null, null);
         }
     }
 
-    private void addFilesRecursively(final Queue<FileEpisode> contents,
-                                     final Path parent,
-                                     final Path filename)
+    /**
+     * Add every visible file under the given path to the queue.  The walk is done by
+     * {@link ParallelFileWalker}, which lists directories in parallel and reads the
+     * attributes of each entry only once; those attributes are passed along to the
+     * FileEpisode, so it doesn't need to check the file again.
+     *
+     * @param contents
+     *    the publisher to add the new FileEpisodes to
+     * @param path
+     *    the folder (or file) to add
+     * @param index
+     *    the index of what we knew about the files the last time we scanned this
+     *    folder, or null to parse every file
+     * @param prefilter
+     *    decides which of the files found in the folder are worth adding; if the
+     *    path is itself a file, it is added regardless
+     */
+    private void addFilesRecursively(final BatchPublisher contents,
+                                     final Path path,
+                                     final ScanIndex index,
+                                     final FilePrefilter prefilter)
     {
-        if (parent == null) {
-            logger.warning("cannot add files; parent is null");
-            return;
-        }
-        if (filename == null) {
-            logger.warning("cannot add files; filename is null");
+        if (path == null) {
+            logger.warning("cannot add files; path is null");
             return;
         }
-        final Path fullpath = parent.resolve(filename);
-        if (fileIsVisible(fullpath)) {
-            if (Files.isDirectory(fullpath)) {
-                try (DirectoryStream<Path> files = Files.newDirectoryStream(fullpath)) {
-                    if (files != null) {
-                        // recursive call
-                        files.forEach(pth -> addFilesRecursively(contents,
-                                                                 fullpath,
-                                                                 pth.getFileName()));
-                    }
-                } catch (IOException ioe) {
-                    logger.warning("IO Exception descending " + fullpath);
+        ParallelFileWalker.walk(path, (file, attrs) -> {
+                if ((file == path) || prefilter.accept(file, attrs)) {
+                    addFileToQueue(contents, file, attrs, index);
                 }
-            } else {
-                addFileToQueue(contents, fullpath);
-            }
-        }
+            });
     }
 
     /**
@@ -206,9 +310,18 @@ public class EpisodeDb implements Observer {
      * checking, and if everything's in order, calls addFilesRecursively()
      * to do the actual work.
      *
+     * The new files are published to the listeners in batches while the folder
+     * is being walked, possibly from several threads; this method does not return
+     * until the last batch has been published.  It may take a long time on a large
+     * folder, and so should not be called from the UI thread.
+     *
      * @param pathname the name of a folder
      */
     public void addFolderToQueue(final String pathname) {
+        addFolderToQueue(pathname, null);
+    }
+
+    private void addFolderToQueue(final String pathname, final ScanIndex index) {
         if (!prefs.isRecursivelyAddFolders()) {
             logger.warning("cannot add folder when preference \"add files recursively\" is off");
             return;
@@ -219,10 +332,11 @@ public class EpisodeDb implements Observer {
             return;
         }
 
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
-        final Path path = Paths.get(pathname);
-        addFilesRecursively(contents, path.getParent(), path.getFileName());
-        publish(contents);
+        BatchPublisher contents = new BatchPublisher();
+        FilePrefilter prefilter = FilePrefilter.fromPreferences(prefs);
+        addFilesRecursively(contents, Paths.get(pathname), index, prefilter);
+        contents.flush();
+        prefilter.logStatistics(pathname);
     }
 
     /**
@@ -234,7 +348,7 @@ public class EpisodeDb implements Observer {
      * @param fileNames an array of Strings presumed to represent filenames
      */
     public void addFilesToQueue(final String pathPrefix, String[] fileNames) {
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
+        BatchPublisher contents = new BatchPublisher();
         if (pathPrefix != null) {
             Path path = Paths.get(pathPrefix);
             Path parent = path.getParent();
@@ -243,7 +357,7 @@ public class EpisodeDb implements Observer {
                 path = parent.resolve(fileName);
                 addFileIfVisible(contents, path);
             }
-            publish(contents);
+            contents.flush();
         }
     }
 
@@ -254,31 +368,157 @@ public class EpisodeDb implements Observer {
      * @param fileNames an array of Strings presumed to represent filenames
      */
     public void addArrayOfStringsToQueue(final String[] fileNames) {
-        Queue<FileEpisode> contents = new ConcurrentLinkedQueue<>();
+        BatchPublisher contents = new BatchPublisher();
+        FilePrefilter prefilter = FilePrefilter.fromPreferences(prefs);
         boolean descend = prefs.isRecursivelyAddFolders();
         for (final String fileName : fileNames) {
             final Path path = Paths.get(fileName);
             if (descend) {
-                addFilesRecursively(contents, path.getParent(), path.getFileName());
+                addFilesRecursively(contents, path, null, prefilter);
             } else {
                 addFileIfVisible(contents, path);
             }
         }
-        publish(contents);
+        contents.flush();
+        prefilter.logStatistics("dropped files");
     }
 
     /**
-     * Add the contents of the preload folder to the queue.
+     * Add the contents of the preload folder to the queue.  Like
+     * {@link #addFolderToQueue}, this should not be called from the UI thread.
+     *
+     * Files that haven't changed since the last time we scanned the preload folder
+     * don't have their names parsed again; see {@link ScanIndex}.
      *
      */
     public void preload() {
         if (prefs.isRecursivelyAddFolders()) {
             String preload = prefs.getPreloadFolder();
             if (preload != null) {
-                // TODO: do in separate thread
-                addFolderToQueue(preload);
+                preloadFolder(preload, Constants.SCAN_INDEX_FILE);
+                if (prefs.isWatchPreloadFolder()) {
+                    startWatching(Paths.get(preload), FolderWatcher.DEFAULT_SETTLE_MILLIS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the contents of the given folder to the queue, using and then updating
+     * the scan index kept in the given file.
+     *
+     * @param folder
+     *    the folder to add
+     * @param indexFile
+     *    the file where the scan index for the folder is kept
+     */
+    void preloadFolder(final String folder, final Path indexFile) {
+        ScanIndex index = ScanIndex.load(indexFile);
+        addFolderToQueue(folder, index);
+        index.scanComplete();
+        preloadIndexFile = indexFile;
+        preloadIndex = index;
+        savePreloadIndex();
+    }
+
+    /**
+     * Start watching the given folder, and add each new file that appears in it
+     * to the queue, once it has finished being written.
+     *
+     * @param folder
+     *    the folder to watch
+     * @param settleMillis
+     *    how long a new file must go unchanged before we add it
+     * @return true if we are now watching the folder
+     */
+    synchronized boolean startWatching(final Path folder, final long settleMillis) {
+        stopWatching();
+        watcher = new FolderWatcher(folder, settleMillis,
+                                    this::addWatchedFile, () -> rescanFolder(folder));
+        return watcher.start();
+    }
+
+    /**
+     * Stop watching the preload folder for new files, if we were.
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Find out whether the given file is already in the table, whether under its
+     * own name, or because one of our files has been renamed to it.
+     *
+     * @param key
+     *    the absolute path of the file
+     * @return true if the file is already in the table
+     */
+    private boolean isKnownFile(final String key) {
+        if (episodes.containsKey(key)) {
+            return true;
+        }
+        for (FileEpisode episode : episodes.values()) {
+            if (key.equals(episode.getFilepath())) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private void addWatchedFile(final Path file, final BasicFileAttributes attrs) {
+        final String key = file.toAbsolutePath().toString();
+        if (isKnownFile(key) || !FilePrefilter.fromPreferences(prefs).accept(file, attrs)) {
+            return;
+        }
+        logger.fine("new file in watched folder: " + key);
+        BatchPublisher contents = new BatchPublisher();
+        addFileToQueue(contents, file, attrs, preloadIndex);
+        contents.flush();
+    }
+
+    /**
+     * Add every file in the given folder that is not already in the table.  Used when
+     * the watcher may have missed some new files.
+     *
+     * @param folder
+     *    the folder to rescan
+     */
+    private void rescanFolder(final Path folder) {
+        final Set<String> known = new HashSet<>(episodes.keySet());
+        for (FileEpisode episode : episodes.values()) {
+            known.add(episode.getFilepath());
+        }
+        final ScanIndex index = preloadIndex;
+        final FilePrefilter prefilter = FilePrefilter.fromPreferences(prefs);
+        BatchPublisher contents = new BatchPublisher();
+        ParallelFileWalker.walk(folder, (file, attrs) -> {
+                if (!known.contains(file.toAbsolutePath().toString())
+                    && prefilter.accept(file, attrs))
+                {
+                    addFileToQueue(contents, file, attrs, index);
+                }
+            });
+        contents.flush();
+        prefilter.logStatistics(folder.toString());
+    }
+
+    /**
+     * Save the index of the files in the preload folder.  This is done when the
+     * preload is complete, and should be done again before exiting, to include any
+     * files found since by watching the folder.  Does nothing if the preload isn't
+     * done.
+     *
+     * @return true if the index was saved
+     */
+    public boolean savePreloadIndex() {
+        ScanIndex index = preloadIndex;
+        if (index == null) {
+            return false;
+        }
+        return index.save(preloadIndexFile);
     }
 
     @Override
@@ -287,10 +527,9 @@ public class EpisodeDb implements Observer {
             UserPreference userPref = (UserPreference) value;
             if ((userPref == UserPreference.IGNORE_REGEX) && (observable instanceof UserPreferences)) {
                 UserPreferences observed = (UserPreferences) observable;
-                ignoreKeywords = observed.getIgnoreKeywords();
-                for (FileEpisode ep : episodes.values()) {
-                    ep.setIgnoreReason(ignorableReason(ep.getFilepath()));
-                }
+                ignoreMatcher = new KeywordMatcher(observed.getIgnoreKeywords());
+                episodes.values().parallelStream()
+                    .forEach(ep -> ep.setIgnoreReason(ignorableReason(ep.getFilepath())));
                 listeners.forEach(AddEpisodeListener::refreshDestinations);
             }
         }
@@ -312,16 +551,17 @@ public class EpisodeDb implements Observer {
      * Register interest in files and folders that are added to the queue.
      *
      * @param listener
-     *    the AddEpisodeListener that should be called when we have finished processing
-     *    a folder or array of files
+     *    the AddEpisodeListener that should be called each time we have processed
+     *    a batch of files
      */
     public void subscribe(AddEpisodeListener listener) {
         listeners.add(listener);
     }
 
     /**
-     * Notify registered interested parties that we've finished adding a folder or
-     * array of files to the queue, and pass the queue to each listener.
+     * Notify registered interested parties that we've added a batch of files to the
+     * queue, and pass the batch to each listener.  A large folder is published in
+     * several batches; listeners may be called from any thread.
      *
      * @param episodes
      *    the queue of FileEpisode objects we've created since the last time we
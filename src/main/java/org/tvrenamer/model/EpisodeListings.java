@@ -0,0 +1,257 @@
+package org.tvrenamer.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The raw listings of a Show, stored column by column.
+ *
+ * When we download the listings for a series, we get information about every
+ * episode the series has ever had, which may be hundreds of episodes.  But the
+ * user typically has only a handful of those episodes that they want to rename.
+ * Creating a full {@link Episode} object (plus its two {@link EpisodePlacement}
+ * objects) for every one of them is wasteful.
+ *
+ * Instead, this class keeps the fields we need from each {@link EpisodeInfo} in
+ * parallel arrays, indexed by a "slot" number.  The season index of the Show is
+ * built directly from the integer columns, and an Episode is only created when
+ * someone actually asks for the episode in a particular slot.  Once created, the
+ * Episode is kept, so that callers always get the same object for the same slot.
+ */
+final class EpisodeListings {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Marks an unknown season or episode number in the integer columns.
+    // Show.NO_SEASON can't be used, since -1 could conceivably come from the provider.
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    // Open-addressed index from episode ID to slot, storing (slot + 1) so that zero
+    // means "empty".  Avoids a map entry and a boxed Integer for every episode.
+    private int[] idIndex;
+
+    private int size = 0;
+    private String[] episodeIds;
+    private String[] titles;
+    private String[] airDates;
+    private int[] airSeasons;
+    private int[] airEpisodes;
+    private int[] dvdSeasons;
+    private int[] dvdEpisodes;
+    private Episode[] materialized;
+
+    EpisodeListings() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        episodeIds = new String[capacity];
+        titles = new String[capacity];
+        airDates = new String[capacity];
+        airSeasons = new int[capacity];
+        airEpisodes = new int[capacity];
+        dvdSeasons = new int[capacity];
+        dvdEpisodes = new int[capacity];
+        materialized = new Episode[capacity];
+        idIndex = new int[indexSizeFor(capacity)];
+    }
+
+    private static int indexSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+    }
+
+    private static int hashOf(final String episodeId) {
+        int h = (episodeId == null) ? 0 : episodeId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int findIndexPosition(final String episodeId) {
+        int mask = idIndex.length - 1;
+        int pos = hashOf(episodeId) & mask;
+        while (idIndex[pos] != 0) {
+            int slot = idIndex[pos] - 1;
+            if (Objects.equals(episodeIds[slot], episodeId)) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private void rebuildIndex() {
+        idIndex = new int[indexSizeFor(episodeIds.length)];
+        for (int slot = 0; slot < size; slot++) {
+            idIndex[findIndexPosition(episodeIds[slot])] = slot + 1;
+        }
+    }
+
+    /**
+     * Make sure there is room for at least the given number of additional
+     * episodes without needing to grow the columns again.
+     *
+     * @param additional
+     *    the number of episodes that are about to be added
+     */
+    synchronized void ensureCapacity(int additional) {
+        int needed = size + additional;
+        int capacity = episodeIds.length;
+        if (needed <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(needed, capacity + (capacity >> 1));
+        episodeIds = Arrays.copyOf(episodeIds, newCapacity);
+        titles = Arrays.copyOf(titles, newCapacity);
+        airDates = Arrays.copyOf(airDates, newCapacity);
+        airSeasons = Arrays.copyOf(airSeasons, newCapacity);
+        airEpisodes = Arrays.copyOf(airEpisodes, newCapacity);
+        dvdSeasons = Arrays.copyOf(dvdSeasons, newCapacity);
+        dvdEpisodes = Arrays.copyOf(dvdEpisodes, newCapacity);
+        materialized = Arrays.copyOf(materialized, newCapacity);
+        rebuildIndex();
+    }
+
+    /**
+     * Add the information about one episode to the listings.
+     *
+     * @param info
+     *    information about the episode, downloaded from the provider
+     * @return the slot the episode was stored in, or -1 if the info is null
+     *    or an episode with the same ID is already present
+     */
+    synchronized int add(final EpisodeInfo info) {
+        if ((info == null) || (slotOf(info.episodeId) >= 0)) {
+            return -1;
+        }
+        ensureCapacity(1);
+
+        int slot = size;
+        episodeIds[slot] = info.episodeId;
+        titles[slot] = info.episodeName;
+        airDates[slot] = info.firstAired;
+
+        EpisodePlacement air = Episode.airPlacementOf(info);
+        airSeasons[slot] = (air == null) ? MISSING : air.season;
+        airEpisodes[slot] = (air == null) ? MISSING : air.episode;
+
+        EpisodePlacement dvd = Episode.dvdPlacementOf(info);
+        dvdSeasons[slot] = (dvd == null) ? MISSING : dvd.season;
+        dvdEpisodes[slot] = (dvd == null) ? MISSING : dvd.episode;
+
+        idIndex[findIndexPosition(info.episodeId)] = slot + 1;
+        size++;
+        return slot;
+    }
+
+    /**
+     * @return the number of episodes in the listings
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Look up the slot of the episode with the given ID.
+     *
+     * @param episodeId
+     *    the provider's ID for the episode
+     * @return the slot of the episode, or -1 if there is no such episode
+     */
+    synchronized int slotOf(final String episodeId) {
+        return idIndex[findIndexPosition(episodeId)] - 1;
+    }
+
+    /**
+     * @param slot
+     *    the slot of the episode
+     * @return the title of the episode in the given slot
+     */
+    synchronized String titleAt(final int slot) {
+        return titles[slot];
+    }
+
+    /**
+     * Get the placement of the episode in the given slot, in the given ordering,
+     * without creating the Episode.
+     *
+     * @param slot
+     *    the slot of the episode
+     * @param useDvd
+     *    whether to return the DVD ordering or the over-the-air ordering
+     * @return the requested placement, or null if it is not known
+     */
+    synchronized EpisodePlacement placementAt(final int slot, final boolean useDvd) {
+        int season = useDvd ? dvdSeasons[slot] : airSeasons[slot];
+        int episode = useDvd ? dvdEpisodes[slot] : airEpisodes[slot];
+        if ((season == MISSING) || (episode == MISSING)) {
+            return null;
+        }
+        return new EpisodePlacement(season, episode);
+    }
+
+    /**
+     * Get the Episode in the given slot, creating it if this is the first time
+     * it has been asked for.
+     *
+     * @param slot
+     *    the slot of the episode
+     * @return the Episode in the given slot
+     */
+    synchronized Episode episodeAt(final int slot) {
+        Episode episode = materialized[slot];
+        if (episode == null) {
+            episode = new Episode(episodeIds[slot], titles[slot], airDates[slot],
+                                  placementAt(slot, false), placementAt(slot, true));
+            materialized[slot] = episode;
+        }
+        return episode;
+    }
+
+    /**
+     * Discard all of the listings, and any Episodes created from them.
+     */
+    synchronized void clear() {
+        size = 0;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Estimate the number of bytes of heap used by these listings.  This is only
+     * an approximation, assuming compressed references, and counting each String
+     * as if it were not shared with anything else.
+     *
+     * @return the approximate heap cost of these listings, in bytes
+     */
+    synchronized long estimatedBytes() {
+        final int capacity = episodeIds.length;
+        // eight columns of 4-byte entries, plus the ID index, plus array headers
+        long bytes = (8L * 4 * capacity) + (4L * idIndex.length) + (9 * 16);
+        for (int i = 0; i < size; i++) {
+            bytes += stringBytes(episodeIds[i]) + stringBytes(titles[i]) + stringBytes(airDates[i]);
+            if (materialized[i] != null) {
+                // the Episode itself, and its two placements
+                bytes += 40 + 24 + 24;
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(final String str) {
+        if (str == null) {
+            return 0;
+        }
+        // String object plus its char array
+        return 24 + 16 + (2L * str.length());
+    }
+
+    /**
+     * @return the number of Episode objects that have actually been created
+     */
+    synchronized int materializedCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (materialized[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
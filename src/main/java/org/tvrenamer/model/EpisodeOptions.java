@@ -34,6 +34,8 @@ import java.util.stream.Collectors;
  * It probably SHOULDN'T ever happen, but we're prepared to handle it if it does.
  *
  * We use a class called EpisodeOptions which ties together an episode and an ordering.
+ * The episode is identified by its slot in the Show's {@link EpisodeListings}, so that
+ * building the index does not require creating any Episode objects.
  * The EpisodeNumber objects are indexed into the Season; each index has a list.  So, using the
  * Futurama example, if we just added those two episodes, we'd have:
  *    Season 3:  16: {DVD: A Leela of Her Own}
@@ -45,16 +47,16 @@ class EpisodeOptions {
 
     private static final class EpisodeNumber {
         final boolean isDvd;
-        final Episode episode;
+        final int slot;
 
-        EpisodeNumber(boolean isDvd, Episode episode) {
+        EpisodeNumber(boolean isDvd, int slot) {
             this.isDvd = isDvd;
-            this.episode = episode;
+            this.slot = slot;
         }
 
         @Override
         public String toString() {
-            return (isDvd ? "DVD: " : "air: ") + episode.getTitle();
+            return (isDvd ? "DVD: #" : "air: #") + slot;
         }
     }
 
@@ -64,11 +66,11 @@ class EpisodeOptions {
      *
      * @param isDvd
      *           whether or not the placement is the DVD ordering
-     * @param episode
-     *           the episode to add at the given index
+     * @param slot
+     *           the listings slot of the episode to add at the given index
      */
-    public void addEpisode(boolean isDvd, Episode episode) {
-        episodeList.add(new EpisodeNumber(isDvd, episode));
+    public void addEpisode(boolean isDvd, int slot) {
+        episodeList.add(new EpisodeNumber(isDvd, slot));
     }
 
     /**
@@ -76,9 +78,10 @@ class EpisodeOptions {
      *
      * @param preferDvd
      *           whether the caller prefers the DVD ordering, or over-the-air ordering
-     * @return the Episode that best matches the request criteria, or null if none does
+     * @return the slot of the Episode that best matches the request criteria,
+     *         or null if none does
      */
-    public Episode get(boolean preferDvd) {
+    public Integer get(boolean preferDvd) {
         if (episodeList.size() == 0) {
             return null;
         }
@@ -87,7 +90,7 @@ class EpisodeOptions {
             .filter(ep -> ep.isDvd == preferDvd)
             .findFirst()
             .orElse(episodeList.get(0))
-            .episode;
+            .slot;
     }
 
     /**
@@ -95,9 +98,9 @@ class EpisodeOptions {
      *
      * @param preferDvd
      *           whether the caller prefers the DVD ordering, or over-the-air ordering
-     * @return a list of Episodes that possibly match
+     * @return a list of the slots of Episodes that possibly match
      */
-    public List<Episode> getAll(final boolean preferDvd) {
+    public List<Integer> getAll(final boolean preferDvd) {
         if (episodeList.size() == 0) {
             return null;
         }
@@ -105,7 +108,7 @@ class EpisodeOptions {
         return episodeList.stream()
             .sorted((e1, e2) -> ((e1.isDvd == preferDvd) ? 0 : 1) -
                     ((e2.isDvd == preferDvd) ? 0 : 1))
-            .map(ep -> ep.episode)
+            .map(ep -> ep.slot)
             .distinct()
             .collect(Collectors.toList());
     }
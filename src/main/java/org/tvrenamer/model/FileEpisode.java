@@ -7,7 +7,6 @@
 
 package org.tvrenamer.model;
 
-import static org.tvrenamer.model.ReplacementToken.*;
 import static org.tvrenamer.model.util.Constants.*;
 
 import org.tvrenamer.controller.FilenameParser;
@@ -17,13 +16,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 
 public class FileEpisode {
     private static final Logger logger = Logger.getLogger(FileEpisode.class.getName());
@@ -172,6 +170,37 @@ public class FileEpisode {
      *   the Path of the file this FileEpisode represents
      */
     public FileEpisode(Path p) {
+        this(p, null);
+    }
+
+    /**
+     * Constructor for a FileEpisode whose file attributes have already been read,
+     * such as by a directory walk.  Saves going back to the filesystem to check
+     * that the file exists and to get its size.
+     *
+     * @param p
+     *   the Path of the file this FileEpisode represents
+     * @param attrs
+     *   the attributes of the file; if null, they are read from the filesystem
+     */
+    FileEpisode(Path p, BasicFileAttributes attrs) {
+        this(p, attrs, true);
+    }
+
+    /**
+     * Constructor for a FileEpisode whose attributes have already been read, and
+     * which may not need its filename parsed, because we already know the result
+     * (see {@link ScanIndex}).
+     *
+     * @param p
+     *   the Path of the file this FileEpisode represents
+     * @param attrs
+     *   the attributes of the file; if null, they are read from the filesystem
+     * @param parse
+     *   whether to parse the filename; if false, the caller must fill in the
+     *   information that parsing would have found
+     */
+    FileEpisode(Path p, BasicFileAttributes attrs, boolean parse) {
         if (p == null) {
             logger.severe(FILE_EPISODE_NEEDS_PATH);
             throw new IllegalArgumentException(FILE_EPISODE_NEEDS_PATH);
@@ -185,8 +214,15 @@ public class FileEpisode {
         fileNameString = justNamePath.toString();
         filenameSuffix = StringUtils.getExtension(fileNameString);
         originalBasename = StringUtils.removeLast(fileNameString, filenameSuffix);
-        checkFile(true);
-        FilenameParser.parseFilename(this);
+        if (attrs == null) {
+            checkFile(true);
+        } else {
+            setFileVerified();
+            fileSize = attrs.size();
+        }
+        if (parse) {
+            FilenameParser.parseFilename(this);
+        }
     }
 
     /**
@@ -226,6 +262,17 @@ public class FileEpisode {
         return placement;
     }
 
+    /**
+     * Sets the {@link EpisodePlacement} directly, from information we saved the
+     * last time we parsed this file's name.
+     *
+     * @param placement
+     *   the season and episode that the filename indicates
+     */
+    void setEpisodePlacement(EpisodePlacement placement) {
+        this.placement = placement;
+    }
+
     /**
      * Sets the {@link EpisodePlacement}.<p>
      *
@@ -544,6 +591,22 @@ public class FileEpisode {
         moveHadConflict = false;
     }
 
+    /**
+     * Updates the status to know that we have given the file its place at the
+     * name/location where the user's template specified, by creating a hard link
+     * to it there, and that the original file is still where it was, too.
+     *
+     */
+    public void setLinked() {
+        fileStatus = "LINKED";
+        originalFileInPlace = true;
+        currentPathMatchesTemplate = true;
+        moveInProgress = false;
+        moveHasBeenAttempted = true;
+        moveHadConflict = false;
+        moveHadError = false;
+    }
+
     /**
      * Updates the status to know that we tried to move the file, but were not
      * able to.  This could be for any number of reasons.  But whatever the
@@ -640,6 +703,15 @@ public class FileEpisode {
         }
     }
 
+    /**
+     * Get the Show associated with this FileEpisode, if one has been found.
+     *
+     * @return the Show, or null if none has been set
+     */
+    Show getActualShow() {
+        return actualShow;
+    }
+
     /**
      * Confirm the actualShow of this object to be null, and set the replacement text
      * to inform the user of what appears to have gone wrong.
@@ -773,11 +845,6 @@ public class FileEpisode {
         return dest.toString();
     }
 
-    private static String formatDate(final LocalDate date, final String format) {
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(format);
-        return dateFormat.format(date);
-    }
-
     /**
      * Replace the control strings in the replacement template, with the episode information.
      *
@@ -785,6 +852,9 @@ public class FileEpisode {
      * since it also does not modify any class variables, it is a pure function, and safe to
      * call from any context.
      *
+     * The template is compiled into a {@link RenameTemplate} the first time it is seen, and
+     * the compiled form is re-used until the template changes.
+     *
      * @param replacementTemplate
      *     the template provided by the user via the preferences dialog
      * @param actualShow
@@ -809,23 +879,6 @@ public class FileEpisode {
             logger.fine("truncating episode title to " + episodeTitle);
             episodeTitle = episodeTitle.substring(0, MAX_TITLE_LENGTH);
         }
-        String newFilename = replacementTemplate
-            .replaceAll(SEASON_NUM.getToken(),
-                        String.valueOf(placement.season))
-            .replaceAll(SEASON_NUM_LEADING_ZERO.getToken(),
-                        StringUtils.zeroPadTwoDigits(placement.season))
-            .replaceAll(EPISODE_NUM.getToken(),
-                        StringUtils.formatDigits(placement.episode))
-            .replaceAll(EPISODE_NUM_LEADING_ZERO.getToken(),
-                        StringUtils.zeroPadThreeDigits(placement.episode))
-            .replaceAll(SHOW_NAME.getToken(),
-                        Matcher.quoteReplacement(showName))
-            .replaceAll(EPISODE_TITLE.getToken(),
-                        Matcher.quoteReplacement(episodeTitle))
-            .replaceAll(EPISODE_TITLE_NO_SPACES.getToken(),
-                        Matcher.quoteReplacement(StringUtils.makeDotTitle(episodeTitle)))
-            .replaceAll(EPISODE_RESOLUTION.getToken(),
-                        resolution);
 
         // Date and times
         final LocalDate airDate = actualEpisode.getAirDate();
@@ -834,61 +887,13 @@ public class FileEpisode {
                        + ", " + placement + ", \"" + episodeTitle + "\"");
         }
         // If the airDate is null, we warn (above) but we go ahead and do the substitution anyway;
-        // if the date is null, we need to replace the control strings with the empty string.
-        newFilename = plugInAirDate(airDate, newFilename);
+        // if the date is null, the template replaces the control strings with the empty string.
+        String newFilename = RenameTemplate.compile(replacementTemplate)
+            .render(showName, episodeTitle, placement, resolution, airDate);
 
         return StringUtils.sanitiseTitle(newFilename);
     }
 
-    private static String removeTokens(final String orig, final ReplacementToken... tokens) {
-        String removed = orig;
-
-        for (ReplacementToken token : tokens) {
-            removed = removed.replaceAll(token.getToken(), "");
-        }
-        return removed;
-    }
-
-    /**
-     * Replace the date control strings in the template, with the episode air date information.
-     * May be called with null if the episode in question doesn't have air date information.
-     *
-     * This method is static to make it obvious that it doesn't rely on any instance variables;
-     * since it also does not modify any class variables, it is a pure function, and safe to
-     * call from any context.
-     *
-     * @param airDate
-     *     the date information we obtained from the episode; may be null
-     * @param template
-     *     the replacement template provided by the user via the preferences dialog; may be
-     *     partially filled in already, of course.
-     * @return the template string with the air date information replacing the control strings
-     */
-    @SuppressWarnings("WeakerAccess")
-    static String plugInAirDate(final LocalDate airDate, final String template) {
-        // Date and times
-        if (airDate == null) {
-            return removeTokens(template,
-                                DATE_DAY_NUM, DATE_DAY_NUMLZ,
-                                DATE_MONTH_NUM, DATE_MONTH_NUMLZ,
-                                DATE_YEAR_FULL, DATE_YEAR_MIN);
-        } else {
-            return template
-                .replaceAll(DATE_DAY_NUM.getToken(),
-                            formatDate(airDate, "d"))
-                .replaceAll(DATE_DAY_NUMLZ.getToken(),
-                            formatDate(airDate, "dd"))
-                .replaceAll(DATE_MONTH_NUM.getToken(),
-                            formatDate(airDate, "M"))
-                .replaceAll(DATE_MONTH_NUMLZ.getToken(),
-                            formatDate(airDate, "MM"))
-                .replaceAll(DATE_YEAR_FULL.getToken(),
-                            formatDate(airDate, "yyyy"))
-                .replaceAll(DATE_YEAR_MIN.getToken(),
-                            formatDate(airDate, "yy"));
-        }
-    }
-
     /**
      * Calculates the destination basename for this FileEpisode.<p>
      *
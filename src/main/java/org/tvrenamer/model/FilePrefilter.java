@@ -0,0 +1,184 @@
+package org.tvrenamer.model;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Decides, from a file's name and the attributes read while walking a folder, whether
+ * the file is worth looking at, before we go to the trouble of creating a FileEpisode
+ * and parsing its name.
+ *
+ * A folder of downloads is full of files that are not episodes: .nfo files, artwork,
+ * checksums, tiny sample clips.  Each one would otherwise become a row in the table
+ * that just says it couldn't be parsed.  Files are rejected if their extension is not
+ * in the "allowed" set (when that set is not empty), if it is in the "denied" set, or
+ * if they are smaller than the minimum size.
+ *
+ * A prefilter counts how many files it rejected for each reason.  It may be used by
+ * several threads at once.
+ */
+final class FilePrefilter {
+    private static final Logger logger = Logger.getLogger(FilePrefilter.class.getName());
+
+    enum Rejection {
+        NOT_ALLOWED("extension not allowed"),
+        DENIED("extension denied"),
+        TOO_SMALL("smaller than minimum size");
+
+        final String description;
+
+        Rejection(final String description) {
+            this.description = description;
+        }
+    }
+
+    private final Set<String> allowedExtensions;
+    private final Set<String> deniedExtensions;
+    private final long minimumSize;
+
+    private final LongAdder accepted = new LongAdder();
+    private final Map<Rejection, LongAdder> rejected = new EnumMap<>(Rejection.class);
+
+    /**
+     * Create a prefilter.  Extensions may be given with or without the leading dot,
+     * and are compared without regard to case.
+     *
+     * @param allowedExtensions
+     *    if not empty, only files with these extensions are accepted
+     * @param deniedExtensions
+     *    files with these extensions are rejected
+     * @param minimumSize
+     *    files smaller than this many bytes are rejected
+     */
+    FilePrefilter(final Collection<String> allowedExtensions,
+                  final Collection<String> deniedExtensions,
+                  final long minimumSize)
+    {
+        this.allowedExtensions = normalize(allowedExtensions);
+        this.deniedExtensions = normalize(deniedExtensions);
+        this.minimumSize = minimumSize;
+        for (Rejection reason : Rejection.values()) {
+            rejected.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Create a prefilter from the user's preferences.
+     *
+     * @param prefs
+     *    the preferences to use
+     * @return a new prefilter, with its counts at zero
+     */
+    static FilePrefilter fromPreferences(final UserPreferences prefs) {
+        return new FilePrefilter(prefs.getAllowedExtensions(), prefs.getDeniedExtensions(),
+                                 prefs.getMinimumFileSize());
+    }
+
+    private static Set<String> normalize(final Collection<String> extensions) {
+        Set<String> normalized = new HashSet<>();
+        if (extensions != null) {
+            for (String extension : extensions) {
+                String trimmed = StringUtils.toLower(extension.trim());
+                if (trimmed.startsWith(".")) {
+                    trimmed = trimmed.substring(1);
+                }
+                if (!trimmed.isEmpty()) {
+                    normalized.add(trimmed);
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private static String extensionOf(final Path file) {
+        Path name = file.getFileName();
+        if (name == null) {
+            return "";
+        }
+        String extension = StringUtils.getExtension(name.toString());
+        return extension.isEmpty() ? "" : StringUtils.toLower(extension.substring(1));
+    }
+
+    private Rejection check(final Path file, final BasicFileAttributes attrs) {
+        if (!allowedExtensions.isEmpty() || !deniedExtensions.isEmpty()) {
+            String extension = extensionOf(file);
+            if (!allowedExtensions.isEmpty() && !allowedExtensions.contains(extension)) {
+                return Rejection.NOT_ALLOWED;
+            }
+            if (deniedExtensions.contains(extension)) {
+                return Rejection.DENIED;
+            }
+        }
+        if (attrs.size() < minimumSize) {
+            return Rejection.TOO_SMALL;
+        }
+        return null;
+    }
+
+    /**
+     * Decide whether the given file should be added.
+     *
+     * @param file
+     *    the file
+     * @param attrs
+     *    the file's attributes, as already read
+     * @return true if the file should be added; false if it should be skipped
+     */
+    boolean accept(final Path file, final BasicFileAttributes attrs) {
+        Rejection reason = check(file, attrs);
+        if (reason == null) {
+            accepted.increment();
+            return true;
+        }
+        rejected.get(reason).increment();
+        logger.finer("skipping " + file + ": " + reason.description);
+        return false;
+    }
+
+    /**
+     * @param reason
+     *    the reason to get the count for
+     * @return how many files this prefilter has rejected for the given reason
+     */
+    long getRejectedCount(final Rejection reason) {
+        return rejected.get(reason).sum();
+    }
+
+    /**
+     * @return how many files this prefilter has accepted
+     */
+    long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    /**
+     * Log how many files were accepted and rejected, if any were rejected.
+     *
+     * @param scanned
+     *    a description of what was scanned, for the log message
+     */
+    void logStatistics(final String scanned) {
+        StringBuilder message = new StringBuilder();
+        long total = 0L;
+        for (Rejection reason : Rejection.values()) {
+            long count = getRejectedCount(reason);
+            if (count > 0) {
+                message.append(", ").append(count).append(' ').append(reason.description);
+                total += count;
+            }
+        }
+        if (total > 0) {
+            logger.info("scanning " + scanned + ": added " + getAcceptedCount()
+                        + " files, skipped " + total + message);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.tvrenamer.model;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import org.tvrenamer.controller.util.ParallelFileWalker;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches a folder tree for new files, and reports each one once it appears to be
+ * completely written.
+ *
+ * Uses a {@link WatchService} (which, on Linux, is backed by inotify), so while
+ * nothing is happening in the folder, the watcher thread simply sleeps.  A file
+ * that is still being downloaded or copied in generates a stream of events; rather
+ * than report it right away, we wait until its size and modification time have
+ * stayed the same for a little while.
+ *
+ * If the operating system drops events (an OVERFLOW), we can't know what we missed,
+ * so we ask the owner to rescan the whole folder.
+ */
+final class FolderWatcher {
+    private static final Logger logger = Logger.getLogger(FolderWatcher.class.getName());
+
+    static final long DEFAULT_SETTLE_MILLIS = 2000L;
+
+    private static final class Pending {
+        long size = -1L;
+        long modified = -1L;
+        long lastChange;
+
+        Pending(final long now) {
+            lastChange = now;
+        }
+    }
+
+    private final Path root;
+    private final long settleMillis;
+    private final BiConsumer<Path, BasicFileAttributes> fileReady;
+    private final Runnable rescan;
+
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private final Map<Path, Pending> pending = new HashMap<>();
+
+    private volatile WatchService watchService = null;
+    private Thread thread = null;
+
+    /**
+     * Create a watcher; it does nothing until {@link #start} is called.
+     *
+     * @param root
+     *    the top of the folder tree to watch
+     * @param settleMillis
+     *    how long a file must go unchanged before we report it
+     * @param fileReady
+     *    called, on the watcher thread, with each new file once it has settled
+     * @param rescan
+     *    called, on the watcher thread, when events were lost and the folder
+     *    should be rescanned
+     */
+    FolderWatcher(final Path root, final long settleMillis,
+                  final BiConsumer<Path, BasicFileAttributes> fileReady,
+                  final Runnable rescan)
+    {
+        this.root = root;
+        this.settleMillis = settleMillis;
+        this.fileReady = fileReady;
+        this.rescan = rescan;
+    }
+
+    /**
+     * Start watching.
+     *
+     * @return true if the watcher was started; false if it could not be, for example
+     *    because the folder doesn't exist or the filesystem doesn't support watching
+     */
+    synchronized boolean start() {
+        if (thread != null) {
+            return true;
+        }
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            registerTree(root, false);
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            logger.log(Level.WARNING, "unable to watch folder " + root, e);
+            stop();
+            return false;
+        }
+        thread = new Thread(this::run, "FolderWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("watching " + watchedDirs.size() + " folders under " + root);
+        return true;
+    }
+
+    /**
+     * Stop watching.  Files that have not yet settled are not reported.
+     */
+    synchronized void stop() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "error closing watch service", e);
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Register the given directory, and every non-hidden directory under it.
+     *
+     * @param dir
+     *    the directory to register
+     * @param addFiles
+     *    whether to treat the files already in the directories as new; true for a
+     *    directory that has just appeared, whose files we haven't seen events for
+     */
+    private void registerTree(final Path dir, final boolean addFiles) throws IOException {
+        final WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs)
+                    throws IOException
+                {
+                    if (!subdir.equals(root) && ParallelFileWalker.isHidden(subdir, attrs)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    WatchKey key = subdir.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+                    watchedDirs.put(key, subdir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (addFiles && attrs.isRegularFile()
+                        && !ParallelFileWalker.isHidden(file, attrs))
+                    {
+                        pending.putIfAbsent(file, new Pending(now));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    logger.fine("could not visit " + file + ": " + exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+    }
+
+    private void handleEvents(final WatchKey key) throws IOException {
+        final Path dir = watchedDirs.get(key);
+        final long now = System.currentTimeMillis();
+        boolean overflowed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflowed = true;
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (Files.isDirectory(child)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    registerTree(child, true);
+                }
+            } else {
+                Pending state = pending.get(child);
+                if (state == null) {
+                    pending.put(child, new Pending(now));
+                } else {
+                    state.lastChange = now;
+                }
+            }
+        }
+        if (!key.reset()) {
+            watchedDirs.remove(key);
+        }
+        if (overflowed) {
+            logger.info("missed events in " + root + "; rescanning");
+            // Pick up any directories we missed, as well as any files
+            registerTree(root, false);
+            pending.clear();
+            rescan.run();
+        }
+    }
+
+    /**
+     * Report the pending files whose size and modification time have not changed
+     * for at least the settle time, and forget any that have disappeared.
+     */
+    private void checkPending() {
+        final long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Pending> mapping = iterator.next();
+            Path file = mapping.getKey();
+            Pending state = mapping.getValue();
+            BasicFileAttributes attrs = ParallelFileWalker.readAttributes(file);
+            if ((attrs == null) || !attrs.isRegularFile()
+                || ParallelFileWalker.isHidden(file, attrs))
+            {
+                iterator.remove();
+                continue;
+            }
+            long modified = attrs.lastModifiedTime().toMillis();
+            if ((attrs.size() != state.size) || (modified != state.modified)) {
+                state.size = attrs.size();
+                state.modified = modified;
+                state.lastChange = now;
+            } else if ((now - state.lastChange) >= settleMillis) {
+                iterator.remove();
+                try {
+                    fileReady.accept(file, attrs);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "error adding watched file " + file, e);
+                }
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchService service = watchService;
+                if (service == null) {
+                    return;
+                }
+                // With nothing waiting to settle, block until something happens.
+                WatchKey key = pending.isEmpty()
+                    ? service.take()
+                    : service.poll(Math.max(100L, settleMillis / 4), TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleEvents(key);
+                    key = service.poll();
+                }
+                checkPending();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            logger.fine("stopped watching " + root);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "error watching " + root + "; no longer watching", e);
+        }
+    }
+}
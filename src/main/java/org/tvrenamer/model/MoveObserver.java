@@ -15,6 +15,10 @@ package org.tvrenamer.model;
  * or failure.  If the class intends to provide updates, it is necessary to call
  * initializeProgress() before calling one of the "set progress" methods, but
  * if updates will not be provided, then initializeProgress() may be skipped.
+ *
+ * The first value given to setProgressValue() after initializeProgress() is where
+ * the move starts from: zero, unless an earlier attempt already copied part of the
+ * file, and the copy is being resumed.  The values after that include it.
  */
 public interface MoveObserver {
     /**
@@ -0,0 +1,201 @@
+package org.tvrenamer.model;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The progress of a batch of file moves, as a whole.
+ *
+ * The threads doing the moves write to this without taking any locks, and without
+ * formatting anything; they just bump counters.  The UI samples it on a timer, as
+ * often as it wants to redraw, and it is only then that anything is formatted.  That
+ * way, no matter how fast the copies report progress, the UI thread gets a fixed,
+ * small number of updates per second.
+ */
+public final class MoveProgress {
+    private final long startNanos;
+    private final LongAdder bytesCopied = new LongAdder();
+    private final LongAdder bytesSkipped = new LongAdder();
+    private volatile long bytesToCopy = 0L;
+    private volatile int totalFiles = 0;
+    private volatile int remainingFiles = 0;
+    private volatile int inFlightFiles = 0;
+    private volatile int failedFiles = 0;
+
+    /**
+     * Creates a MoveProgress for a batch that is starting now.
+     */
+    public MoveProgress() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Creates a MoveProgress for a batch that started at the given time.
+     *
+     * @param startNanos
+     *    the time the batch started, as given by System.nanoTime()
+     */
+    MoveProgress(final long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Sets how many bytes the batch will have to copy, in total.  Moves that
+     * are just renames don't count.
+     *
+     * @param bytes
+     *    the number of bytes to copy
+     */
+    public void setBytesToCopy(final long bytes) {
+        bytesToCopy = bytes;
+    }
+
+    /**
+     * Records that some more bytes have been copied.
+     *
+     * @param bytes
+     *    the number of bytes copied since the last call, for the file being copied
+     */
+    public void addBytesCopied(final long bytes) {
+        bytesCopied.add(bytes);
+    }
+
+    /**
+     * Records that some of the bytes to copy won't have to be, because they were
+     * copied by an earlier attempt, whose copy is being resumed.  They don't count
+     * towards the speed of the batch.
+     *
+     * @param bytes
+     *    the number of bytes already copied
+     */
+    public void addBytesSkipped(final long bytes) {
+        bytesSkipped.add(bytes);
+    }
+
+    /**
+     * Records how many of the files have been moved.
+     *
+     * @param total
+     *    the number of files in the batch
+     * @param remaining
+     *    the number of files that have not yet been moved
+     */
+    public void setFiles(final int total, final int remaining) {
+        totalFiles = total;
+        remainingFiles = remaining;
+    }
+
+    /**
+     * Records how many moves are running, and how many have failed.
+     *
+     * @param inFlight
+     *    the number of moves running right now
+     * @param failed
+     *    the number of moves that have failed
+     */
+    public void setMoveCounts(final int inFlight, final int failed) {
+        inFlightFiles = inFlight;
+        failedFiles = failed;
+    }
+
+    public int getInFlightFiles() {
+        return inFlightFiles;
+    }
+
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    public int getRemainingFiles() {
+        return remainingFiles;
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied.sum();
+    }
+
+    /**
+     * @return the fraction of the files that have been moved, from 0.0 to 1.0
+     */
+    public float getFileFraction() {
+        int total = totalFiles;
+        if (total <= 0) {
+            return 0.0f;
+        }
+        return (float) (total - remainingFiles) / total;
+    }
+
+    /**
+     * Gets the average copying speed since the batch started.
+     *
+     * @param nowNanos
+     *    the current time, as given by System.nanoTime()
+     * @return the speed, in bytes per second; zero if nothing has been copied yet
+     */
+    public double getBytesPerSecond(final long nowNanos) {
+        long elapsed = nowNanos - startNanos;
+        if (elapsed <= 0L) {
+            return 0.0;
+        }
+        return getBytesCopied() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Estimates how long it will take to copy the rest of the bytes, at the speed
+     * we've copied so far.
+     *
+     * @param nowNanos
+     *    the current time, as given by System.nanoTime()
+     * @return the number of seconds; or -1, if there's no basis for an estimate
+     */
+    public long getSecondsRemaining(final long nowNanos) {
+        double rate = getBytesPerSecond(nowNanos);
+        if (rate <= 0.0) {
+            return -1L;
+        }
+        long left = Math.max(0L, bytesToCopy - bytesSkipped.sum() - getBytesCopied());
+        return (long) Math.ceil(left / rate);
+    }
+
+    /**
+     * Describes the progress of the batch, for display to the user.  For
+     * example, "3 of 12 files, 2 moving, 85.2 MB/s, 1:05 left".  The number of
+     * moves running, and of those that failed, are included only if not zero; the
+     * speed and the estimate, only once some bytes have been copied.
+     *
+     * @param nowNanos
+     *    the current time, as given by System.nanoTime()
+     * @return a description of the progress
+     */
+    public String describe(final long nowNanos) {
+        int total = totalFiles;
+        StringBuilder description = new StringBuilder();
+        description.append(total - remainingFiles).append(" of ").append(total).append(" files");
+        int inFlight = inFlightFiles;
+        if (inFlight > 0) {
+            description.append(", ").append(inFlight).append(" moving");
+        }
+        int failed = failedFiles;
+        if (failed > 0) {
+            description.append(", ").append(failed).append(" failed");
+        }
+        double rate = getBytesPerSecond(nowNanos);
+        if (rate > 0.0) {
+            description.append(", ").append(StringUtils.formatFileSize((long) rate)).append("/s");
+            long seconds = getSecondsRemaining(nowNanos);
+            if (seconds > 0L) {
+                description.append(", ")
+                    .append(seconds / 60).append(':')
+                    .append(StringUtils.zeroPadTwoDigits((int) (seconds % 60)))
+                    .append(" left");
+            }
+        }
+        return description.toString();
+    }
+}
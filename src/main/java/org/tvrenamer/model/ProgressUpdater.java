@@ -15,6 +15,27 @@ public interface ProgressUpdater {
      */
     void setProgress(final int totalNumFiles, final int nRemaining);
 
+    /**
+     * Tells how many bytes will have to be copied, because the files are moving
+     * to a different device
+     *
+     * @param totalBytes
+     *            the total size of the files that will be copied
+     */
+    void setBytesToCopy(final long totalBytes);
+
+    /**
+     * Tells how the moves of the batch stand
+     *
+     * @param inFlight
+     *            the number of moves that are running right now
+     * @param done
+     *            the number of moves that have succeeded
+     * @param failed
+     *            the number of moves that have failed, or been cancelled
+     */
+    void setMoveCounts(final int inFlight, final int done, final int failed);
+
     /**
      * Operation is finished
      *
@@ -0,0 +1,183 @@
+package org.tvrenamer.model;
+
+import static org.tvrenamer.model.ReplacementToken.*;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A replacement template (the "rename mask" from the preferences), broken down
+ * into a list of literal text and {@link ReplacementToken}s.
+ *
+ * Filling in a template used to be done with a chain of String.replaceAll calls,
+ * one per token, for every option of every file, every time anything changed.
+ * Instead, we parse the template once, when it changes, and then fill it in with
+ * a single pass over the parts, appending into one StringBuilder.
+ *
+ * One difference from the chained replacements: the values plugged in are not
+ * themselves scanned for tokens.  Previously, a show name or episode title which
+ * happened to contain something like "%d" would have had it replaced by the
+ * air date.
+ */
+final class RenameTemplate {
+
+    // Unlike java.text.DateFormat, DateTimeFormatter is thread-safe, so we can share them.
+    private static final Map<ReplacementToken, DateTimeFormatter> DATE_FORMATTERS
+        = new EnumMap<>(ReplacementToken.class);
+
+    static {
+        DATE_FORMATTERS.put(DATE_DAY_NUM, DateTimeFormatter.ofPattern("d"));
+        DATE_FORMATTERS.put(DATE_DAY_NUMLZ, DateTimeFormatter.ofPattern("dd"));
+        DATE_FORMATTERS.put(DATE_MONTH_NUM, DateTimeFormatter.ofPattern("M"));
+        DATE_FORMATTERS.put(DATE_MONTH_NUMLZ, DateTimeFormatter.ofPattern("MM"));
+        DATE_FORMATTERS.put(DATE_YEAR_FULL, DateTimeFormatter.ofPattern("yyyy"));
+        DATE_FORMATTERS.put(DATE_YEAR_MIN, DateTimeFormatter.ofPattern("yy"));
+    }
+
+    // When more than one token matches at a given position (for example, "%yyyy" and
+    // "%yy"), the longest one wins.
+    private static final ReplacementToken[] TOKENS_LONGEST_FIRST = ReplacementToken.values();
+
+    static {
+        Arrays.sort(TOKENS_LONGEST_FIRST,
+                    Comparator.comparingInt((ReplacementToken t) -> t.getToken().length())
+                    .reversed());
+    }
+
+    private static volatile RenameTemplate mostRecent = null;
+
+    private final String template;
+
+    // Parallel arrays: for each part, either a token, or (if the token is null) literal text.
+    private final ReplacementToken[] tokens;
+    private final String[] literals;
+
+    private RenameTemplate(final String template) {
+        this.template = template;
+
+        List<ReplacementToken> tokenList = new ArrayList<>();
+        List<String> literalList = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int pos = 0;
+        final int len = template.length();
+        while (pos < len) {
+            ReplacementToken found = null;
+            if (template.charAt(pos) == '%') {
+                for (ReplacementToken token : TOKENS_LONGEST_FIRST) {
+                    if (template.startsWith(token.getToken(), pos)) {
+                        found = token;
+                        break;
+                    }
+                }
+            }
+            if (found == null) {
+                literal.append(template.charAt(pos));
+                pos++;
+            } else {
+                if (literal.length() > 0) {
+                    tokenList.add(null);
+                    literalList.add(literal.toString());
+                    literal.setLength(0);
+                }
+                tokenList.add(found);
+                literalList.add(null);
+                pos += found.getToken().length();
+            }
+        }
+        if (literal.length() > 0) {
+            tokenList.add(null);
+            literalList.add(literal.toString());
+        }
+
+        tokens = tokenList.toArray(new ReplacementToken[tokenList.size()]);
+        literals = literalList.toArray(new String[literalList.size()]);
+    }
+
+    /**
+     * Get the compiled version of the given template.  The most recently compiled
+     * template is kept, so as long as the user doesn't change the template, it is
+     * only compiled once.
+     *
+     * @param template
+     *     the template provided by the user via the preferences dialog
+     * @return the compiled template
+     */
+    static RenameTemplate compile(final String template) {
+        RenameTemplate compiled = mostRecent;
+        if ((compiled == null) || !compiled.template.equals(template)) {
+            compiled = new RenameTemplate(template);
+            mostRecent = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * Fill in the template with the given information.  Does not sanitise the result.
+     *
+     * @param showName
+     *     the name of the show
+     * @param episodeTitle
+     *     the title of the episode, already truncated if necessary
+     * @param placement
+     *     the season number and episode number information we obtained from the filename
+     * @param resolution
+     *     the screen resolution (e.g., "720p", etc.) we obtained from the filename
+     * @param airDate
+     *     the date the episode first aired; may be null, in which case the date
+     *     tokens are simply removed
+     * @return the template with the information in place of the tokens
+     */
+    String render(final String showName, final String episodeTitle,
+                  final EpisodePlacement placement, final String resolution,
+                  final LocalDate airDate)
+    {
+        StringBuilder result = new StringBuilder(template.length() + 64);
+        for (int i = 0; i < tokens.length; i++) {
+            ReplacementToken token = tokens[i];
+            if (token == null) {
+                result.append(literals[i]);
+                continue;
+            }
+            switch (token) {
+                case SHOW_NAME:
+                    result.append(showName);
+                    break;
+                case SEASON_NUM:
+                    result.append(placement.season);
+                    break;
+                case SEASON_NUM_LEADING_ZERO:
+                    result.append(StringUtils.zeroPadTwoDigits(placement.season));
+                    break;
+                case EPISODE_NUM:
+                    result.append(StringUtils.formatDigits(placement.episode));
+                    break;
+                case EPISODE_NUM_LEADING_ZERO:
+                    result.append(StringUtils.zeroPadThreeDigits(placement.episode));
+                    break;
+                case EPISODE_TITLE:
+                    result.append(episodeTitle);
+                    break;
+                case EPISODE_TITLE_NO_SPACES:
+                    result.append(StringUtils.makeDotTitle(episodeTitle));
+                    break;
+                case EPISODE_RESOLUTION:
+                    result.append(resolution);
+                    break;
+                default:
+                    if (airDate != null) {
+                        DATE_FORMATTERS.get(token).formatTo(airDate, result);
+                    }
+                    break;
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package org.tvrenamer.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A persistent record of what we learned about each file the last time we scanned
+ * the preload folder.
+ *
+ * Each file is identified by its path, size, modification time and, where the
+ * filesystem provides one, its file key (on Unix, the device and inode).  If all of
+ * those are unchanged, we assume the file is the same one we saw before, and reuse
+ * the result of parsing its filename instead of parsing it again.
+ *
+ * Only the parse is kept.  The show a file was matched to is not: the listings of
+ * the show aren't kept between runs, so the file has to wait for the provider
+ * either way, and looking the show up again by name costs nothing more.
+ *
+ * An index is loaded before a scan, and then built up during the scan, from entries
+ * that were reused plus entries for the files that were new or changed.  Files that
+ * were not seen in the scan are dropped when the index is saved.
+ */
+final class ScanIndex {
+    private static final Logger logger = Logger.getLogger(ScanIndex.class.getName());
+
+    private static final int MAGIC = 0x54565349; // "TVSI"
+    // Version 1 also kept the ID of the series each file was matched to
+    private static final int FORMAT_VERSION = 2;
+
+    static final class Entry {
+        final long size;
+        final long modified;
+        final String fileKey;
+        final boolean parsed;
+        final String filenameShow;
+        final int season;
+        final int episode;
+        final String resolution;
+
+        Entry(final long size, final long modified, final String fileKey,
+              final boolean parsed, final String filenameShow, final int season,
+              final int episode, final String resolution)
+        {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.parsed = parsed;
+            this.filenameShow = filenameShow;
+            this.season = season;
+            this.episode = episode;
+            this.resolution = resolution;
+        }
+
+        boolean matches(final BasicFileAttributes attrs) {
+            return (size == attrs.size())
+                && (modified == attrs.lastModifiedTime().toMillis())
+                && Objects.equals(fileKey, fileKeyOf(attrs));
+        }
+
+        /**
+         * Put the information we saved into the given FileEpisode, as though we had
+         * just parsed its filename.
+         *
+         * @param episode
+         *    a FileEpisode that was created without parsing its filename
+         */
+        void restoreTo(final FileEpisode episode) {
+            if (!parsed) {
+                episode.setFailToParse();
+                return;
+            }
+            ShowName.mapShowName(filenameShow);
+            episode.setFilenameShow(filenameShow);
+            episode.setEpisodePlacement(new EpisodePlacement(season, this.episode));
+            episode.setFilenameResolution(resolution);
+            episode.setParsed();
+        }
+    }
+
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ScanIndex(final Map<String, Entry> previous) {
+        this.previous = previous;
+    }
+
+    private static String fileKeyOf(final BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return (key == null) ? null : key.toString();
+    }
+
+    private static String readNullable(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(final DataOutputStream out, final String value)
+        throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Read the index saved by the last scan.  If there is none, or it can't be read,
+     * returns an empty index, which means every file will be parsed.
+     *
+     * @param file
+     *    the file the index was saved to
+     * @return an index, ready to be used for a new scan
+     */
+    static ScanIndex load(final Path file) {
+        final Map<String, Entry> loaded = new ConcurrentHashMap<>();
+        if (Files.exists(file)) {
+            try (DataInputStream in
+                 = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+            {
+                if ((in.readInt() != MAGIC) || (in.readInt() != FORMAT_VERSION)) {
+                    logger.info("scan index " + file + " is not in a known format; ignoring");
+                    return new ScanIndex(new ConcurrentHashMap<>());
+                }
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = in.readUTF();
+                    long size = in.readLong();
+                    long modified = in.readLong();
+                    String fileKey = readNullable(in);
+                    boolean parsed = in.readBoolean();
+                    String filenameShow = in.readUTF();
+                    int season = in.readInt();
+                    int episode = in.readInt();
+                    String resolution = in.readUTF();
+                    loaded.put(path, new Entry(size, modified, fileKey, parsed, filenameShow,
+                                               season, episode, resolution));
+                }
+                logger.fine("read " + count + " entries from scan index " + file);
+            } catch (IOException | SecurityException e) {
+                logger.log(Level.WARNING, "could not read scan index " + file
+                           + "; files will be rescanned", e);
+                loaded.clear();
+            }
+        }
+        return new ScanIndex(loaded);
+    }
+
+    /**
+     * If the given file is unchanged since the last scan, get what we knew about it,
+     * and carry it over into this scan.
+     *
+     * @param key
+     *    the absolute path of the file
+     * @param attrs
+     *    the file's current attributes
+     * @return the saved entry, or null if the file is new or has changed
+     */
+    Entry reuse(final String key, final BasicFileAttributes attrs) {
+        Entry entry = previous.get(key);
+        if ((entry == null) || !entry.matches(attrs)) {
+            return null;
+        }
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Record what we learned from parsing a new or changed file.
+     *
+     * @param key
+     *    the absolute path of the file
+     * @param attrs
+     *    the file's current attributes
+     * @param episode
+     *    the FileEpisode, after its filename has been parsed
+     */
+    void record(final String key, final BasicFileAttributes attrs, final FileEpisode episode) {
+        EpisodePlacement placement = episode.getEpisodePlacement();
+        boolean parsed = episode.wasParsed() && (placement != null);
+        entries.put(key, new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(),
+                                   fileKeyOf(attrs), parsed,
+                                   parsed ? episode.getFilenameShow() : "",
+                                   parsed ? placement.season : Show.NO_SEASON,
+                                   parsed ? placement.episode : Show.NO_EPISODE,
+                                   parsed ? episode.getFilenameResolution() : ""));
+    }
+
+    /**
+     * Indicate that the scan is finished.  Entries for files that were not seen
+     * are discarded.
+     */
+    void scanComplete() {
+        previous.clear();
+    }
+
+    /**
+     * @return the number of files in this scan's index
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write this index to the given file.  The index is written to a temporary file
+     * first, so a failure part way through never leaves a truncated index behind.
+     *
+     * @param file
+     *    the file to save the index to
+     * @return true if the index was saved
+     */
+    boolean save(final Path file) {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        // Take a snapshot, so the count we write matches the entries that follow
+        final Map<String, Entry> snapshot = new HashMap<>(entries);
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out
+                 = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> mapping : snapshot.entrySet()) {
+                    Entry entry = mapping.getValue();
+                    out.writeUTF(mapping.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.modified);
+                    writeNullable(out, entry.fileKey);
+                    out.writeBoolean(entry.parsed);
+                    out.writeUTF(entry.filenameShow);
+                    out.writeInt(entry.season);
+                    out.writeInt(entry.episode);
+                    out.writeUTF(entry.resolution);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            logger.fine("wrote " + snapshot.size() + " entries to scan index " + file);
+            return true;
+        } catch (IOException | SecurityException e) {
+            logger.log(Level.WARNING, "could not save scan index " + file, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException | SecurityException ignored) {
+                // nothing more we can do
+            }
+            return false;
+        }
+    }
+}
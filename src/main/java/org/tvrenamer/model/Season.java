@@ -38,18 +38,18 @@ class Season {
      *
      * Nothing in the Season class knows anything about Episodes.  The caller
      * decides where to place the Episode, and this method just returns what
-     * has been placed there.  It does not investigate the values contained
-     * within the episode.
+     * has been placed there: the slot of the episode within the Show's
+     * listings.  It is up to the Show to turn that into an Episode.
      *
      * @param episodeNum
      *           the episode number, within this Season, of the episode to return
      * @param preferDvd
      *           whether the caller prefers the DVD ordering or the over-the-air ordering
-     * @return the episode found at the requested place
+     * @return the listings slot of the episode found at the requested place, or null
      */
-    public Episode get(int episodeNum, boolean preferDvd) {
+    public Integer get(int episodeNum, boolean preferDvd) {
         EpisodeOptions options = episodes.get(episodeNum);
-        Episode found = null;
+        Integer found = null;
 
         if (options != null) {
             found = options.get(preferDvd);
@@ -66,9 +66,10 @@ class Season {
      *           whether the caller prefers the DVD ordering, or over-the-air ordering
      * @param episodeNum
      *           the episode number, within this Season, of the episode to return
-     * @return the Episodes that match the request criteria, or null if none does
+     * @return the listings slots of the Episodes that match the request criteria,
+     *         or null if none does
      */
-    public List<Episode> getAll(final boolean preferDvd, final int episodeNum) {
+    public List<Integer> getAll(final boolean preferDvd, final int episodeNum) {
         EpisodeOptions options = episodes.get(episodeNum);
         if (options == null) {
             return null;
@@ -85,19 +86,20 @@ class Season {
      * over-the-air ordering, or really neither, if the caller wants.  The
      * caller can choose to put any episode in any slot.
      *
-     * @param episode
-     *           the episode to add at the given index
+     * @param slot
+     *           the listings slot of the episode to add at the given index
+     * @param placement
+     *           the placement of the episode in the given ordering
      * @param useDvd
      *           whether episodeNum refers to the DVD ordering or
      *           the over-the-air ordering
      */
-    public void addEpisode(Episode episode, boolean useDvd) {
-        if (episode == null) {
-            logger.warning("can not add null episode");
+    public void addEpisode(int slot, EpisodePlacement placement, boolean useDvd) {
+        if (placement == null) {
+            logger.warning("can not add episode without placement");
             return;
         }
 
-        EpisodePlacement placement = episode.getEpisodePlacement(useDvd);
         int episodeNum = placement.episode;
         EpisodeOptions found = episodes.get(episodeNum);
 
@@ -106,7 +108,7 @@ class Season {
             episodes.put(episodeNum, found);
         }
 
-        found.addEpisode(useDvd, episode);
+        found.addEpisode(useDvd, slot);
     }
 
     /**
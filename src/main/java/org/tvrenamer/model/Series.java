@@ -3,7 +3,15 @@ package org.tvrenamer.model;
 import org.tvrenamer.controller.ListingsLookup;
 import org.tvrenamer.controller.ShowListingsListener;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
@@ -45,6 +53,185 @@ public class Series extends Show {
      */
     private static final Map<String, Series> KNOWN_SERIES = new ConcurrentHashMap<>();
 
+    /* The Series objects themselves are small, and we keep all of them in KNOWN_SERIES,
+     * for the reasons given above.  What is not small is the listings: every episode the
+     * series has ever had.  When the program is left running for a long time, with
+     * the user adding new files all along, keeping the listings of every series ever
+     * seen would make the heap grow without limit.
+     *
+     * So, we keep track of which Series currently have their listings loaded, in order
+     * of how recently they were used, and we bound the total number of episodes held.
+     * When the bound is exceeded, the listings of the least recently used series are
+     * discarded, and the series goes back to the "not started" state.  If the series is
+     * needed again, the next listener to register causes the listings to be looked up
+     * again, exactly as the first time.
+     *
+     * We never evict the listings of a series that is referenced by a FileEpisode in an
+     * EpisodeDb, since that file still needs its episode information.
+     */
+    static final int DEFAULT_MAX_RESIDENT_EPISODES = 50000;
+    private static int maxResidentEpisodes = DEFAULT_MAX_RESIDENT_EPISODES;
+
+    private static final Map<String, Series> RESIDENT_LISTINGS
+        = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Set<EpisodeDb> EPISODE_DBS
+        = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * Register an EpisodeDb whose FileEpisodes should keep their Series's listings
+     * from being evicted.  The EpisodeDb is held weakly.
+     *
+     * @param episodeDb
+     *     the EpisodeDb to register
+     */
+    static void registerEpisodeDb(final EpisodeDb episodeDb) {
+        synchronized (EPISODE_DBS) {
+            EPISODE_DBS.add(episodeDb);
+        }
+    }
+
+    /**
+     * Find out whether any FileEpisode in a registered EpisodeDb refers to the given
+     * show.
+     *
+     * @param show
+     *     the show to look for
+     * @return true if some FileEpisode refers to the show
+     */
+    private static boolean isReferenced(final Show show) {
+        Set<Show> inUse = new HashSet<>();
+        synchronized (EPISODE_DBS) {
+            for (EpisodeDb episodeDb : EPISODE_DBS) {
+                episodeDb.collectReferencedShows(inUse);
+                if (inUse.contains(show)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set the maximum total number of episodes to keep loaded, across all series.
+     * Takes effect the next time listings are loaded.
+     *
+     * @param maxEpisodes
+     *     the maximum number of episodes to keep loaded
+     */
+    static void setMaxResidentEpisodes(final int maxEpisodes) {
+        synchronized (RESIDENT_LISTINGS) {
+            maxResidentEpisodes = maxEpisodes;
+        }
+    }
+
+    /**
+     * Get the number of series whose listings are currently loaded.
+     *
+     * @return the number of series with listings loaded
+     */
+    public static int getResidentSeriesCount() {
+        synchronized (RESIDENT_LISTINGS) {
+            return RESIDENT_LISTINGS.size();
+        }
+    }
+
+    /**
+     * Get the total number of episodes currently loaded, across all series.
+     *
+     * @return the number of episodes loaded
+     */
+    public static int getResidentEpisodeCount() {
+        int count = 0;
+        synchronized (RESIDENT_LISTINGS) {
+            for (Series series : RESIDENT_LISTINGS.values()) {
+                count += series.listings.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get an estimate of the heap used by the listings currently loaded.
+     *
+     * @return the approximate number of bytes used by loaded listings
+     */
+    public static long getResidentListingsBytes() {
+        long bytes = 0;
+        synchronized (RESIDENT_LISTINGS) {
+            for (Series series : RESIDENT_LISTINGS.values()) {
+                bytes += series.listings.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Mark the given series as recently used, if its listings are loaded.
+     *
+     * @param series
+     *     the series that is being used
+     */
+    private static void touch(final Series series) {
+        synchronized (RESIDENT_LISTINGS) {
+            RESIDENT_LISTINGS.get(series.idString);
+        }
+    }
+
+    /**
+     * Evict the listings of the least recently used series, until the total number of
+     * episodes loaded is within the bound, or there is nothing left that may be evicted.
+     *
+     * The shows in use are collected first, to pick the victims; but a FileEpisode
+     * may take up one of the victims after that.  So each victim is checked again
+     * by evictListings, while it holds the lock that registering for listings takes,
+     * and is put back if it turns out to be in use.
+     *
+     * @param keep
+     *     a series which should not be evicted, even if it is the only candidate;
+     *     typically, the one whose listings were just loaded.  May be null.
+     * @return the number of series whose listings were evicted
+     */
+    static int trimResidentListings(final Series keep) {
+        Set<Show> inUse = new HashSet<>();
+        synchronized (EPISODE_DBS) {
+            for (EpisodeDb episodeDb : EPISODE_DBS) {
+                episodeDb.collectReferencedShows(inUse);
+            }
+        }
+
+        List<Series> victims = new ArrayList<>();
+        synchronized (RESIDENT_LISTINGS) {
+            int total = 0;
+            for (Series series : RESIDENT_LISTINGS.values()) {
+                total += series.listings.size();
+            }
+            Iterator<Series> eldestFirst = RESIDENT_LISTINGS.values().iterator();
+            while ((total > maxResidentEpisodes) && eldestFirst.hasNext()) {
+                Series series = eldestFirst.next();
+                if ((series != keep) && !inUse.contains(series)) {
+                    eldestFirst.remove();
+                    total -= series.listings.size();
+                    victims.add(series);
+                }
+            }
+        }
+
+        int evicted = 0;
+        for (Series series : victims) {
+            long bytes = series.listings.estimatedBytes();
+            if (series.evictListings()) {
+                logger.info("evicted listings of " + series.name + ", freeing about "
+                            + bytes + " bytes");
+                evicted++;
+            } else if (series.hasListings()) {
+                synchronized (RESIDENT_LISTINGS) {
+                    RESIDENT_LISTINGS.put(series.idString, series);
+                }
+            }
+        }
+        return evicted;
+    }
+
     /**
      * Looks up the ID in a hash table, and returns the object if it's already
      * been created.  Otherwise, returns null.
@@ -156,6 +343,7 @@ public class Series extends Show {
             return;
         }
         registrations.add(listener);
+        touch(this);
         if (listingsStatus == DownloadStatus.NOT_STARTED) {
             ListingsLookup.downloadListings(this);
         } else if (listingsStatus == DownloadStatus.SUCCESS) {
@@ -187,9 +375,73 @@ public class Series extends Show {
      * we have the listings, and we can notify the listeners.
      *
      */
-    public synchronized void listingsSucceeded() {
-        listingsStatus = DownloadStatus.SUCCESS;
-        registrations.forEach(ShowListingsListener::listingsDownloadComplete);
+    public void listingsSucceeded() {
+        synchronized (this) {
+            listingsStatus = DownloadStatus.SUCCESS;
+            registrations.forEach(ShowListingsListener::listingsDownloadComplete);
+        }
+        synchronized (RESIDENT_LISTINGS) {
+            RESIDENT_LISTINGS.put(idString, this);
+        }
+        trimResidentListings(this);
+    }
+
+    /**
+     * Discard the listings of this Series, and return it to the state it was in
+     * before the listings were downloaded.  Listeners that were already notified
+     * are dropped; any listener that registers later will cause the listings to be
+     * looked up again.
+     *
+     * The listings are not discarded if a FileEpisode refers to this Series.  That
+     * is checked here, holding the same lock as addListingsListener: a FileEpisode
+     * sets its show before it registers for the listings, so either we see that it
+     * refers to us, or it registers after we're done, and the listings are looked up
+     * again for it.
+     *
+     * @return true if the listings were discarded, false if the listings were not
+     *     in a state where they could be discarded, or are in use
+     */
+    synchronized boolean evictListings() {
+        if (listingsStatus != DownloadStatus.SUCCESS) {
+            return false;
+        }
+        if (isReferenced(this)) {
+            logger.fine("not evicting listings of " + name + "; still in use");
+            return false;
+        }
+        clearListings();
+        registrations.clear();
+        listingsStatus = DownloadStatus.NOT_STARTED;
+        return true;
+    }
+
+    /**
+     * @return true if the listings of this Series have been loaded
+     */
+    private synchronized boolean hasListings() {
+        return listingsStatus == DownloadStatus.SUCCESS;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Also marks this series as recently used.
+     */
+    @Override
+    public Episode getEpisode(EpisodePlacement placement) {
+        touch(this);
+        return super.getEpisode(placement);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Also marks this series as recently used.
+     */
+    @Override
+    public List<Episode> getEpisodes(final EpisodePlacement placement) {
+        touch(this);
+        return super.getEpisodes(placement);
     }
 
     /**
@@ -200,6 +452,6 @@ public class Series extends Show {
     @Override
     public String toString() {
         return "Series [" + name + ", id=" + idString + ", "
-            + episodes.size() + " episodes]";
+            + listings.size() + " episodes]";
     }
 }
@@ -3,6 +3,7 @@ package org.tvrenamer.model;
 import org.tvrenamer.controller.ShowListingsListener;
 import org.tvrenamer.controller.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +43,7 @@ public class Show extends ShowOption {
     final int idNum;
     private final String dirName;
 
-    final Map<String, Episode> episodes;
+    final EpisodeListings listings;
     private final Map<Integer, Season> seasons;
     final Queue<ShowListingsListener> registrations;
 
@@ -67,7 +68,7 @@ public class Show extends ShowOption {
 
         this.idNum = idNum;
 
-        episodes = new ConcurrentHashMap<>();
+        listings = new EpisodeListings();
         seasons = new ConcurrentHashMap<>();
         registrations = new ConcurrentLinkedQueue<>();
     }
@@ -135,18 +136,18 @@ public class Show extends ShowOption {
      * to the that ordering, if such a placement is known.  This method does not "fall
      * back" to the alternative ordering.
      *
-     * @param episode
-     *           the episode to place at the index
+     * @param slot
+     *           the listings slot of the episode to place at the index
      * @param useDvd
      *           whether seasonNum and episodeNum refer to the DVD ordering or
      *           the over-the-air ordering
      */
-    private void addEpisodeToSeason(Episode episode, boolean useDvd) {
-        EpisodePlacement placement = episode.getEpisodePlacement(useDvd);
+    private void addEpisodeToSeason(int slot, boolean useDvd) {
+        EpisodePlacement placement = listings.placementAt(slot, useDvd);
         if (placement == null) {
-            // Note, in this case, the Episode will continue to exist in the list of
-            // episodes, but will not be added to the index for this ordering.
-            logger.fine("episode \"" + episode.getTitle() + "\" of show " + name
+            // Note, in this case, the Episode will continue to exist in the listings,
+            // but will not be added to the index for this ordering.
+            logger.fine("episode \"" + listings.titleAt(slot) + "\" of show " + name
                         + " lacks placement information for "
                         + (useDvd ? "DVD ordering" : "air ordering"));
         } else {
@@ -157,7 +158,7 @@ public class Show extends ShowOption {
                 season = new Season(this, placement.season);
                 seasons.put(placement.season, season);
             }
-            season.addEpisode(episode, useDvd);
+            season.addEpisode(slot, placement, useDvd);
         }
     }
 
@@ -170,20 +171,18 @@ public class Show extends ShowOption {
      * the user to change it; see {@link #setPreferDvd})
      *
      * Does not change the episode list at all; just organizes them into seasons
-     * and episode numbers.
+     * and episode numbers.  The index is built from the raw listings, and does not
+     * cause any Episode objects to be created.
      *
      * Clears the season index before beginning, and iterates over all known episodes
      * twice: first in the preferred ordering, and then in the alternate ordering.
      */
     public synchronized void indexEpisodesBySeason() {
         seasons.clear();
-        for (Episode episode : episodes.values()) {
-            if (episode == null) {
-                logger.severe("internal error creating episodes for " + name);
-                continue;
-            }
-            addEpisodeToSeason(episode, preferDvd);
-            addEpisodeToSeason(episode, !preferDvd);
+        int count = listings.size();
+        for (int slot = 0; slot < count; slot++) {
+            addEpisodeToSeason(slot, preferDvd);
+            addEpisodeToSeason(slot, !preferDvd);
         }
     }
 
@@ -203,7 +202,7 @@ public class Show extends ShowOption {
             if (info == null) {
                 logger.warning("received null episode info");
             } else {
-                Episode episode = episodes.get(info.episodeId);
+                Episode episode = listings.episodeAt(listings.slotOf(info.episodeId));
                 String msg = episode.getDifferenceMessage(info);
                 if (msg == null) {
                     logger.warning("handling again: " + info.episodeName);
@@ -220,6 +219,9 @@ public class Show extends ShowOption {
      * if anything goes wrong.  It is expected that the caller will handle any of
      * that, if desired.
      *
+     * The information is stored in the Show's listings; an actual Episode object
+     * is not created unless and until it is looked up.
+     *
      * @param info
      *    information about the Episode, downloaded from the provider
      * @return true if the episode was added successfully
@@ -228,21 +230,12 @@ public class Show extends ShowOption {
      *             <li>if an  episode with the given ID was already present</li></ul>
      */
     public boolean addOneEpisode(final EpisodeInfo info) {
-        if (info != null) {
-            String episodeId = info.episodeId;
-            Episode existing = episodes.get(episodeId);
-            if (existing == null) {
-                Episode episode = new Episode(info);
-                episodes.put(episodeId, episode);
-                return true;
-            }
-        }
-        return false;
+        return (listings.add(info) >= 0);
     }
 
     /**
-     * Creates Episodes, and adds them to this Show, for each of the given EpisodeInfos.
-     * Relies on addOneEpisode() to create and verify the episode.  Collects failures
+     * Adds the information from each of the given EpisodeInfos to this Show's listings.
+     * Relies on addOneEpisode() to store and verify the episode.  Collects failures
      * from addOneEpisode(), and logs messages about them.  Generally a "problem" means
      * that we have found two (or more) episodes with the same placement
      * information.  Another problem could be that we got a null episodeInfo, though
@@ -256,6 +249,7 @@ public class Show extends ShowOption {
      */
     public void addEpisodeInfos(final EpisodeInfo[] infos) {
         List<EpisodeInfo> problems = new LinkedList<>();
+        listings.ensureCapacity(infos.length);
         for (EpisodeInfo info : infos) {
             boolean added = addOneEpisode(info);
             if (!added) {
@@ -289,18 +283,19 @@ public class Show extends ShowOption {
             logger.fine("no season " + placement.season + " found for show " + name);
             return null;
         }
-        Episode episode;
+        Integer slot;
         synchronized (this) {
-            episode = season.get(placement.episode, preferDvd);
+            slot = season.get(placement.episode, preferDvd);
         }
-        if (episode == null) {
+        if (slot == null) {
             logger.warning("could not get episode of " + name + " for season "
                            + placement.season + ", episode " + placement.episode);
-        } else {
-            logger.fine("for season " + placement.season + ", episode " + placement.episode
-                        + " with ID " + episode.getEpisodeId()
-                        + ", found " + episode);
+            return null;
         }
+        Episode episode = listings.episodeAt(slot);
+        logger.fine("for season " + placement.season + ", episode " + placement.episode
+                    + " with ID " + episode.getEpisodeId()
+                    + ", found " + episode);
 
         return episode;
     }
@@ -309,6 +304,9 @@ public class Show extends ShowOption {
      * Look up episodes for the given season and episode of this show.
      * Returns null if no such episode was found.
      *
+     * Only the Episodes at the requested placement are created; the rest of
+     * the show's listings remain in their raw form.
+     *
      * @param placement
      *           the placement of the episode to return
      * @return the episodes indexed at the given season and episode of this show.
@@ -320,13 +318,29 @@ public class Show extends ShowOption {
             logger.warning("no season " + placement.season + " found for show " + name);
             return null;
         }
-        List<Episode> rval;
+        List<Integer> slots;
         synchronized (this) {
-            rval = season.getAll(preferDvd, placement.episode);
+            slots = season.getAll(preferDvd, placement.episode);
+        }
+        if (slots == null) {
+            return null;
+        }
+        List<Episode> rval = new ArrayList<>(slots.size());
+        for (int slot : slots) {
+            rval.add(listings.episodeAt(slot));
         }
         return rval;
     }
 
+    /**
+     * Discard this show's listings and its season index.  After this, the show
+     * has no episodes until its listings are added again.
+     */
+    synchronized void clearListings() {
+        seasons.clear();
+        listings.clear();
+    }
+
     /**
      * Find out whether or not there are episodes associated with this show.
      * Generally, if there aren't, this indicates that the show's listings
@@ -335,12 +349,12 @@ public class Show extends ShowOption {
      * @return true if this show has no episodes, false if it has any
      */
     public boolean noEpisodes() {
-        return (episodes.size() == 0);
+        return (listings.size() == 0);
     }
 
     @Override
     public String toString() {
         return "Show [" + name + ", id=" + idString + ", "
-            + episodes.size() + " episodes]";
+            + listings.size() + " episodes]";
     }
 }
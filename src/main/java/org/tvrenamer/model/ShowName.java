@@ -1,12 +1,11 @@
 package org.tvrenamer.model;
 
 import org.tvrenamer.controller.ShowInformationListener;
+import org.tvrenamer.controller.util.StringPool;
 import org.tvrenamer.controller.util.StringUtils;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -46,6 +45,14 @@ import java.util.logging.Logger;
 public class ShowName {
     private static final Logger logger = Logger.getLogger(ShowName.class.getName());
 
+    /**
+     * The number of show names (and, separately, query strings) we keep around before
+     * we start to forget the least recently used ones.  Only names that have already
+     * been resolved to a real show are ever forgotten; if the same name turns up
+     * again later, it is simply looked up again.
+     */
+    static final int MAX_REGISTERED_NAMES = 2000;
+
     /**
      * Inner class to hold a query string.  The query string is what we send to the provider
      * to try to resolve a show name.  We may re-use a single query string for multiple
@@ -56,7 +63,8 @@ public class ShowName {
         private ShowOption matchedShow = null;
         private final List<ShowInformationListener> listeners = new LinkedList<>();
 
-        private static final Map<String, QueryString> QUERY_STRINGS = new ConcurrentHashMap<>();
+        private static final BoundedRegistry<String, QueryString> QUERY_STRINGS
+            = new BoundedRegistry<>(MAX_REGISTERED_NAMES, QueryString::isResolved);
 
         private QueryString(String queryString) {
             this.queryString = queryString;
@@ -131,6 +139,17 @@ public class ShowName {
             return matchedShow;
         }
 
+        /**
+         * Find out whether this QueryString has been mapped to an actual show.  Until
+         * it has, it must be kept in the registry, so that every ShowName with the same
+         * query string waits for the same answer.
+         *
+         * @return true if this QueryString has been matched to a show that was found
+         */
+        synchronized boolean isResolved() {
+            return (matchedShow != null) && !matchedShow.isFailedShow();
+        }
+
         /**
          * Factory-style method to obtain a QueryString.  If an object has already been created
          * for the query string we need for the found name, re-use it.
@@ -140,21 +159,26 @@ public class ShowName {
          * @return a QueryString object for looking up the foundName
          */
         static QueryString lookupQueryString(String foundName) {
-            String queryString = StringUtils.makeQueryString(foundName);
-            QueryString queryObj = QUERY_STRINGS.get(queryString);
-            if (queryObj == null) {
-                queryObj = new QueryString(queryString);
-                QUERY_STRINGS.put(queryString, queryObj);
-            }
-            return queryObj;
+            String queryString = StringPool.dedupe(StringUtils.makeQueryString(foundName));
+            return QUERY_STRINGS.computeIfAbsent(queryString, QueryString::new);
         }
     }
 
     /**
      * A mapping from Strings to ShowName objects.  This is potentially a
-     * many-to-one relationship.
+     * many-to-one relationship.  Bounded; see {@link #MAX_REGISTERED_NAMES}.
      */
-    private static final Map<String, ShowName> SHOW_NAMES = new ConcurrentHashMap<>();
+    private static final BoundedRegistry<String, ShowName> SHOW_NAMES
+        = new BoundedRegistry<>(MAX_REGISTERED_NAMES, ShowName::isResolved);
+
+    /**
+     * Get the number of ShowName objects currently registered.
+     *
+     * @return the number of registered show names
+     */
+    public static int registeredNameCount() {
+        return SHOW_NAMES.size();
+    }
 
     /**
      * Get the ShowName object for the given String.  If one was already created,
@@ -169,12 +193,7 @@ public class ShowName {
      * @return the ShowName object for that filenameShow
      */
     public static ShowName mapShowName(String filenameShow) {
-        ShowName showName = SHOW_NAMES.get(filenameShow);
-        if (showName == null) {
-            showName = new ShowName(filenameShow);
-            SHOW_NAMES.put(filenameShow, showName);
-        }
-        return showName;
+        return SHOW_NAMES.computeIfAbsent(StringPool.dedupe(filenameShow), ShowName::new);
     }
 
     /**
@@ -193,8 +212,8 @@ public class ShowName {
     public static ShowName lookupShowName(String filenameShow) {
         ShowName showName = SHOW_NAMES.get(filenameShow);
         if (showName == null) {
-            showName = new ShowName(filenameShow);
-            SHOW_NAMES.put(filenameShow, showName);
+            showName = SHOW_NAMES.computeIfAbsent(StringPool.dedupe(filenameShow),
+                                                  ShowName::new);
             logger.severe("could not get show name for " + filenameShow
                           + ", so created one instead");
         }
@@ -296,6 +315,16 @@ public class ShowName {
         showOptions = new LinkedList<>();
     }
 
+    /**
+     * Find out whether this ShowName's query string has been mapped to a show that
+     * was actually found.
+     *
+     * @return true if this ShowName has been resolved to a show
+     */
+    private boolean isResolved() {
+        return queryString.isResolved();
+    }
+
     /**
      * Find out if this ShowName has received its options from the provider yet.
      *
@@ -5,6 +5,8 @@ public enum UserPreference {
     MOVE_SELECTED,
     RENAME_SELECTED,
     REMOVE_EMPTY,
+    KEEP_ORIGINALS,
+    VERIFY_COPIES,
     DELETE_ROWS,
     DEST_DIR,
     SEASON_PREFIX,
@@ -15,5 +17,7 @@ public enum UserPreference {
     // Since these are only meaningful at startup, they probably should not be watched
     UPDATE_CHECK,
     @SuppressWarnings("unused")
-    PRELOAD_FOLDER
+    PRELOAD_FOLDER,
+    @SuppressWarnings("unused")
+    WATCH_PRELOAD_FOLDER
 }
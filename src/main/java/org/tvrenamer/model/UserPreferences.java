@@ -10,6 +10,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Observable;
 import java.util.logging.Level;
@@ -21,6 +22,10 @@ public class UserPreferences extends Observable {
     private static final UserPreferences INSTANCE = load();
 
     private final String preloadFolder;
+    private final boolean watchPreloadFolder;
+    private final List<String> allowedExtensions;
+    private final List<String> deniedExtensions;
+    private final long minimumFileSize;
     private transient Path destDirPath;
     private String destDir;
     private String seasonPrefix;
@@ -28,6 +33,8 @@ public class UserPreferences extends Observable {
     private boolean moveSelected;
     private boolean renameSelected;
     private boolean removeEmptiedDirectories;
+    private boolean keepOriginals;
+    private boolean verifyCopies;
     private boolean deleteRowAfterMove;
     private String renameReplacementMask;
     private boolean checkForUpdates;
@@ -46,6 +53,10 @@ public class UserPreferences extends Observable {
         super();
 
         preloadFolder = null;
+        watchPreloadFolder = false;
+        allowedExtensions = new ArrayList<>();
+        deniedExtensions = new ArrayList<>(Arrays.asList(DEFAULT_DENIED_EXTENSIONS));
+        minimumFileSize = 0L;
         destDirPath = DEFAULT_DESTINATION_DIRECTORY;
         destDir = destDirPath.toString();
         seasonPrefix = DEFAULT_SEASON_PREFIX;
@@ -53,6 +64,8 @@ public class UserPreferences extends Observable {
         moveSelected = false;
         renameSelected = true;
         removeEmptiedDirectories = true;
+        keepOriginals = false;
+        verifyCopies = false;
         deleteRowAfterMove = false;
         renameReplacementMask = DEFAULT_REPLACEMENT_MASK;
         checkForUpdates = true;
@@ -229,6 +242,45 @@ public class UserPreferences extends Observable {
         return preloadFolder;
     }
 
+    /**
+     * Gets whether or not to keep watching the preload folder after it has been
+     * loaded, and add new files to the table as they appear.
+     *
+     * @return true if we should watch the preload folder for new files
+     */
+    public boolean isWatchPreloadFolder() {
+        return watchPreloadFolder;
+    }
+
+    /**
+     * Gets the extensions of the files to consider when adding a folder.  If the list
+     * is empty, files with any extension (other than the denied ones) are considered.
+     *
+     * @return a list of file extensions, such as "mkv" or "avi"
+     */
+    public List<String> getAllowedExtensions() {
+        return allowedExtensions;
+    }
+
+    /**
+     * Gets the extensions of the files to skip when adding a folder, such as "nfo"
+     * or "jpg".
+     *
+     * @return a list of file extensions
+     */
+    public List<String> getDeniedExtensions() {
+        return deniedExtensions;
+    }
+
+    /**
+     * Gets the size, in bytes, below which files are skipped when adding a folder.
+     *
+     * @return the minimum size of a file to consider
+     */
+    public long getMinimumFileSize() {
+        return minimumFileSize;
+    }
+
     /**
      * Create the directory if it doesn't exist and we need it.
      *
@@ -390,6 +442,56 @@ public class UserPreferences extends Observable {
         return removeEmptiedDirectories;
     }
 
+    /**
+     * Sets whether or not we want the FileMover to leave the original files where
+     * they are, and give the renamed files their place in the destination by linking
+     * to the originals (or copying them, where linking is not possible).
+     *
+     * @param keepOriginals whether or not we want the FileMover to leave the
+     *               original files in place
+     */
+    public void setKeepOriginals(boolean keepOriginals) {
+        if (valuesAreDifferent(this.keepOriginals, keepOriginals)) {
+            this.keepOriginals = keepOriginals;
+
+            preferenceChanged(UserPreference.KEEP_ORIGINALS);
+        }
+    }
+
+    /**
+     * Get whether or not we want the FileMover to leave the original files where
+     * they are, and link or copy them to their destinations.
+     *
+     * @return true if we want the FileMover to leave the original files in place
+     */
+    public boolean isKeepOriginals() {
+        return keepOriginals;
+    }
+
+    /**
+     * Sets whether or not we want the FileMover to check that a file it has copied
+     * to another disk matches the original, before deleting the original.
+     *
+     * @param verifyCopies whether or not we want the FileMover to verify copies
+     */
+    public void setVerifyCopies(boolean verifyCopies) {
+        if (valuesAreDifferent(this.verifyCopies, verifyCopies)) {
+            this.verifyCopies = verifyCopies;
+
+            preferenceChanged(UserPreference.VERIFY_COPIES);
+        }
+    }
+
+    /**
+     * Get whether or not we want the FileMover to check that a file it has copied
+     * to another disk matches the original, before deleting the original.
+     *
+     * @return true if we want the FileMover to verify copies
+     */
+    public boolean isVerifyCopies() {
+        return verifyCopies;
+    }
+
     /**
      * Sets whether or not we want the UI to automatically delete rows after the
      * files have been successfully moved/renamed.
@@ -109,6 +109,14 @@ public class Constants {
     public static final String REMOVE_EMPTIED_TEXT = "Remove emptied directories [?]";
     public static final String REMOVE_EMPTIED_TOOLTIP = "When selected, directories which become empty "
         + "due to file movement will be deleted.";
+    public static final String VERIFY_COPIES_TEXT = "Verify copied files [?]";
+    public static final String VERIFY_COPIES_TOOLTIP = "When selected, a file copied to another "
+        + "disk is checked against\nthe original before the original is deleted.  This makes "
+        + "copies\nsomewhat slower.";
+    public static final String KEEP_ORIGINALS_TEXT = "Keep original files [?]";
+    public static final String KEEP_ORIGINALS_TOOLTIP = "When selected, original files are left where "
+        + "they are,\nand the renamed files are hard links to them (or copies,\nwhen the "
+        + "destination is on a different disk).";
     public static final String CHECK_UPDATES_TEXT = "Check for Updates at startup [?]";
     public static final String CHECK_UPDATES_TOOLTIP = "If checked, will automatically check "
         + APPLICATION_NAME + " website for new versions at startup, and offer to update if found";
@@ -147,6 +155,19 @@ public class Constants {
     public static final String MOVE_FAILURE_MSG_1 = "Some files were not moved";
     public static final String MOVE_FAILURE_PARTIAL_MSG = ".  These include";
     public static final String NEWLINE_BULLET = "\n\u2022 ";
+    public static final String NO_SPACE_LABEL = "Not Enough Space";
+    public static final String NO_SPACE_MSG = "Some files will not be moved, because there "
+        + "is not enough space for them:";
+    public static final String NO_SPACE_QUESTION = "\n\nMove the other files?";
+    public static final String UNDO_LABEL = "Undo Last Move";
+    public static final String UNDO_NOTHING_MSG = "There are no moves to undo.";
+    public static final String UNDO_BUSY_MSG = "Moves can't be undone while files are "
+        + "being moved.";
+    public static final String UNDO_RESULT_MSG = "Files moved back: ";
+    public static final String UNDO_FAILURE_MSG = "Some files were not moved back";
+    public static final String PLAN_LABEL = "Export Move Plan...";
+    public static final String PLAN_RESULT_MSG = "Nothing was moved.  The move plan was saved to ";
+    public static final String PLAN_FAILURE_MSG = "Could not save the move plan to ";
     public static final String MOVE_INTRO = "Clicking this button will ";
     public static final String AND_RENAME = "rename and ";
     public static final String INTRO_MOVE_DIR = "move the checked files to the directory "
@@ -204,12 +225,21 @@ public class Constants {
     public static final String DEFAULT_REPLACEMENT_MASK = "%S [%sx%0e] %t";
     public static final String DEFAULT_SEASON_PREFIX = "Season ";
     public static final String DEFAULT_IGNORED_KEYWORD = "sample";
+    public static final String PARTIAL_COPY_SUFFIX = ".tvrpart";
+    public static final String COPY_CHECKPOINT_SUFFIX = ".tvrckpt";
+    public static final String VERIFYING_COPY_STATUS = "verifying";
+    public static final String[] DEFAULT_DENIED_EXTENSIONS = {
+        "nfo", "txt", "jpg", "jpeg", "png", "gif", "sfv", "md5", "nzb", "url", "par2", "db", "ini",
+        PARTIAL_COPY_SUFFIX.substring(1), COPY_CHECKPOINT_SUFFIX.substring(1)
+    };
     public static final String DUPLICATES_DIRECTORY = "versions";
     public static final String DEFAULT_LANGUAGE = "en";
 
     private static final String CONFIGURATION_DIRECTORY_NAME = ".tvrenamer";
     private static final String PREFERENCES_FILENAME = "prefs.xml";
     private static final String OVERRIDES_FILENAME = "overrides.xml";
+    private static final String SCAN_INDEX_FILENAME = "scanindex.dat";
+    private static final String MOVE_JOURNAL_FILENAME = "moves.journal";
 
     public static final Path TMP_DIR = Paths.get(Environment.TMP_DIR_NAME);
 
@@ -218,6 +248,8 @@ public class Constants {
     public static final Path CONFIGURATION_DIRECTORY = USER_HOME_DIR.resolve(CONFIGURATION_DIRECTORY_NAME);
     public static final Path PREFERENCES_FILE = CONFIGURATION_DIRECTORY.resolve(PREFERENCES_FILENAME);
     public static final Path OVERRIDES_FILE = CONFIGURATION_DIRECTORY.resolve(OVERRIDES_FILENAME);
+    public static final Path SCAN_INDEX_FILE = CONFIGURATION_DIRECTORY.resolve(SCAN_INDEX_FILENAME);
+    public static final Path MOVE_JOURNAL_FILE = CONFIGURATION_DIRECTORY.resolve(MOVE_JOURNAL_FILENAME);
 
     public static final Path PREFERENCES_FILE_LEGACY = USER_HOME_DIR.resolve("tvrenamer.preferences");
     public static final Path OVERRIDES_FILE_LEGACY = USER_HOME_DIR.resolve(".tvrenameroverrides");
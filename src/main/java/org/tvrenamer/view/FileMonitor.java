@@ -6,28 +6,47 @@ import org.eclipse.swt.widgets.TableItem;
 
 import org.tvrenamer.model.FileEpisode;
 import org.tvrenamer.model.MoveObserver;
+import org.tvrenamer.model.MoveProgress;
 
 import java.text.NumberFormat;
 
+/**
+ * Monitors the move of a single file.  The progress of a copy is only recorded
+ * here; the ProgressBarUpdater calls refresh() on the UI thread to show it.
+ */
 public class FileMonitor implements MoveObserver {
     private final NumberFormat format = NumberFormat.getPercentInstance();
 
     private final ResultsTable ui;
     private final TableItem item;
     private final Display display;
+    private final ProgressBarUpdater updater;
+    private final MoveProgress progress;
     private Label label = null;
     private long maximum = 0;
-    private int loopCount = 0;
+
+    // Written by the thread doing the move.  A negative value means we're waiting
+    // for the first value, which is where the copy starts from; see MoveObserver.
+    private long reported = -1L;
+    private volatile long value = 0L;
+    private volatile String status = null;
+
+    // Used only on the UI thread
+    private long shownValue = -1L;
+    private String shownStatus = null;
 
     /**
      * Creates the monitor, with the label and the display.
      *
      * @param ui - the ResultsTable instance
      * @param item - the TableItem to monitor
+     * @param updater - the ProgressBarUpdater of the batch this move is part of
      */
-    public FileMonitor(ResultsTable ui, TableItem item) {
+    public FileMonitor(ResultsTable ui, TableItem item, ProgressBarUpdater updater) {
         this.ui = ui;
         this.item = item;
+        this.updater = updater;
+        progress = updater.getMoveProgress();
         display = ui.getDisplay();
         format.setMaximumFractionDigits(1);
     }
@@ -41,7 +60,9 @@ public class FileMonitor implements MoveObserver {
     public void initializeProgress(final long max) {
         display.syncExec(() -> label = ui.getProgressLabel(item));
         maximum = max;
-        setProgressValue(0);
+        reported = -1L;
+        value = 0L;
+        updater.addActiveMonitor(this);
     }
 
     /**
@@ -51,14 +72,14 @@ public class FileMonitor implements MoveObserver {
      */
     @Override
     public void setProgressValue(final long value) {
-        if (loopCount++ % 500 == 0) {
-            display.asyncExec(() -> {
-                if (label.isDisposed()) {
-                    return;
-                }
-                label.setText(format.format((double) value / maximum));
-            });
+        if (reported < 0L) {
+            // Bytes copied by an earlier attempt were not copied just now
+            progress.addBytesSkipped(value);
+        } else {
+            progress.addBytesCopied(value - reported);
         }
+        reported = value;
+        this.value = value;
     }
 
     /**
@@ -68,12 +89,27 @@ public class FileMonitor implements MoveObserver {
      */
     @Override
     public void setProgressStatus(final String status) {
-        display.asyncExec(() -> {
-            if (label.isDisposed()) {
-                return;
-            }
-            label.setToolTipText(status);
-        });
+        this.status = status;
+    }
+
+    /**
+     * Show the latest progress in the label, if it has changed.  Must be called
+     * on the UI thread.
+     */
+    void refresh() {
+        if ((label == null) || label.isDisposed()) {
+            return;
+        }
+        long latestValue = value;
+        if ((latestValue != shownValue) && (maximum > 0)) {
+            label.setText(format.format((double) latestValue / maximum));
+            shownValue = latestValue;
+        }
+        String latestStatus = status;
+        if ((latestStatus != null) && !latestStatus.equals(shownStatus)) {
+            label.setToolTipText(latestStatus);
+            shownStatus = latestStatus;
+        }
     }
 
     /**
@@ -81,6 +117,7 @@ public class FileMonitor implements MoveObserver {
      */
     @Override
     public void finishProgress(final FileEpisode episode) {
+        updater.removeActiveMonitor(this);
         if (!display.isDisposed()) {
             display.asyncExec(() -> {
                 if ((label != null) && (!label.isDisposed())) {
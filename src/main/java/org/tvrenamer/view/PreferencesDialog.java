@@ -133,6 +133,8 @@ class PreferencesDialog extends Dialog {
     private Button checkForUpdatesCheckbox;
     private Button recurseFoldersCheckbox;
     private Button rmdirEmptyCheckbox;
+    private Button keepOriginalsCheckbox;
+    private Button verifyCopiesCheckbox;
     private Button deleteRowsCheckbox;
     private TabFolder tabFolder;
     private Shell preferencesShell;
@@ -422,6 +424,12 @@ class PreferencesDialog extends Dialog {
         rmdirEmptyCheckbox = createCheckbox(REMOVE_EMPTIED_TEXT, REMOVE_EMPTIED_TOOLTIP,
                                             prefs.isRemoveEmptiedDirectories(), generalGroup,
                                             GridData.BEGINNING, 3);
+        keepOriginalsCheckbox = createCheckbox(KEEP_ORIGINALS_TEXT, KEEP_ORIGINALS_TOOLTIP,
+                                               prefs.isKeepOriginals(), generalGroup,
+                                               GridData.BEGINNING, 3);
+        verifyCopiesCheckbox = createCheckbox(VERIFY_COPIES_TEXT, VERIFY_COPIES_TOOLTIP,
+                                              prefs.isVerifyCopies(), generalGroup,
+                                              GridData.BEGINNING, 3);
         deleteRowsCheckbox = createCheckbox(DELETE_ROWS_TEXT, DELETE_ROWS_TOOLTIP,
                                             prefs.isDeleteRowAfterMove(), generalGroup,
                                             GridData.BEGINNING, 3);
@@ -570,6 +578,8 @@ class PreferencesDialog extends Dialog {
         prefs.setCheckForUpdates(checkForUpdatesCheckbox.getSelection());
         prefs.setRecursivelyAddFolders(recurseFoldersCheckbox.getSelection());
         prefs.setRemoveEmptiedDirectories(rmdirEmptyCheckbox.getSelection());
+        prefs.setKeepOriginals(keepOriginalsCheckbox.getSelection());
+        prefs.setVerifyCopies(verifyCopiesCheckbox.getSelection());
         prefs.setDeleteRowAfterMove(deleteRowsCheckbox.getSelection());
         prefs.setDestinationDirectory(destDirText.getText());
 
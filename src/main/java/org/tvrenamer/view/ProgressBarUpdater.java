@@ -2,21 +2,44 @@ package org.tvrenamer.view;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.ProgressBar;
 import org.eclipse.swt.widgets.TaskItem;
 
+import org.tvrenamer.model.MoveProgress;
 import org.tvrenamer.model.ProgressUpdater;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Shows the progress of a batch of moves: the overall progress bar, the task item,
+ * the speed and time left, and the progress labels of the individual files being
+ * copied.
+ *
+ * Neither this class nor the FileMonitors post anything to the UI thread when
+ * they're told of progress; they just record it.  Instead, while the batch is
+ * running, a timer on the UI thread samples everything SAMPLES_PER_SECOND times a
+ * second, and redraws whatever has changed.
+ */
 public class ProgressBarUpdater implements ProgressUpdater {
+    private static final int SAMPLES_PER_SECOND = 10;
+    private static final int SAMPLE_INTERVAL_MILLIS = 1000 / SAMPLES_PER_SECOND;
 
     private final ResultsTable ui;
     private final Display display;
     private final TaskItem taskItem;
     private final ProgressBar progressBar;
+    private final Label speedLabel;
     private final int barSize;
 
+    private final MoveProgress progress = new MoveProgress();
+    private final Queue<FileMonitor> activeMonitors = new ConcurrentLinkedQueue<>();
+    private volatile boolean finished = false;
+
     /**
-     * Constructs a ProgressBarUpdater for the given ResultsTable.
+     * Constructs a ProgressBarUpdater for the given ResultsTable.  Must be called
+     * on the UI thread.
      *
      * @param ui
      *    the ResultsTable that will use this ProgressBarUpdater
@@ -26,12 +49,63 @@ public class ProgressBarUpdater implements ProgressUpdater {
         this.display = ui.getDisplay();
         this.taskItem = ui.getTaskItem();
         this.progressBar = ui.getProgressBar();
+        this.speedLabel = ui.getSpeedLabel();
         this.barSize = progressBar.getMaximum();
 
         if (taskItem != null) {
             taskItem.setProgressState(SWT.NORMAL);
             taskItem.setOverlayImage(ItemState.RENAMING.getIcon());
         }
+        display.timerExec(SAMPLE_INTERVAL_MILLIS, this::sample);
+    }
+
+    /**
+     * @return the progress of the batch, for the FileMonitors to report to
+     */
+    MoveProgress getMoveProgress() {
+        return progress;
+    }
+
+    /**
+     * Starts sampling the given monitor, which has begun copying a file.
+     *
+     * @param monitor
+     *    the monitor of the file being copied
+     */
+    void addActiveMonitor(final FileMonitor monitor) {
+        activeMonitors.add(monitor);
+    }
+
+    /**
+     * Stops sampling the given monitor.
+     *
+     * @param monitor
+     *    the monitor of a file that is no longer being copied
+     */
+    void removeActiveMonitor(final FileMonitor monitor) {
+        activeMonitors.remove(monitor);
+    }
+
+    /**
+     * Redraws the progress.  Runs on the UI thread, and reschedules itself until
+     * the batch is finished.
+     */
+    private void sample() {
+        if (finished || progressBar.isDisposed()) {
+            return;
+        }
+        for (FileMonitor monitor : activeMonitors) {
+            monitor.refresh();
+        }
+        final float fraction = progress.getFileFraction();
+        progressBar.setSelection(Math.round(fraction * barSize));
+        if ((taskItem != null) && !taskItem.isDisposed()) {
+            taskItem.setProgress(Math.round(fraction * 100));
+        }
+        if (!speedLabel.isDisposed()) {
+            speedLabel.setText(progress.describe(System.nanoTime()));
+        }
+        display.timerExec(SAMPLE_INTERVAL_MILLIS, this::sample);
     }
 
     /**
@@ -40,10 +114,14 @@ public class ProgressBarUpdater implements ProgressUpdater {
      */
     @Override
     public void finish() {
+        finished = true;
         display.asyncExec(() -> {
             if (progressBar != null) {
                 progressBar.setSelection(0);
             }
+            if (!speedLabel.isDisposed()) {
+                speedLabel.setText("");
+            }
             if (taskItem != null) {
                 taskItem.setOverlayImage(null);
                 taskItem.setProgressState(SWT.DEFAULT);
@@ -53,7 +131,7 @@ public class ProgressBarUpdater implements ProgressUpdater {
     }
 
     /**
-     * Updates the progress bar and the task item
+     * Records the progress of the batch, to be shown the next time we sample it
      *
      * @param totalNumFiles
      *            the total number of files to be moved during the duration
@@ -63,22 +141,32 @@ public class ProgressBarUpdater implements ProgressUpdater {
      */
     @Override
     public void setProgress(final int totalNumFiles, final int nRemaining) {
-        if (display.isDisposed()) {
-            return;
-        }
+        progress.setFiles(totalNumFiles, nRemaining);
+    }
 
-        final float progress = (float) (totalNumFiles - nRemaining) / totalNumFiles;
-        display.asyncExec(() -> {
-            if (progressBar.isDisposed()) {
-                return;
-            }
-            progressBar.setSelection(Math.round(progress * barSize));
-            if (taskItem != null) {
-                if (taskItem.isDisposed()) {
-                    return;
-                }
-                taskItem.setProgress(Math.round(progress * 100));
-            }
-        });
+    /**
+     * Records how many bytes the batch will copy, to estimate the time left
+     *
+     * @param totalBytes
+     *            the total size of the files that will be copied
+     */
+    @Override
+    public void setBytesToCopy(final long totalBytes) {
+        progress.setBytesToCopy(totalBytes);
+    }
+
+    /**
+     * Records how the moves stand, to be shown the next time we sample it
+     *
+     * @param inFlight
+     *            the number of moves that are running right now
+     * @param done
+     *            the number of moves that have succeeded
+     * @param failed
+     *            the number of moves that have failed, or been cancelled
+     */
+    @Override
+    public void setMoveCounts(final int inFlight, final int done, final int failed) {
+        progress.setMoveCounts(inFlight, failed);
     }
 }
@@ -40,6 +40,8 @@ import org.eclipse.swt.widgets.TaskItem;
 import org.tvrenamer.controller.AddEpisodeListener;
 import org.tvrenamer.controller.FileMover;
 import org.tvrenamer.controller.MoveRunner;
+import org.tvrenamer.controller.MovePlan;
+import org.tvrenamer.controller.MoveUndo;
 import org.tvrenamer.controller.ShowInformationListener;
 import org.tvrenamer.controller.ShowListingsListener;
 import org.tvrenamer.controller.UpdateChecker;
@@ -54,15 +56,23 @@ import org.tvrenamer.model.ShowStore;
 import org.tvrenamer.model.UserPreference;
 import org.tvrenamer.model.UserPreferences;
 
+import java.nio.file.Paths;
 import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 public final class ResultsTable implements Observer, AddEpisodeListener {
     private static final Logger logger = Logger.getLogger(ResultsTable.class.getName());
@@ -79,6 +89,46 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
     private static final int DEFAULT_MAX_FAILURES_TO_LIST = 3;
 
+    // When refreshing the destinations, how many rows to compute before handing
+    // them to the UI thread to be updated.
+    private static final int REFRESH_BATCH_SIZE = 250;
+
+    // Runs the destination refreshes.  A single thread, since each refresh cancels
+    // the previous one anyway; the rows of each batch are computed in parallel.
+    private static final ExecutorService REFRESH_EXECUTOR
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "RefreshDestinations");
+            t.setDaemon(true);
+            return t;
+        });
+
+    // Walks the folders and files the user adds.  The files found are published back
+    // to us in batches as the walk goes on, so the table fills in while it's running.
+    private static final ExecutorService SCAN_EXECUTOR
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "AddFiles");
+            t.setDaemon(true);
+            return t;
+        });
+
+    // Moves files back when the user undoes a batch.  That can take as long as the
+    // moves did, so it has a thread of its own, and doesn't hold up adding files.
+    private static final ExecutorService UNDO_EXECUTOR
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "UndoMoves");
+            t.setDaemon(true);
+            return t;
+        });
+
+    // Works out and saves move plans.  Planning lists every destination folder, so
+    // it's kept off the thread that adds files, too.
+    private static final ExecutorService PLAN_EXECUTOR
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ExportMovePlan");
+            t.setDaemon(true);
+            return t;
+        });
+
     private final UIStarter ui;
     private final Shell shell;
     private final Display display;
@@ -87,12 +137,19 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
     private Button actionButton;
     private ProgressBar totalProgressBar;
+    private Label speedLabel;
     private TaskItem taskItem = null;
 
     private final Queue<FileEpisode> currentFailures = new ConcurrentLinkedQueue<>();
 
     private boolean apiDeprecated = false;
 
+    // Whether a batch of moves, or an undo, is running; used only on the UI thread
+    private boolean movesInProgress = false;
+    private boolean undoInProgress = false;
+
+    private final AtomicInteger refreshGeneration = new AtomicInteger(0);
+
     private synchronized void checkDestinationDirectory() {
         boolean success = prefs.ensureDestDir();
         if (!success) {
@@ -112,7 +169,17 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         // Load the preload folder into the episode map, which will call
         // us back with the list of files once they've been loaded.
         episodeMap.subscribe(this);
-        episodeMap.preload();
+        SCAN_EXECUTOR.submit(episodeMap::preload);
+    }
+
+    /**
+     * Called when the UI is going away.  Stops watching the preload folder, and saves
+     * what we know about it, so the next time we start, the files that haven't changed
+     * can be loaded quickly.
+     */
+    void shutDown() {
+        episodeMap.stopWatching();
+        episodeMap.savePreloadIndex();
     }
 
     Display getDisplay() {
@@ -123,6 +190,10 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         return totalProgressBar;
     }
 
+    Label getSpeedLabel() {
+        return speedLabel;
+    }
+
     TaskItem getTaskItem() {
         return taskItem;
     }
@@ -297,8 +368,24 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         return item;
     }
 
+    /**
+     * Add a batch of episodes to the table, and start looking up their shows.
+     *
+     * The EpisodeDb publishes the files it finds in batches, from whatever thread is
+     * doing the scan; if we're not on the UI thread, repost ourselves to it.
+     *
+     * @param episodes
+     *    the newly found episodes to add to the table
+     */
     @Override
     public void addEpisodes(final Queue<FileEpisode> episodes) {
+        if (display.getThread() != Thread.currentThread()) {
+            display.asyncExec(() -> addEpisodes(episodes));
+            return;
+        }
+        if (swtTable.isDisposed()) {
+            return;
+        }
         for (final FileEpisode episode : episodes) {
             final TableItem item = createTableItem(episode);
             if (!episode.wasParsed()) {
@@ -371,6 +458,7 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
     private void renameFiles() {
         final List<FileMover> pendingMoves = new LinkedList<>();
+        final ProgressBarUpdater updater = new ProgressBarUpdater(this);
         for (final TableItem item : swtTable.getItems()) {
             if (item.getChecked()) {
                 String fileName = CURRENT_FILE_FIELD.getCellText(item);
@@ -381,13 +469,25 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                     continue;
                 }
                 FileMover pendingMove = new FileMover(episode);
-                pendingMove.addObserver(new FileMonitor(this, item));
+                pendingMove.addObserver(new FileMonitor(this, item, updater));
                 pendingMoves.add(pendingMove);
             }
         }
 
         MoveRunner mover = new MoveRunner(pendingMoves);
-        mover.setUpdater(new ProgressBarUpdater(this));
+        String spaceReport = mover.getSpaceReport();
+        if ((spaceReport != null)
+            && !ui.confirm(SWTMessageBoxType.DLG_WARN, NO_SPACE_LABEL,
+                           NO_SPACE_MSG + NEWLINE_BULLET
+                           + spaceReport.replace("\n", NEWLINE_BULLET)
+                           + NO_SPACE_QUESTION))
+        {
+            logger.info("user chose not to move files after space check");
+            updater.finish();
+            return;
+        }
+        mover.setUpdater(updater);
+        movesInProgress = true;
         mover.runThread();
     }
 
@@ -484,24 +584,112 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
      * specified.  This method iterates over each item, makes sure the model is
      * updated ({@link FileEpisode}), and then updates the relevant fields.
      *
+     * Checking each file and re-computing its destination is done on a background
+     * thread, with the rows of each batch handled in parallel, so that a large table
+     * doesn't freeze the UI.  Each batch of results is then applied to the table in
+     * a single UI update.  If this is called again before a refresh has finished
+     * (for example, because the user changed another preference), the earlier
+     * refresh is abandoned, and the new one starts over from the top.
+     *
      * (Doesn't bother updating other fields, because we know nothing in the
      * Preferences Dialog can cause them to need to be changed.)
      */
     public void refreshDestinations() {
+        if (display.getThread() != Thread.currentThread()) {
+            display.asyncExec(this::refreshDestinations);
+            return;
+        }
+        if (swtTable.isDisposed()) {
+            return;
+        }
         logger.info("Refreshing destinations");
-        for (TableItem item : swtTable.getItems()) {
-            String fileName = CURRENT_FILE_FIELD.getCellText(item);
-            String newFileName = episodeMap.currentLocationOf(fileName);
-            if (newFileName == null) {
-                // Not expected, but could happen, primarily if some other,
-                // unrelated program moves the file out from under us.
-                deleteTableItem(item);
-                return;
+
+        // Any refresh that is still underway is now out of date.  Bumping the generation
+        // causes it to stop, and causes any of its batches not yet applied to be dropped.
+        final int generation = refreshGeneration.incrementAndGet();
+
+        // Reading the table must be done here, on the UI thread.  Checking the files and
+        // computing the new destinations, which can be slow, is done in the background.
+        final TableItem[] items = swtTable.getItems();
+        final String[] fileNames = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            fileNames[i] = CURRENT_FILE_FIELD.getCellText(items[i]);
+        }
+
+        REFRESH_EXECUTOR.submit(() -> {
+            for (int start = 0; start < items.length; start += REFRESH_BATCH_SIZE) {
+                if (generation != refreshGeneration.get()) {
+                    logger.fine("abandoning out-of-date refresh of destinations");
+                    return;
+                }
+                final int end = Math.min(start + REFRESH_BATCH_SIZE, items.length);
+                final FileEpisode[] refreshed = new FileEpisode[end - start];
+                final int offset = start;
+                IntStream.range(start, end).parallel().forEach(i -> {
+                    if (generation == refreshGeneration.get()) {
+                        refreshed[i - offset] = refreshEpisode(fileNames[i]);
+                    }
+                });
+                display.asyncExec(() -> applyRefreshedBatch(generation, items, offset,
+                                                            refreshed));
             }
-            FileEpisode episode = episodeMap.get(newFileName);
+        });
+    }
+
+    /**
+     * Bring the FileEpisode for the given file up to date with the current preferences.
+     * This does not touch the table, and may be called from any thread.
+     *
+     * @param fileName
+     *    the file name, as shown in the table
+     * @return the refreshed FileEpisode, or null if the file is no longer there
+     */
+    private FileEpisode refreshEpisode(final String fileName) {
+        String newFileName = episodeMap.currentLocationOf(fileName);
+        if (newFileName == null) {
+            // Not expected, but could happen, primarily if some other,
+            // unrelated program moves the file out from under us.
+            return null;
+        }
+        FileEpisode episode = episodeMap.get(newFileName);
+        if (episode != null) {
             episode.refreshReplacement();
-            setProposedDestColumn(item, episode);
-            setTableItemStatus(item, episode.optionCount());
+        }
+        return episode;
+    }
+
+    /**
+     * Update the table rows for one batch of refreshed episodes.  Must be run on the
+     * UI thread.  Does nothing if a newer refresh has been started since this batch
+     * was computed.
+     *
+     * @param generation
+     *    the refresh that computed this batch
+     * @param items
+     *    all the table items that were being refreshed
+     * @param offset
+     *    the index, within items, of the first row of this batch
+     * @param refreshed
+     *    the refreshed episodes of this batch; null for files which have gone missing
+     */
+    private void applyRefreshedBatch(final int generation, final TableItem[] items,
+                                     final int offset, final FileEpisode[] refreshed)
+    {
+        if ((generation != refreshGeneration.get()) || swtTable.isDisposed()) {
+            return;
+        }
+        for (int i = 0; i < refreshed.length; i++) {
+            final TableItem item = items[offset + i];
+            if (item.isDisposed()) {
+                continue;
+            }
+            final FileEpisode episode = refreshed[i];
+            if (episode == null) {
+                deleteTableItem(item);
+            } else {
+                setProposedDestColumn(item, episode);
+                setTableItemStatus(item, episode.optionCount());
+            }
         }
     }
 
@@ -626,7 +814,126 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                           failureMessage.toString());
     }
 
+    /**
+     * Removes the rows of the files that an undo has moved back, since those rows
+     * give where the files had been moved to.  Must be called on the UI thread.
+     *
+     * @param movedBack
+     *    the paths the files were moved back from
+     */
+    private void deleteMovedBackItems(final Set<String> movedBack) {
+        for (final TableItem item : swtTable.getItems()) {
+            if (movedBack.contains(CURRENT_FILE_FIELD.getCellText(item))) {
+                deleteTableItem(item);
+            }
+        }
+    }
+
+    /**
+     * Undoes the last batch of moves, in the background, and then tells the user
+     * how it went.  The rows of the files that were moved back are replaced by
+     * rows for where the files are now.  Nothing is undone while a batch of moves
+     * is running.
+     */
+    void undoLastMoves() {
+        if (movesInProgress || undoInProgress) {
+            ui.showMessageBox(SWTMessageBoxType.DLG_WARN, UNDO_LABEL, UNDO_BUSY_MSG);
+            return;
+        }
+        undoInProgress = true;
+        actionButton.setEnabled(false);
+        UNDO_EXECUTOR.submit(() -> {
+            final List<MoveUndo.Result> results = MoveUndo.undoLastBatch();
+            final List<String> restored = new ArrayList<>();
+            final Set<String> movedBack = new HashSet<>();
+            final List<MoveUndo.Result> failures = new ArrayList<>();
+            if (results != null) {
+                for (MoveUndo.Result result : results) {
+                    if (result.isRestored()) {
+                        restored.add(result.getTo().toString());
+                        movedBack.add(result.getFrom().toString());
+                    } else {
+                        failures.add(result);
+                    }
+                }
+            }
+            display.asyncExec(() -> {
+                undoInProgress = false;
+                if (actionButton.isDisposed()) {
+                    return;
+                }
+                deleteMovedBackItems(movedBack);
+                if (!restored.isEmpty()) {
+                    final String[] fileNames = restored.toArray(new String[0]);
+                    SCAN_EXECUTOR.submit(() -> episodeMap.addArrayOfStringsToQueue(fileNames));
+                }
+                if (!movesInProgress) {
+                    actionButton.setEnabled(true);
+                }
+                if (results == null) {
+                    ui.showMessageBox(SWTMessageBoxType.DLG_OK, UNDO_LABEL, UNDO_NOTHING_MSG);
+                } else if (failures.isEmpty()) {
+                    ui.showMessageBox(SWTMessageBoxType.DLG_OK, UNDO_LABEL,
+                                      UNDO_RESULT_MSG + restored.size());
+                } else {
+                    StringBuilder message = new StringBuilder(UNDO_FAILURE_MSG);
+                    int toInclude = Math.min(failures.size(), DEFAULT_MAX_FAILURES_TO_LIST);
+                    if (failures.size() > toInclude) {
+                        message.append(MOVE_FAILURE_PARTIAL_MSG);
+                    }
+                    message.append(':');
+                    for (MoveUndo.Result failure : failures.subList(0, toInclude)) {
+                        message.append(NEWLINE_BULLET).append(failure.getFrom().getFileName())
+                            .append(" (").append(failure.getProblem()).append(')');
+                    }
+                    ui.showMessageBox(SWTMessageBoxType.DLG_ERR, ERROR_LABEL, message.toString());
+                }
+            });
+        });
+    }
+
+    /**
+     * Works out what renaming the checked files would do, without doing it, and
+     * saves the plan to a file the user chooses; see MovePlan.
+     */
+    void exportMovePlan() {
+        final FileDialog fd = new FileDialog(shell, SWT.SAVE);
+        fd.setFileName("move-plan.jsonl");
+        fd.setOverwrite(true);
+        final String planFile = fd.open();
+        if (planFile == null) {
+            return;
+        }
+        final List<FileMover> plannedMoves = new ArrayList<>();
+        for (final TableItem item : swtTable.getItems()) {
+            if (item.getChecked()) {
+                final FileEpisode episode = episodeMap.get(CURRENT_FILE_FIELD.getCellText(item));
+                if ((episode != null) && (episode.optionCount() > 0)) {
+                    plannedMoves.add(new FileMover(episode));
+                }
+            }
+        }
+        PLAN_EXECUTOR.submit(() -> {
+            final MovePlan plan = MovePlan.plan(plannedMoves);
+            final boolean saved = plan.export(Paths.get(planFile));
+            display.asyncExec(() -> {
+                if (swtTable.isDisposed()) {
+                    return;
+                }
+                if (saved) {
+                    ui.showMessageBox(SWTMessageBoxType.DLG_OK, PLAN_LABEL,
+                                      PLAN_RESULT_MSG + planFile + ":" + NEWLINE_BULLET
+                                      + plan.describe().replace("\n", NEWLINE_BULLET));
+                } else {
+                    ui.showMessageBox(SWTMessageBoxType.DLG_ERR, ERROR_LABEL,
+                                      PLAN_FAILURE_MSG + planFile);
+                }
+            });
+        });
+    }
+
     void finishAllMoves() {
+        movesInProgress = false;
         ui.setAppIcon();
         if (currentFailures.size() > 0) {
             informUserOfFailures();
@@ -747,7 +1054,8 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
             public void widgetSelected(SelectionEvent e) {
                 String pathPrefix = fd.open();
                 if (pathPrefix != null) {
-                    episodeMap.addFilesToQueue(pathPrefix, fd.getFileNames());
+                    final String[] fileNames = fd.getFileNames();
+                    SCAN_EXECUTOR.submit(() -> episodeMap.addFilesToQueue(pathPrefix, fileNames));
                 }
             }
         });
@@ -761,7 +1069,7 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                 String directory = dd.open();
                 if (directory != null) {
                     // load all of the files in the dir
-                    episodeMap.addFolderToQueue(directory);
+                    SCAN_EXECUTOR.submit(() -> episodeMap.addFolderToQueue(directory));
                 }
             }
 
@@ -782,7 +1090,7 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
 
     private void setupBottomComposite() {
         Composite bottomButtonsComposite = new Composite(shell, SWT.FILL);
-        bottomButtonsComposite.setLayout(new GridLayout(3, false));
+        bottomButtonsComposite.setLayout(new GridLayout(4, false));
 
         GridData bottomButtonsCompositeGridData = new GridData(SWT.FILL, SWT.CENTER, true, false, 3, 1);
         bottomButtonsComposite.setLayoutData(bottomButtonsCompositeGridData);
@@ -803,6 +1111,11 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
         totalProgressBar = new ProgressBar(bottomButtonsComposite, SWT.SMOOTH);
         totalProgressBar.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, true));
 
+        speedLabel = new Label(bottomButtonsComposite, SWT.RIGHT);
+        GridData speedLabelGridData = new GridData(GridData.END, GridData.CENTER, false, false);
+        speedLabelGridData.widthHint = 220;
+        speedLabel.setLayoutData(speedLabelGridData);
+
         actionButton = new Button(bottomButtonsComposite, SWT.PUSH);
         GridData actionButtonGridData = new GridData(GridData.END, GridData.CENTER, false, false);
         actionButton.setLayoutData(actionButtonGridData);
@@ -825,7 +1138,7 @@ public final class ResultsTable implements Observer, AddEpisodeListener {
                 FileTransfer ft = FileTransfer.getInstance();
                 if (ft.isSupportedType(e.currentDataType)) {
                     String[] fileList = (String[]) e.data;
-                    episodeMap.addArrayOfStringsToQueue(fileList);
+                    SCAN_EXECUTOR.submit(() -> episodeMap.addArrayOfStringsToQueue(fileList));
                 }
             }
         });
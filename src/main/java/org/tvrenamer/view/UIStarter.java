@@ -86,20 +86,21 @@ public final class UIStarter {
         return defaultFont;
     }
 
-    private void showMessageBox(final SWTMessageBoxType type, final String title,
-                                final String message, final Exception exception)
+    private int showMessageBox(final SWTMessageBoxType type, final String title,
+                               final String message, final Exception exception)
     {
         if (shell.isDisposed()) {
             // Shell is gone, try using JOptionPane instead
             try {
                 JOptionPane.showMessageDialog(null, message);
-                return;
+                return SWT.OK;
             } catch (HeadlessException he) {
                 logger.warning("Could not show message graphically: " + message);
-                return;
+                return SWT.CANCEL;
             }
         }
 
+        final int[] response = { SWT.CANCEL };
         display.syncExec(() -> {
             MessageBox msgBox = new MessageBox(shell, type.getSwtIconValue());
             msgBox.setText(title);
@@ -110,8 +111,9 @@ public final class UIStarter {
                 msgBox.setMessage(message + "\n" + exception.getLocalizedMessage());
             }
 
-            msgBox.open();
+            response[0] = msgBox.open();
         });
+        return response[0];
     }
 
     /**
@@ -127,6 +129,21 @@ public final class UIStarter {
         showMessageBox(type, title, message, null);
     }
 
+    /**
+     * Show a message box of the given type with the given message content and window
+     * title, and find out whether the user chose to go ahead.
+     *
+     * @param type the {@link SWTMessageBoxType} to create
+     * @param title the window title
+     * @param message the message content
+     * @return true if the user pressed OK; false if they cancelled
+     */
+    public boolean confirm(final SWTMessageBoxType type,
+                           final String title, final String message)
+    {
+        return showMessageBox(type, title, message, null) == SWT.OK;
+    }
+
     /**
      * Set the Shell's icon.<p>
      *
@@ -189,6 +206,24 @@ public final class UIStarter {
         return helpMenu;
     }
 
+    private void setupEditMenuBar(final Menu menuBar, final Listener undoListener,
+                                  final Listener planListener)
+    {
+        MenuItem editMenuHeader = new MenuItem(menuBar, SWT.CASCADE);
+        editMenuHeader.setText("Edit");
+
+        Menu editMenu = new Menu(shell, SWT.DROP_DOWN);
+        editMenuHeader.setMenu(editMenu);
+
+        MenuItem undoItem = new MenuItem(editMenu, SWT.PUSH);
+        undoItem.setText(UNDO_LABEL);
+        undoItem.addListener(SWT.Selection, undoListener);
+
+        MenuItem planItem = new MenuItem(editMenu, SWT.PUSH);
+        planItem.setText(PLAN_LABEL);
+        planItem.addListener(SWT.Selection, planListener);
+    }
+
     private void setupMenuBar() {
         Menu menuBarMenu = new Menu(shell, SWT.BAR);
         Menu helpMenu;
@@ -202,12 +237,15 @@ public final class UIStarter {
             aboutDialog.open();
         };
         Listener quitListener = e -> quit();
+        Listener undoListener = e -> resultsTable.undoLastMoves();
+        Listener planListener = e -> resultsTable.exportMovePlan();
 
         if (Environment.IS_MAC_OSX) {
             // Add the special Mac OSX Preferences, About and Quit menus.
             CocoaUIEnhancer enhancer = new CocoaUIEnhancer();
             enhancer.hookApplicationMenu(display, quitListener, aboutListener, preferencesListener);
 
+            setupEditMenuBar(menuBarMenu, undoListener, planListener);
             setupHelpMenuBar(menuBarMenu);
         } else {
             // Add the normal Preferences, About and Quit menus.
@@ -220,6 +258,7 @@ public final class UIStarter {
             makeMenuItem(fileMenu, PREFERENCES_LABEL, preferencesListener, 'P');
             makeMenuItem(fileMenu, EXIT_LABEL, quitListener, 'Q');
 
+            setupEditMenuBar(menuBarMenu, undoListener, planListener);
             helpMenu = setupHelpMenuBar(menuBarMenu);
 
             // The About item is added to the OSX bar, so we need to add it manually here
@@ -284,6 +323,7 @@ public final class UIStarter {
                     display.sleep();
                 }
             }
+            resultsTable.shutDown();
             display.dispose();
             return 0;
         } catch (Exception exception) {
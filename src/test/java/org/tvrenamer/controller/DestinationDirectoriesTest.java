@@ -0,0 +1,86 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DestinationDirectoriesTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testListedOnce() throws IOException {
+        final Path dir = tempFolder.newFolder("Show", "Season 1").toPath();
+        Files.write(dir.resolve("Show S01E01.mkv"), new byte[1]);
+
+        DestinationDirectories destinations = new DestinationDirectories();
+        assertTrue(destinations.exists(dir, "Show S01E01.mkv"));
+        assertFalse(destinations.exists(dir, "Show S01E02.mkv"));
+
+        // Files created after the listing are not seen, unless we're told of them
+        Files.write(dir.resolve("Show S01E02.mkv"), new byte[1]);
+        assertFalse(destinations.exists(dir, "Show S01E02.mkv"));
+        destinations.added(dir, "Show S01E02.mkv");
+        assertTrue(destinations.exists(dir, "Show S01E02.mkv"));
+    }
+
+    @Test
+    public void testCaseVariantCheckedOnDisk() throws IOException {
+        final Path dir = tempFolder.newFolder("Other Show").toPath();
+        Files.write(dir.resolve("Other Show S01E01.mkv"), new byte[1]);
+
+        DestinationDirectories destinations = new DestinationDirectories();
+        // Whether this exists depends on the filesystem; the answer should agree
+        // with the filesystem either way
+        assertEquals(Files.exists(dir.resolve("other show s01e01.mkv")),
+                     destinations.exists(dir, "other show s01e01.mkv"));
+    }
+
+    @Test
+    public void testPrepare() throws IOException {
+        final Path root = tempFolder.getRoot().toPath();
+        final Path dir = root.resolve("New Show").resolve("Season 2");
+
+        DestinationDirectories destinations = new DestinationDirectories();
+        assertFalse(destinations.exists(dir, "New Show S02E01.mkv"));
+        Path realDir = destinations.prepare(dir);
+        assertEquals(dir.toRealPath(), realDir);
+        assertTrue(Files.isDirectory(realDir));
+
+        final Path file = Files.write(root.resolve("in the way"), new byte[1]);
+        assertNull(destinations.prepare(file));
+    }
+
+    @Test
+    public void testPrepareAgain() throws IOException {
+        final Path root = tempFolder.getRoot().toPath();
+        final Path blocker = Files.write(root.resolve("Blocked Show"), new byte[1]);
+        final Path dir = blocker.resolve("Season 1");
+
+        // A failure is not remembered; once the problem is fixed, the next
+        // move into the directory can use it
+        DestinationDirectories destinations = new DestinationDirectories();
+        assertNull(destinations.prepare(dir));
+        Files.delete(blocker);
+        Path realDir = destinations.prepare(dir);
+        assertEquals(dir.toRealPath(), realDir);
+
+        // If the directory is removed, it's created again
+        Files.delete(dir);
+        Files.delete(blocker);
+        destinations.removed(realDir.getParent());
+        realDir = destinations.prepare(dir);
+        assertTrue(Files.isDirectory(dir));
+        assertEquals(dir.toRealPath(), realDir);
+    }
+}
@@ -0,0 +1,157 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.model.FileEpisode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MoveJournalTest {
+
+    @BeforeClass
+    public static void initializePrefs() {
+        MoveTest.initializePrefs();
+    }
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private MoveJournal openJournal() {
+        MoveJournal journal = new MoveJournal(tempFolder.getRoot().toPath().resolve("moves.journal"));
+        journal.recover();
+        return journal;
+    }
+
+    private List<MoveJournal.RecordedBatch> readJournal() throws IOException {
+        return MoveJournal.read(tempFolder.getRoot().toPath().resolve("moves.journal"));
+    }
+
+    @Test
+    public void testMovesRecorded() throws Exception {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        final Path destDir = tempPath.resolve("output");
+        FileMover.userPrefs.setDestinationDirectory(destDir.toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+
+        final List<FileMover> moves = MoveTest.createMoves(tempPath.resolve("input"),
+                                                           "Journaled Show", 2, 3);
+
+        final MoveJournal journal = openJournal();
+        MoveTest.runBatch(moves, journal);
+        journal.close();
+
+        List<MoveJournal.RecordedBatch> batches = readJournal();
+        assertEquals(1, batches.size());
+        MoveJournal.RecordedBatch batch = batches.get(0);
+        assertTrue(batch.ended);
+        assertEquals(3, batch.moves.size());
+        for (MoveJournal.RecordedMove move : batch.moves) {
+            assertFalse(move.copy);
+            assertEquals(Boolean.TRUE, move.moved);
+            assertEquals(move.dest, move.result);
+            assertTrue(Files.exists(move.result));
+            assertFalse(Files.exists(move.source));
+        }
+    }
+
+    @Test
+    public void testInterruptedMovesResolved() throws IOException {
+        final Path src = tempFolder.newFolder("src").toPath();
+        final Path dest = tempFolder.newFolder("dest").toPath();
+
+        // A rename that happened, but wasn't recorded as done
+        final Path renamedSrc = Files.write(src.resolve("renamed.mkv"), new byte[] { 1 });
+        final Path renamedDest = dest.resolve("Renamed.mkv");
+        // A rename that never happened; the name is there to test escaping
+        final Path notRenamedSrc = Files.write(src.resolve("not\trenamed.mkv"), new byte[] { 2 });
+        final Path notRenamedDest = dest.resolve("Not\nRenamed.mkv");
+        // A copy that completed, but whose original was not deleted
+        final Path copiedSrc = Files.write(src.resolve("copied.mkv"), new byte[] { 3, 4 });
+        final Path copiedDest = Files.write(dest.resolve("Copied.mkv"), new byte[] { 3, 4 });
+        // A copy that was cut short, without a checkpoint to resume from
+        final Path partialSrc = Files.write(src.resolve("partial.mkv"), new byte[] { 5, 6 });
+        final Path partialDest = dest.resolve("Partial.mkv");
+        final Path partial = Files.write(dest.resolve("Partial.mkv.tvrpart"), new byte[] { 5 });
+
+        MoveJournal journal = openJournal();
+        MoveJournal.Batch batch = journal.startBatch();
+        batch.intent(false, renamedSrc, renamedDest);
+        Files.move(renamedSrc, renamedDest);
+        batch.intent(false, notRenamedSrc, notRenamedDest);
+        batch.intent(true, copiedSrc, copiedDest);
+        batch.intent(true, partialSrc, partialDest);
+        // ... and then the program dies
+        journal.close();
+
+        openJournal().close();
+
+        List<MoveJournal.RecordedBatch> batches = readJournal();
+        assertEquals(1, batches.size());
+        List<MoveJournal.RecordedMove> moves = batches.get(0).moves;
+        assertEquals(4, moves.size());
+
+        assertEquals(Boolean.TRUE, moves.get(0).moved);
+        assertEquals(renamedDest, moves.get(0).result);
+
+        assertEquals(Boolean.FALSE, moves.get(1).moved);
+        assertEquals(notRenamedSrc, moves.get(1).source);
+        assertEquals(notRenamedDest, moves.get(1).dest);
+        assertTrue(Files.exists(notRenamedSrc));
+
+        assertEquals(Boolean.TRUE, moves.get(2).moved);
+        assertFalse(Files.exists(copiedSrc));
+        assertTrue(Files.exists(copiedDest));
+
+        assertEquals(Boolean.FALSE, moves.get(3).moved);
+        assertTrue(Files.exists(partialSrc));
+        assertFalse(Files.exists(partial));
+    }
+
+    @Test
+    public void testMoveSkippedIfIntentNotDurable() throws IOException {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        FileMover.userPrefs.setDestinationDirectory(tempPath.resolve("output").toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+        final FileEpisode episode = MoveTest
+            .episodeData("journaled show/2x04.Chapter.4.mkv", "Journaled Show", 2, 4, "Chapter 4")
+            .createFileEpisode(tempPath.resolve("input"));
+        final Path source = episode.getPath();
+
+        final MoveJournal journal = openJournal();
+        final MoveJournal.Batch batch = journal.startBatch();
+        // Once the journal is closed, nothing more can be written to it
+        journal.close();
+        final FileMover move = new FileMover(episode);
+        move.setRename(true);
+        move.recordIntent(batch);
+        assertFalse(batch.commit());
+        assertFalse(journal.isRecording());
+
+        assertFalse(move.call());
+        assertTrue(Files.exists(source));
+        assertEquals(source, episode.getPath());
+    }
+
+    @Test
+    public void testOldBatchesDropped() throws IOException {
+        MoveJournal journal = openJournal();
+        for (int i = 0; i < MoveJournal.KEPT_BATCHES + 3; i++) {
+            journal.startBatch().end();
+        }
+        journal.close();
+        assertEquals(MoveJournal.KEPT_BATCHES + 3, readJournal().size());
+
+        openJournal().close();
+        assertEquals(MoveJournal.KEPT_BATCHES, readJournal().size());
+    }
+}
@@ -0,0 +1,109 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.tvrenamer.model.util.Constants.DUPLICATES_DIRECTORY;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.model.EpisodeTestData;
+import org.tvrenamer.model.FileEpisode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class MovePlanTest {
+
+    @BeforeClass
+    public static void initializePrefs() {
+        MoveTest.initializePrefs();
+    }
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static EpisodeTestData planEpisode(final String inputFilename, final int episode,
+                                               final String title)
+    {
+        return MoveTest.episodeData(inputFilename, "Plan Show", 1, episode, title);
+    }
+
+    @Test
+    public void testPlanMovesNothing() throws IOException {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        final Path input = tempPath.resolve("input");
+        final Path seasonDir = tempPath.resolve("output").resolve("Plan Show").resolve("Season 1");
+        FileMover.userPrefs.setDestinationDirectory(tempPath.resolve("output").toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+
+        final List<FileEpisode> episodes = new ArrayList<>();
+        // Two copies of the same episode
+        episodes.add(planEpisode("plan show/1x01.Pilot.mkv", 1, "Pilot")
+                     .createFileEpisode(input));
+        episodes.add(planEpisode("plan show/extra/1x01.Pilot.mkv", 1, "Pilot")
+                     .createFileEpisode(input));
+        // One that is already at the destination
+        episodes.add(planEpisode("plan show/1x02.Second.mkv", 2, "Second")
+                     .createFileEpisode(input));
+        // And one that has gone away
+        episodes.add(planEpisode("plan show/1x03.Third.mkv", 3, "Third")
+                     .createFileEpisode(input));
+
+        Files.createDirectories(seasonDir);
+        final Path existing = Files.createFile(seasonDir.resolve("S01E02 Second.mkv"));
+        final List<FileMover> moves = new ArrayList<>();
+        for (FileEpisode episode : episodes) {
+            moves.add(new FileMover(episode));
+        }
+        Files.delete(episodes.get(3).getPath());
+
+        final MovePlan plan = MovePlan.plan(moves);
+        final List<MovePlan.Step> steps = plan.getSteps();
+        assertEquals(moves.size(), steps.size());
+
+        // The conflicting copy of episode 1 goes into the duplicates folder, as does
+        // episode 2, which conflicts with the file already there
+        final Path duplicates = seasonDir.resolve(DUPLICATES_DIRECTORY);
+        final Set<Path> firstEpisode = new HashSet<>();
+        firstEpisode.add(steps.get(0).getDestination());
+        firstEpisode.add(steps.get(1).getDestination());
+        assertTrue(firstEpisode.contains(seasonDir.resolve("S01E01 Pilot.mkv")));
+        assertTrue(firstEpisode.contains(duplicates.resolve("S01E01 Pilot (2).mkv")));
+        assertEquals(duplicates.resolve("S01E02 Second (2).mkv"), steps.get(2).getDestination());
+
+        // Everything is in the one temporary folder, so these are all renames
+        assertEquals(MovePlan.Action.RENAME, steps.get(0).getAction());
+        assertEquals(MovePlan.Action.RENAME, steps.get(1).getAction());
+        assertEquals(MovePlan.Action.RENAME, steps.get(2).getAction());
+        assertEquals(MovePlan.Action.MISSING, steps.get(3).getAction());
+        assertEquals(3, plan.count(MovePlan.Action.RENAME));
+        assertTrue(plan.getBytesToCopy().isEmpty());
+
+        final StringWriter json = new StringWriter();
+        plan.writeJsonLines(json);
+        final String[] lines = json.toString().split("\n");
+        assertEquals(moves.size(), lines.length);
+        assertTrue(lines[3], lines[3].startsWith("{\"type\":\"move\",\"action\":\"missing\","));
+
+        // And nothing was actually moved, or created
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Files.exists(episodes.get(i).getPath()));
+        }
+        assertFalse(Files.exists(duplicates));
+        try (Stream<Path> contents = Files.list(seasonDir)) {
+            assertEquals(1L, contents.count());
+        }
+        assertTrue(Files.exists(existing));
+    }
+}
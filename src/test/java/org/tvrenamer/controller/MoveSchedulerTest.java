@@ -0,0 +1,118 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.model.EpisodeTestData;
+import org.tvrenamer.model.FileEpisode;
+import org.tvrenamer.model.ProgressUpdater;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MoveSchedulerTest {
+    private static final int N_EPISODES = 40;
+
+    @BeforeClass
+    public static void initializePrefs() {
+        MoveTest.initializePrefs();
+    }
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testBatchOfRenames() throws Exception {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        final Path sandbox = tempPath.resolve("input");
+        final Path destDir = tempPath.resolve("output");
+        FileMover.userPrefs.setDestinationDirectory(destDir.toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+
+        final List<FileEpisode> episodes = new ArrayList<>();
+        final List<Path> expected = new ArrayList<>();
+        final List<FileMover> moves = new ArrayList<>();
+        for (int i = 1; i <= N_EPISODES; i++) {
+            String num = String.format("%02d", i);
+            String filename = "scheduled show/3x" + num + ".Part." + i + ".mp4";
+            EpisodeTestData data = MoveTest.episodeData(filename, "Scheduled Show", 3, i,
+                                                        "Part " + i);
+            FileEpisode episode = data.createFileEpisode(sandbox);
+            episodes.add(episode);
+            expected.add(destDir.resolve("Scheduled Show").resolve("Season 3")
+                         .resolve(data.expectedReplacement + ".mp4"));
+            moves.add(new FileMover(episode));
+        }
+
+        final CompletableFuture<Boolean> finished = new CompletableFuture<>();
+        // In flight, done, and failed, as last reported
+        final int[] counts = new int[3];
+        MoveRunner runner = new MoveRunner(moves);
+        runner.setUpdater(new ProgressUpdater() {
+                @Override
+                public void setProgress(int totalNumFiles, int nRemaining) {
+                    assertEquals(N_EPISODES, totalNumFiles);
+                }
+
+                @Override
+                public void setBytesToCopy(long totalBytes) {
+                    assertEquals(0L, totalBytes);
+                }
+
+                @Override
+                public void setMoveCounts(int inFlight, int done, int failed) {
+                    counts[0] = inFlight;
+                    counts[1] = done;
+                    counts[2] = failed;
+                }
+
+                @Override
+                public void finish() {
+                    finished.complete(true);
+                }
+            });
+        runner.runThread();
+        assertTrue(finished.get(30, TimeUnit.SECONDS));
+        assertEquals(0, counts[0]);
+        assertEquals(N_EPISODES, counts[1]);
+        assertEquals(0, counts[2]);
+
+        for (int i = 0; i < N_EPISODES; i++) {
+            assertTrue("not moved: " + expected.get(i), Files.exists(expected.get(i)));
+            assertTrue(episodes.get(i).isSuccess());
+        }
+    }
+
+    @Test
+    public void testKeepingOriginalLinks() {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        FileMover.userPrefs.setDestinationDirectory(tempPath.resolve("output").toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+        final FileEpisode episode = MoveTest
+            .episodeData("kept show/1x01.Pilot.mp4", "Kept Show", 1, 1, "Pilot")
+            .createFileEpisode(tempPath.resolve("input"));
+
+        final MoveScheduler scheduler = new MoveScheduler();
+        assertFalse(scheduler.mayCopy(new FileMover(episode)));
+
+        // On the same device, a move that keeps the original is a link, as long
+        // as the device can link; the temporary folder can
+        FileMover.userPrefs.setKeepOriginals(true);
+        try {
+            assertTrue(scheduler.canLink(tempPath.resolve("output")));
+            assertFalse(scheduler.mayCopy(new FileMover(episode)));
+        } finally {
+            FileMover.userPrefs.setKeepOriginals(false);
+        }
+    }
+}
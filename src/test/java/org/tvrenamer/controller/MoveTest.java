@@ -10,9 +10,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import org.tvrenamer.controller.util.StringUtils;
 import org.tvrenamer.model.EpisodeTestData;
 import org.tvrenamer.model.FileEpisode;
 import org.tvrenamer.model.MoveObserver;
+import org.tvrenamer.model.ProgressUpdater;
 import org.tvrenamer.model.util.Environment;
 
 import java.io.IOException;
@@ -67,6 +69,104 @@ public class MoveTest {
         FileMover.logger.setLevel(Level.SEVERE);
     }
 
+    /**
+     * Describes an episode to be renamed with the mask "S%0sE%0e %t", for the
+     * tests that move batches of files.  Each episode is given an ID of its own.
+     *
+     * @param inputFilename
+     *    the path of the file, relative to the directory it will be created in;
+     *    its extension is used as the suffix
+     * @param properShowName
+     *    the name of the show; its lower-case form is what the filename gives
+     * @param season
+     *    the season number
+     * @param episode
+     *    the episode number
+     * @param title
+     *    the title of the episode
+     * @return the data, from which to create the FileEpisode
+     */
+    static EpisodeTestData episodeData(final String inputFilename, final String properShowName,
+                                       final int season, final int episode, final String title)
+    {
+        return new EpisodeTestData.Builder()
+            .inputFilename(inputFilename)
+            .filenameShow(StringUtils.toLower(properShowName))
+            .properShowName(properShowName)
+            .seasonNumString(String.valueOf(season))
+            .episodeNumString(String.format("%02d", episode))
+            .filenameSuffix(inputFilename.substring(inputFilename.lastIndexOf('.')))
+            .episodeTitle(title)
+            .replacementMask("S%0sE%0e %t")
+            .expectedReplacement(String.format("S%02dE%02d %s", season, episode, title))
+            .build();
+    }
+
+    /**
+     * Creates files for the first episodes of a season of a show, titled "Part 1",
+     * "Part 2", and so on, and a FileMover for each; see episodeData.
+     *
+     * @param sandbox
+     *    the directory to create the files in, in a folder for the show
+     * @param properShowName
+     *    the name of the show
+     * @param season
+     *    the season number
+     * @param count
+     *    how many episodes to create
+     * @return the FileMovers, in order of episode number
+     */
+    static List<FileMover> createMoves(final Path sandbox, final String properShowName,
+                                       final int season, final int count)
+    {
+        final List<FileMover> moves = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            String filename = StringUtils.toLower(properShowName) + "/" + season + "x"
+                + String.format("%02d", i) + ".Part." + i + ".mkv";
+            FileEpisode episode = episodeData(filename, properShowName, season, i, "Part " + i)
+                .createFileEpisode(sandbox);
+            moves.add(new FileMover(episode));
+        }
+        return moves;
+    }
+
+    /**
+     * Runs a batch of moves, recording them in the given journal, and waits for it
+     * to finish.
+     *
+     * @param moves
+     *    the moves to run
+     * @param journal
+     *    the journal to record them in; may be null
+     * @throws Exception if the batch doesn't finish in time
+     */
+    static void runBatch(final List<FileMover> moves, final MoveJournal journal)
+        throws Exception
+    {
+        final CompletableFuture<Boolean> finished = new CompletableFuture<>();
+        MoveRunner runner = new MoveRunner(moves, journal);
+        runner.setUpdater(new ProgressUpdater() {
+                @Override
+                public void setProgress(int totalNumFiles, int nRemaining) {
+                }
+
+                @Override
+                public void setBytesToCopy(long totalBytes) {
+                }
+
+                @Override
+                public void setMoveCounts(int inFlight, int done, int failed) {
+                }
+
+                @Override
+                public void finish() {
+                    finished.complete(true);
+                }
+            });
+        runner.runThread();
+        assertTrue(finished.get(30, TimeUnit.SECONDS));
+    }
+
     private static final EpisodeTestData robotChicken0704 = new EpisodeTestData.Builder()
         .inputFilename("robot chicken/7x04.Rebel.Appliance.mp4")
         .filenameShow("robot chicken")
@@ -176,6 +276,27 @@ public class MoveTest {
         assertTimestamp(now);
     }
 
+    @Test
+    public void testFileMoverKeepsOriginal() throws IOException {
+        setValues(robotChicken0704);
+        assertReady();
+
+        FileMover.userPrefs.setKeepOriginals(true);
+        try {
+            FileMover mover = new FileMover(episode);
+            assertTrue(mover.call());
+        } finally {
+            FileMover.userPrefs.setKeepOriginals(false);
+        }
+
+        assertMoved();
+        assertTrue("original " + srcFile + " was not kept", Files.exists(srcFile));
+        // The temporary folder is all on one disk, so the file should be linked
+        assertTrue(expectedDest + " is not a link to " + srcFile,
+                   Files.isSameFile(srcFile, expectedDest));
+        assertTrue(Files.isSameFile(expectedDest, episode.getPath()));
+    }
+
     @Test
     public void testFileMoverCannotMove() {
         setValues(robotChicken0704);
@@ -266,6 +387,32 @@ public class MoveTest {
         executeMoveRunnerTest(moveList, future);
     }
 
+    @Test
+    public void testMoveRunnerWaitsToStart() throws Exception {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        setValues(robotChicken0704);
+        assertReady();
+
+        FileMover mover = new FileMover(episode);
+        mover.addObserver(new FutureCompleter(future));
+
+        List<FileMover> moveList = new ArrayList<>();
+        moveList.add(mover);
+
+        // Creating the runner only plans the moves; nothing should be moved until
+        // it's told to run
+        MoveRunner runner = new MoveRunner(moveList);
+        Thread.sleep(200);
+        assertFalse("move started before runThread", future.isDone());
+        assertTrue("file moved before runThread", Files.exists(srcFile));
+        assertTrue("destination created before runThread", Files.notExists(expectedDest));
+
+        runner.runThread();
+        assertTrue(future.get(4, TimeUnit.SECONDS));
+        assertMoved();
+    }
+
     @Test
     public void testMoveRunnerCannotMove() {
         final CompletableFuture<Boolean> future = new CompletableFuture<>();
@@ -0,0 +1,161 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MoveUndoTest {
+    private static final int N_EPISODES = 5;
+
+    @BeforeClass
+    public static void initializePrefs() {
+        MoveTest.initializePrefs();
+    }
+
+    @After
+    public void restorePrefs() {
+        FileMover.userPrefs.setRemoveEmptiedDirectories(false);
+    }
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testUndoLastBatch() throws Exception {
+        final Path tempPath = tempFolder.getRoot().toPath().toRealPath();
+        final Path sandbox = tempPath.resolve("input");
+        final Path destDir = tempPath.resolve("output");
+        FileMover.userPrefs.setDestinationDirectory(destDir.toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+        FileMover.userPrefs.setRemoveEmptiedDirectories(true);
+
+        final List<Path> originals = new ArrayList<>();
+        final List<FileMover> moves = MoveTest.createMoves(sandbox, "Undone Show", 4, N_EPISODES);
+        for (FileMover move : moves) {
+            originals.add(move.getCurrentPath().toRealPath());
+        }
+        final Path originalDir = originals.get(0).getParent();
+
+        final MoveJournal journal = new MoveJournal(tempPath.resolve("moves.journal"));
+        journal.recover();
+        MoveTest.runBatch(moves, journal);
+        for (Path original : originals) {
+            assertFalse(Files.exists(original));
+        }
+        assertFalse("emptied directory was not removed", Files.exists(originalDir));
+
+        List<MoveUndo.Result> results = MoveUndo.undoLastBatch(journal, destDir);
+        assertEquals(N_EPISODES, results.size());
+        for (MoveUndo.Result result : results) {
+            assertTrue(result.isRestored());
+            assertFalse(Files.exists(result.getFrom()));
+        }
+        for (Path original : originals) {
+            assertTrue("not moved back: " + original, Files.exists(original));
+        }
+        assertFalse("show directory was left behind",
+                    Files.exists(destDir.resolve("Undone Show")));
+        assertTrue(Files.exists(destDir));
+
+        // The batch has been undone, so there's nothing left to undo
+        assertNull(MoveUndo.undoLastBatch(journal, destDir));
+        journal.close();
+    }
+
+    @Test
+    public void testUndoRetriesFilesNotPutBack() throws Exception {
+        final Path tempPath = tempFolder.getRoot().toPath().toRealPath();
+        final Path sandbox = tempPath.resolve("input");
+        final Path destDir = tempPath.resolve("output");
+        FileMover.userPrefs.setDestinationDirectory(destDir.toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+
+        final MoveJournal journal = new MoveJournal(tempPath.resolve("moves.journal"));
+        journal.recover();
+        final List<FileMover> older = MoveTest.createMoves(sandbox, "Older Show", 1, 2);
+        MoveTest.runBatch(older, journal);
+        final List<Path> olderMoved = new ArrayList<>();
+        for (FileMover move : older) {
+            olderMoved.add(move.getCurrentPath());
+        }
+
+        final List<FileMover> newer = MoveTest.createMoves(sandbox, "Newer Show", 2, N_EPISODES);
+        final List<Path> originals = new ArrayList<>();
+        for (FileMover move : newer) {
+            originals.add(move.getCurrentPath().toRealPath());
+        }
+        MoveTest.runBatch(newer, journal);
+
+        // Something else takes the place of one of the files
+        final Path blocked = originals.get(2);
+        Files.write(blocked, new byte[] { 1 });
+        List<MoveUndo.Result> results = MoveUndo.undoLastBatch(journal, destDir);
+        assertEquals(N_EPISODES, results.size());
+        int restored = 0;
+        for (MoveUndo.Result result : results) {
+            if (result.isRestored()) {
+                restored++;
+            } else {
+                assertEquals(blocked, result.getTo());
+            }
+        }
+        assertEquals(N_EPISODES - 1, restored);
+
+        // Once it's out of the way, undoing again puts back just that file, and
+        // leaves the older batch alone
+        Files.delete(blocked);
+        results = MoveUndo.undoLastBatch(journal, destDir);
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isRestored());
+        assertEquals(blocked, results.get(0).getTo());
+        for (Path original : originals) {
+            assertTrue("not moved back: " + original, Files.exists(original));
+        }
+        for (Path moved : olderMoved) {
+            assertTrue("older batch was undone: " + moved, Files.exists(moved));
+        }
+
+        // Only now is the older batch the one to undo
+        results = MoveUndo.undoLastBatch(journal, destDir);
+        assertEquals(older.size(), results.size());
+        journal.close();
+    }
+
+    @Test
+    public void testRunningBatchNotUndone() throws Exception {
+        final Path tempPath = tempFolder.getRoot().toPath().toRealPath();
+        final Path source = Files.write(tempPath.resolve("running.mkv"), new byte[] { 1 });
+        final Path dest = tempPath.resolve("Running.mkv");
+
+        final MoveJournal journal = new MoveJournal(tempPath.resolve("moves.journal"));
+        journal.recover();
+        // A batch that has moved a file, but has not ended
+        final MoveJournal.Batch batch = journal.startBatch();
+        final MoveJournal.Entry entry = batch.intent(false, source, dest);
+        assertTrue(entry.awaitDurable());
+        Files.move(source, dest);
+        entry.finished(true, dest);
+
+        assertNull(MoveUndo.undoLastBatch(journal, null));
+        assertTrue(Files.exists(dest));
+
+        batch.end();
+        List<MoveUndo.Result> results = MoveUndo.undoLastBatch(journal, null);
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isRestored());
+        assertTrue(Files.exists(source));
+        journal.close();
+    }
+}
@@ -0,0 +1,62 @@
+package org.tvrenamer.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SpaceCheckTest {
+
+    @BeforeClass
+    public static void initializePrefs() {
+        MoveTest.initializePrefs();
+    }
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testFitSmallestFirst() {
+        List<Long> sizes = Arrays.asList(700L, 100L, 400L, 300L, 200L);
+        List<Long> left = new ArrayList<>();
+        List<Long> fitting = SpaceCheck.fit(sizes, Long::longValue, 1000L, left);
+        assertEquals(Arrays.asList(100L, 200L, 300L, 400L), fitting);
+        assertEquals(Arrays.asList(700L), left);
+
+        left.clear();
+        assertTrue(SpaceCheck.fit(sizes, Long::longValue, 50L, left).isEmpty());
+        assertEquals(sizes.size(), left.size());
+    }
+
+    @Test
+    public void testMargin() {
+        assertEquals(SpaceCheck.MINIMUM_SPACE_MARGIN, SpaceCheck.marginFor(0L));
+        long fourTerabytes = 4L * 1024 * 1024 * 1024 * 1024;
+        assertEquals(fourTerabytes / 100, SpaceCheck.marginFor(fourTerabytes));
+    }
+
+    @Test
+    public void testRenamesNeedNoSpace() {
+        final Path tempPath = tempFolder.getRoot().toPath();
+        FileMover.userPrefs.setDestinationDirectory(tempPath.resolve("output").toString());
+        FileMover.userPrefs.setRenameReplacementString("S%0sE%0e %t");
+
+        final List<FileMover> moves = MoveTest.createMoves(tempPath.resolve("input"),
+                                                           "Roomy Show", 1, 3);
+
+        // Everything is in the one temporary folder, so these are all renames
+        SpaceCheck check = new SpaceCheck(new MoveScheduler());
+        assertEquals(moves, check.check(moves));
+        assertTrue(check.getShortfalls().isEmpty());
+        assertNull(check.describe());
+    }
+}
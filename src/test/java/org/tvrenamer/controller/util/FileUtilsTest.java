@@ -12,6 +12,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import org.tvrenamer.model.FileEpisode;
+import org.tvrenamer.model.MoveObserver;
 import org.tvrenamer.model.util.Environment;
 
 import java.io.File;
@@ -20,8 +22,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public class FileUtilsTest {
 
@@ -235,4 +241,75 @@ public class FileUtilsTest {
         assertTrue("file from ensureWritableDirectory is a directory",
                    Files.isDirectory(dirpath));
     }
+
+    @Test
+    public void testRemoveEmptyDirectories() throws IOException {
+        final Path input = tempFolder.newFolder("input").toPath();
+        final Path showA = input.resolve("Show A");
+        final Path seasonA1 = Files.createDirectories(showA.resolve("Season 1"));
+        final Path seasonA2 = Files.createDirectories(showA.resolve("Season 2"));
+        final Path seasonB1 = Files.createDirectories(input.resolve("Show B").resolve("Season 1"));
+        Files.write(seasonB1.resolve("kept.mkv"), new byte[1]);
+
+        final List<Path> removed = new ArrayList<>();
+        assertEquals(3, removeEmptyDirectories(Arrays.asList(seasonA2, seasonB1, seasonA1,
+                                                             input.resolve("gone")),
+                                               removed));
+
+        // Deepest first; the two seasons could be in either order
+        assertEquals(new HashSet<>(Arrays.asList(seasonA1, seasonA2)),
+                     new HashSet<>(removed.subList(0, 2)));
+        assertEquals(showA, removed.get(2));
+        assertFalse(Files.exists(showA));
+        assertTrue(Files.exists(seasonB1.resolve("kept.mkv")));
+        assertTrue(Files.isDirectory(input));
+    }
+
+    @Test
+    public void testSupportsLinks() throws IOException {
+        final Path sandbox = tempFolder.getRoot().toPath();
+        assertTrue(supportsLinks(sandbox));
+        // The probe leaves nothing behind
+        try (Stream<Path> contents = Files.list(sandbox)) {
+            assertEquals(0, contents.count());
+        }
+        assertFalse(supportsLinks(sandbox.resolve("no such folder")));
+    }
+
+    @Test
+    public void testCopyWithUpdates() throws IOException {
+        // Slightly more than two chunks, so the last transfer is a partial one
+        final int size = (int) (2 * COPY_CHUNK_SIZE) + 1234;
+        final byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        final Path source = tempFolder.getRoot().toPath().resolve("copy source.bin");
+        final Path dest = tempFolder.getRoot().toPath().resolve("copy dest.bin");
+        Files.write(source, content);
+
+        final List<Long> values = new ArrayList<>();
+        MoveObserver observer = new MoveObserver() {
+                @Override
+                public void initializeProgress(long max) {
+                }
+
+                @Override
+                public void setProgressValue(long value) {
+                    values.add(value);
+                }
+
+                @Override
+                public void setProgressStatus(String status) {
+                }
+
+                @Override
+                public void finishProgress(FileEpisode episode) {
+                }
+            };
+        assertTrue(copyWithUpdates(source, dest, observer));
+        assertTrue(Arrays.equals(content, Files.readAllBytes(dest)));
+        assertEquals(3, values.size());
+        assertEquals(Long.valueOf(size), values.get(2));
+    }
 }
@@ -0,0 +1,88 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class KeywordMatcherTest {
+
+    /*
+     * The way ignore keywords used to be checked, kept here as a reference.
+     */
+    private static String firstContained(final List<String> keywords, final String text) {
+        for (String keyword : keywords) {
+            if (text.contains(keyword)) {
+                return keyword;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testFirstMatchInListOrder() {
+        List<String> keywords = Arrays.asList("sample", "proof", "amp", "trailer", "PROPER");
+        KeywordMatcher matcher = new KeywordMatcher(keywords);
+
+        assertEquals("sample", matcher.firstMatch("/tv/Show.S01E01.sample.avi"));
+        // "amp" is found before "sample" ends, but "sample" comes first in the list
+        assertEquals("sample", matcher.firstMatch("Show.S01E01.proof.sample.avi"));
+        assertEquals("proof", matcher.firstMatch("Show.S01E01.proof.trailer.avi"));
+        assertEquals("amp", matcher.firstMatch("Show.S01E01.example.avi"));
+        assertEquals("PROPER", matcher.firstMatch("Show.S01E01.PROPER.avi"));
+        assertNull(matcher.firstMatch("Show.S01E01.Proper.avi"));
+        assertNull(matcher.firstMatch(""));
+        assertEquals(-1, matcher.firstMatchIndex("nothing to see here"));
+    }
+
+    @Test
+    public void testOverlappingKeywords() {
+        List<String> keywords = Arrays.asList("abcd", "bcx", "cd", "\u00fcber", "b\u00e9");
+        KeywordMatcher matcher = new KeywordMatcher(keywords);
+
+        // The automaton must fall back from "abc" to "bc" to find "bcx"
+        assertEquals("bcx", matcher.firstMatch("xxabcxx"));
+        assertEquals("abcd", matcher.firstMatch("xxabcdxx"));
+        assertEquals("cd", matcher.firstMatch("xxabxcdxx"));
+        assertEquals("\u00fcber", matcher.firstMatch("Show.\u00fcber.S01E01"));
+        assertEquals("b\u00e9", matcher.firstMatch("Show.b\u00e9b\u00e9.S01E01"));
+    }
+
+    @Test
+    public void testNoKeywords() {
+        KeywordMatcher matcher = new KeywordMatcher(Collections.emptyList());
+        assertEquals(0, matcher.size());
+        assertNull(matcher.firstMatch("anything at all"));
+    }
+
+    @Test
+    public void testMatchesContains() {
+        final Random random = new Random(35);
+        final String alphabet = "abcde.S0";
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            StringBuilder keyword = new StringBuilder();
+            int length = 2 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                keyword.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            keywords.add(keyword.toString());
+        }
+        KeywordMatcher matcher = new KeywordMatcher(keywords);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertEquals(text.toString(), firstContained(keywords, text.toString()),
+                         matcher.firstMatch(text.toString()));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ParallelFileWalkerTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static Path createFile(final Path dir, final String name) throws IOException {
+        Files.createDirectories(dir);
+        return Files.write(dir.resolve(name), new byte[] { 1, 2, 3 });
+    }
+
+    private Set<Path> walkAll(final Path root, final int parallelism) {
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        ParallelFileWalker.walk(root, parallelism, (file, attrs) -> {
+            assertTrue(attrs.isRegularFile());
+            assertEquals(3, attrs.size());
+            assertTrue("visited twice: " + file, visited.add(file));
+        });
+        return visited;
+    }
+
+    @Test
+    public void testWalkFindsVisibleFiles() throws IOException {
+        final Path root = tempFolder.getRoot().toPath();
+        final Set<Path> expected = new HashSet<>();
+        for (int season = 1; season <= 5; season++) {
+            Path seasonDir = root.resolve("Show").resolve("Season " + season);
+            for (int ep = 1; ep <= 12; ep++) {
+                expected.add(createFile(seasonDir, "show.s0" + season + "e" + ep + ".avi"));
+            }
+        }
+        expected.add(createFile(root, "top.level.s01e01.mkv"));
+
+        // Hidden files, and anything in hidden directories, must be skipped.  We rely on
+        // the dot-prefix convention here, so these are only hidden on Unix-like systems.
+        if (!System.getProperty("os.name").startsWith("Windows")) {
+            createFile(root.resolve("Show"), ".hidden.s01e01.avi");
+            createFile(root.resolve(".hiddenDir"), "show.s01e02.avi");
+        }
+        Files.createDirectories(root.resolve("empty"));
+
+        assertEquals(expected, walkAll(root, 1));
+        assertEquals(expected, walkAll(root, 4));
+    }
+
+    @Test
+    public void testWalkOfSingleFile() throws IOException {
+        final Path file = createFile(tempFolder.getRoot().toPath(), "single.s02e03.avi");
+        Set<Path> visited = walkAll(file, 2);
+        assertEquals(1, visited.size());
+        assertTrue(visited.contains(file));
+    }
+
+    @Test
+    public void testWalkOfMissingPath() {
+        final Path missing = tempFolder.getRoot().toPath().resolve("does-not-exist");
+        assertTrue(walkAll(missing, 2).isEmpty());
+    }
+}
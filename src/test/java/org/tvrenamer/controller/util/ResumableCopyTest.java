@@ -0,0 +1,119 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public class ResumableCopyTest {
+    private static final int SIZE = 100000;
+    private static final int ALREADY_COPIED = 40000;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path source;
+    private Path dest;
+    private byte[] content;
+
+    private void createSource() throws IOException {
+        content = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        source = Files.write(tempFolder.getRoot().toPath().resolve("source.mkv"), content);
+        dest = tempFolder.newFolder("dest").toPath().resolve("Show S01E01.mkv");
+    }
+
+    // Leave behind what an earlier, interrupted attempt would have.  The bytes in
+    // the partial file are zeros, rather than the real content, so we can tell
+    // whether they were kept.
+    private void createPartialCopy() throws IOException {
+        Files.write(ResumableCopy.partialPath(dest), new byte[ALREADY_COPIED + 500]);
+        BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+        ResumableCopy.writeCheckpoint(ResumableCopy.checkpointPath(dest), source,
+                                      attrs, ALREADY_COPIED);
+    }
+
+    private void assertNoLeftovers() {
+        assertFalse(Files.exists(ResumableCopy.partialPath(dest)));
+        assertFalse(Files.exists(ResumableCopy.checkpointPath(dest)));
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        createSource();
+        assertTrue(ResumableCopy.copy(source, dest, null));
+        assertArrayEquals(content, Files.readAllBytes(dest));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        createSource();
+        createPartialCopy();
+        assertTrue(ResumableCopy.copy(source, dest, null));
+
+        byte[] copied = Files.readAllBytes(dest);
+        assertArrayEquals(new byte[ALREADY_COPIED],
+                          Arrays.copyOfRange(copied, 0, ALREADY_COPIED));
+        assertArrayEquals(Arrays.copyOfRange(content, ALREADY_COPIED, SIZE),
+                          Arrays.copyOfRange(copied, ALREADY_COPIED, SIZE));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void testStartOverWhenSourceChanged() throws IOException {
+        createSource();
+        createPartialCopy();
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1000000000000L));
+        assertTrue(ResumableCopy.copy(source, dest, null));
+        assertArrayEquals(content, Files.readAllBytes(dest));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void testVerifiedCopy() throws IOException {
+        createSource();
+        assertTrue(ResumableCopy.copy(source, dest, null, true));
+        assertArrayEquals(content, Files.readAllBytes(dest));
+        assertNoLeftovers();
+    }
+
+    @Test
+    public void testVerifyRejectsBadPartialCopy() throws IOException {
+        createSource();
+        // The partial copy is zeros, so it doesn't match the source
+        createPartialCopy();
+        assertFalse(ResumableCopy.copy(source, dest, null, true));
+        assertFalse(Files.exists(dest));
+        assertTrue(Files.exists(source));
+        // ... and is thrown away, so the next attempt starts over
+        assertNoLeftovers();
+        assertTrue(ResumableCopy.copy(source, dest, null, true));
+        assertArrayEquals(content, Files.readAllBytes(dest));
+    }
+
+    @Test
+    public void testSameContents() throws IOException {
+        createSource();
+        assertTrue(ResumableCopy.copy(source, dest, null));
+        assertTrue(ResumableCopy.sameContents(source, dest, 0L, SIZE));
+
+        byte[] changed = content.clone();
+        changed[SIZE / 2]++;
+        Files.write(dest, changed);
+        assertTrue(ResumableCopy.sameContents(source, dest, 0L, SIZE / 2));
+        assertFalse(ResumableCopy.sameContents(source, dest, 0L, SIZE));
+    }
+}
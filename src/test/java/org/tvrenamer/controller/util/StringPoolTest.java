@@ -0,0 +1,72 @@
+package org.tvrenamer.controller.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class StringPoolTest {
+
+    @Test
+    public void testDedupeReturnsSharedInstance() {
+        String first = new String("StringPoolTest value");
+        String second = new String("StringPoolTest value");
+        assertSame(first, StringPool.dedupe(first));
+        assertSame(first, StringPool.dedupe(second));
+        assertNull(StringPool.dedupe(null));
+    }
+
+    /**
+     * Simulate the kept fields of a large set of listings, as they come out of the
+     * XML parser (each one a distinct String object), and make sure that after
+     * pooling, the number of String instances retained is the number of distinct
+     * values, not the number of fields.  Also checks that the savings reported are
+     * at least what we expect.
+     */
+    @Test
+    public void testListingsFootprint() {
+        final int numSeries = 50;
+        final int numSeasons = 10;
+        final int episodesPerSeason = 24;
+
+        long savedBefore = StringPool.getBytesSaved();
+        long expectedSavings = 0;
+        List<String> retained = new ArrayList<>();
+        Set<String> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int series = 0; series < numSeries; series++) {
+            for (int season = 1; season <= numSeasons; season++) {
+                for (int episode = 1; episode <= episodesPerSeason; episode++) {
+                    String[] fields = {
+                        new String("20" + (10 + season) + "-09-0" + (episode % 7 + 1)),
+                        new String((episode == 1) ? "Pilot" : "TBA")
+                    };
+                    for (String field : fields) {
+                        String pooled = StringPool.dedupe(field);
+                        if (pooled != field) {
+                            expectedSavings += StringPool.sizeOf(field);
+                        }
+                        retained.add(pooled);
+                        distinct.add(pooled);
+                    }
+                }
+            }
+        }
+
+        int fieldCount = numSeries * numSeasons * episodesPerSeason * 2;
+        assertEquals(fieldCount, retained.size());
+        // 70 dates, 2 titles
+        assertTrue("too many String instances retained: " + distinct.size(),
+                   distinct.size() <= 70 + 2);
+        assertTrue(StringPool.getBytesSaved() - savedBefore >= expectedSavings);
+        assertTrue(expectedSavings > (fieldCount - 100) * StringPool.sizeOf("1"));
+    }
+}
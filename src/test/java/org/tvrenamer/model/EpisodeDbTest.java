@@ -0,0 +1,70 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.AddEpisodeListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class EpisodeDbTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static class BatchRecorder implements AddEpisodeListener {
+        final List<Queue<FileEpisode>> batches = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void addEpisodes(Queue<FileEpisode> episodes) {
+            batches.add(episodes);
+        }
+
+        @Override
+        public void refreshDestinations() {
+        }
+    }
+
+    @Test
+    public void testFolderPublishedInBatches() throws IOException {
+        final Path root = tempFolder.getRoot().toPath();
+        final Set<String> expected = new HashSet<>();
+        final int nFiles = (EpisodeDb.PUBLISH_BATCH_SIZE * 3) + 7;
+        for (int i = 0; i < nFiles; i++) {
+            Path dir = root.resolve("Season " + (i % 4));
+            Files.createDirectories(dir);
+            Path file = Files.createFile(dir.resolve("Batched.Show.S01E" + i + ".avi"));
+            expected.add(file.toAbsolutePath().toString());
+        }
+
+        EpisodeDb episodeDb = new EpisodeDb();
+        BatchRecorder recorder = new BatchRecorder();
+        episodeDb.subscribe(recorder);
+        episodeDb.addFolderToQueue(root.toString());
+
+        assertTrue("expected several batches, got " + recorder.batches.size(),
+                   recorder.batches.size() >= 4);
+        Set<String> published = new HashSet<>();
+        for (Queue<FileEpisode> batch : recorder.batches) {
+            assertTrue(batch.size() > 0);
+            assertTrue(batch.size() <= EpisodeDb.PUBLISH_BATCH_SIZE);
+            for (FileEpisode episode : batch) {
+                assertTrue("published twice: " + episode, published.add(episode.getFilepath()));
+                assertNotNull(episodeDb.get(episode.getFilepath()));
+            }
+        }
+        assertEquals(expected, published);
+    }
+}
@@ -0,0 +1,78 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FilePrefilterTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path createFile(final String name, final int size) throws IOException {
+        return Files.write(tempFolder.getRoot().toPath().resolve(name), new byte[size]);
+    }
+
+    private static boolean accept(final FilePrefilter prefilter, final Path file)
+        throws IOException
+    {
+        return prefilter.accept(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    @Test
+    public void testRejectionsCounted() throws IOException {
+        FilePrefilter prefilter = new FilePrefilter(Arrays.asList(".MKV", "avi", "nfo"),
+                                                    Collections.singletonList("NFO"), 100L);
+        assertTrue(accept(prefilter, createFile("Show.S01E01.mkv", 200)));
+        assertTrue(accept(prefilter, createFile("Show.S01E02.AVI", 100)));
+        assertFalse(accept(prefilter, createFile("Show.S01E01.jpg", 200)));
+        assertFalse(accept(prefilter, createFile("Show.S01E01", 200)));
+        assertFalse(accept(prefilter, createFile("Show.S01E01.nfo", 200)));
+        assertFalse(accept(prefilter, createFile("Show.S01E03.mkv", 99)));
+
+        assertEquals(2L, prefilter.getAcceptedCount());
+        assertEquals(2L, prefilter.getRejectedCount(FilePrefilter.Rejection.NOT_ALLOWED));
+        assertEquals(1L, prefilter.getRejectedCount(FilePrefilter.Rejection.DENIED));
+        assertEquals(1L, prefilter.getRejectedCount(FilePrefilter.Rejection.TOO_SMALL));
+    }
+
+    @Test
+    public void testEmptyAllowListAllowsAll() throws IOException {
+        FilePrefilter prefilter = new FilePrefilter(Collections.emptyList(),
+                                                    Collections.singletonList("txt"), 0L);
+        assertTrue(accept(prefilter, createFile("Show.S01E01.anything", 0)));
+        assertTrue(accept(prefilter, createFile("no extension", 0)));
+        assertFalse(accept(prefilter, createFile("readme.txt", 10)));
+    }
+
+    @Test
+    public void testFolderScanSkipsDeniedFiles() throws IOException {
+        final Path folder = tempFolder.newFolder("downloads").toPath();
+        final Path episode = Files.write(folder.resolve("Prefilter.Show.S01E01.avi"),
+                                         new byte[] { 1, 2, 3 });
+        final Path info = Files.write(folder.resolve("Prefilter.Show.S01E01.nfo"),
+                                      new byte[] { 1, 2, 3 });
+
+        EpisodeDb episodeDb = new EpisodeDb();
+        episodeDb.addFolderToQueue(folder.toString());
+        assertNotNull(episodeDb.get(episode.toAbsolutePath().toString()));
+        assertNull(episodeDb.get(info.toAbsolutePath().toString()));
+
+        // A file given directly is always added
+        episodeDb.addArrayOfStringsToQueue(new String[] { info.toString() });
+        assertNotNull(episodeDb.get(info.toAbsolutePath().toString()));
+    }
+}
@@ -0,0 +1,97 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.tvrenamer.controller.AddEpisodeListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class FolderWatcherTest {
+
+    private static final long SETTLE_MILLIS = 200L;
+    private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final Map<Path, Long> reported = new ConcurrentHashMap<>();
+
+    private void fileReady(final Path file, final BasicFileAttributes attrs) {
+        assertTrue("reported twice: " + file, reported.put(file, attrs.size()) == null);
+    }
+
+    private boolean waitFor(final Path file) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!reported.containsKey(file)) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    @Test
+    public void testNewFilesReported() throws IOException, InterruptedException {
+        final Path root = tempFolder.newFolder("watched").toPath();
+        final Path existing = Files.write(root.resolve("Existing.Show.S01E01.avi"),
+                                          new byte[] { 1 });
+        FolderWatcher watcher = new FolderWatcher(root, SETTLE_MILLIS, this::fileReady, () -> { });
+        assertTrue(watcher.start());
+        try {
+            Path added = Files.write(root.resolve("New.Show.S01E02.avi"), new byte[] { 1, 2 });
+            assertTrue("new file was not reported", waitFor(added));
+            assertEquals(Long.valueOf(2L), reported.get(added));
+
+            // A whole new folder, with files already in it by the time we see it
+            Path season = Files.createDirectory(root.resolve("Season 2"));
+            Path inFolder = Files.write(season.resolve("New.Show.S02E01.avi"), new byte[] { 3 });
+            assertTrue("file in new folder was not reported", waitFor(inFolder));
+
+            assertFalse(reported.containsKey(existing));
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void testWatchedFilesAddedToDb() throws IOException, InterruptedException {
+        final Path root = tempFolder.newFolder("db").toPath();
+        EpisodeDb episodeDb = new EpisodeDb();
+        episodeDb.subscribe(new AddEpisodeListener() {
+                @Override
+                public void addEpisodes(Queue<FileEpisode> episodes) {
+                    for (FileEpisode episode : episodes) {
+                        reported.put(episode.getPath(), episode.getFileSize());
+                    }
+                }
+
+                @Override
+                public void refreshDestinations() {
+                }
+            });
+        assertTrue(episodeDb.startWatching(root, SETTLE_MILLIS));
+        try {
+            Path added = Files.write(root.resolve("Watched.Show.S03E04.avi"),
+                                     new byte[] { 1, 2, 3 });
+            assertTrue("new file was not added", waitFor(added));
+            assertEquals(Long.valueOf(3L), reported.get(added));
+            assertTrue(episodeDb.get(added.toAbsolutePath().toString()).wasParsed());
+        } finally {
+            episodeDb.stopWatching();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class MoveProgressTest {
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void testNothingCopiedYet() {
+        MoveProgress progress = new MoveProgress(0L);
+        progress.setFiles(12, 12);
+        assertEquals("0 of 12 files", progress.describe(TimeUnit.SECONDS.toNanos(1)));
+        assertEquals(-1L, progress.getSecondsRemaining(TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void testSpeedAndTimeLeft() {
+        MoveProgress progress = new MoveProgress(0L);
+        progress.setFiles(12, 9);
+        progress.setBytesToCopy(1000 * MB);
+        progress.addBytesCopied(100 * MB);
+        progress.addBytesCopied(100 * MB);
+
+        long now = TimeUnit.SECONDS.toNanos(4);
+        assertEquals(50.0 * MB, progress.getBytesPerSecond(now), 0.001);
+        assertEquals(16L, progress.getSecondsRemaining(now));
+        assertEquals(0.25f, progress.getFileFraction(), 0.0001f);
+        assertEquals("3 of 12 files, 50 MB/s, 0:16 left", progress.describe(now));
+
+        progress.addBytesCopied(3000 * MB);
+        assertEquals("3 of 12 files, 800 MB/s", progress.describe(now));
+    }
+
+    @Test
+    public void testMoveCounts() {
+        MoveProgress progress = new MoveProgress(0L);
+        progress.setFiles(12, 7);
+        progress.setMoveCounts(2, 0);
+        assertEquals("5 of 12 files, 2 moving", progress.describe(TimeUnit.SECONDS.toNanos(1)));
+        progress.setMoveCounts(0, 1);
+        assertEquals("5 of 12 files, 1 failed", progress.describe(TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void testResumedBytesSkipped() {
+        MoveProgress progress = new MoveProgress(0L);
+        progress.setFiles(2, 2);
+        progress.setBytesToCopy(1000 * MB);
+        // Half of the first file was copied before; the rest is copied now
+        progress.addBytesSkipped(400 * MB);
+        progress.addBytesCopied(200 * MB);
+
+        long now = TimeUnit.SECONDS.toNanos(4);
+        assertEquals(50.0 * MB, progress.getBytesPerSecond(now), 0.001);
+        assertEquals(8L, progress.getSecondsRemaining(now));
+    }
+}
@@ -0,0 +1,98 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.tvrenamer.model.ReplacementToken.*;
+
+import org.junit.Test;
+
+import org.tvrenamer.controller.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+
+public class RenameTemplateTest {
+
+    private static final String SHOW_NAME_VALUE = "The Office (US)";
+    private static final String TITLE_VALUE = "Dwight's Speech";
+    private static final String RESOLUTION_VALUE = "720p";
+
+    private static final String[] MASKS = {
+        "%S [%sx%e] %t",
+        "%S S%0sE%0e %t",
+        "%S - %0s%0e - %T (%r)",
+        "%S.%yyyy.%0m.%0d",
+        "%d/%m/%yy %t",
+        "%yyy %yyyyy %0%s %% %x %",
+        "no tokens at all",
+        "",
+        "%S%S%s%s%e%e"
+    };
+
+    /*
+     * The way templates used to be filled in, kept here as a reference for
+     * making sure the compiled template gives the same results.
+     */
+    private static String chainedReplace(final String template, final EpisodePlacement placement,
+                                         final LocalDate airDate)
+    {
+        String filled = template
+            .replaceAll(SEASON_NUM.getToken(), String.valueOf(placement.season))
+            .replaceAll(SEASON_NUM_LEADING_ZERO.getToken(),
+                        StringUtils.zeroPadTwoDigits(placement.season))
+            .replaceAll(EPISODE_NUM.getToken(), StringUtils.formatDigits(placement.episode))
+            .replaceAll(EPISODE_NUM_LEADING_ZERO.getToken(),
+                        StringUtils.zeroPadThreeDigits(placement.episode))
+            .replaceAll(SHOW_NAME.getToken(), Matcher.quoteReplacement(SHOW_NAME_VALUE))
+            .replaceAll(EPISODE_TITLE.getToken(), Matcher.quoteReplacement(TITLE_VALUE))
+            .replaceAll(EPISODE_TITLE_NO_SPACES.getToken(),
+                        Matcher.quoteReplacement(StringUtils.makeDotTitle(TITLE_VALUE)))
+            .replaceAll(EPISODE_RESOLUTION.getToken(), RESOLUTION_VALUE);
+        ReplacementToken[] dateTokens = { DATE_DAY_NUM, DATE_DAY_NUMLZ, DATE_MONTH_NUM,
+                                          DATE_MONTH_NUMLZ, DATE_YEAR_FULL, DATE_YEAR_MIN };
+        String[] patterns = { "d", "dd", "M", "MM", "yyyy", "yy" };
+        for (int i = 0; i < dateTokens.length; i++) {
+            String value = (airDate == null) ? ""
+                : DateTimeFormatter.ofPattern(patterns[i]).format(airDate);
+            filled = filled.replaceAll(dateTokens[i].getToken(), value);
+        }
+        return filled;
+    }
+
+    @Test
+    public void testMatchesChainedReplace() {
+        EpisodePlacement[] placements = {
+            new EpisodePlacement(3, 7),
+            new EpisodePlacement(0, 1),
+            new EpisodePlacement(12, 104)
+        };
+        LocalDate[] dates = { LocalDate.of(2007, 4, 5), LocalDate.of(1999, 12, 31), null };
+
+        for (String mask : MASKS) {
+            RenameTemplate compiled = RenameTemplate.compile(mask);
+            for (EpisodePlacement placement : placements) {
+                for (LocalDate date : dates) {
+                    assertEquals("mask \"" + mask + "\", " + placement + ", " + date,
+                                 chainedReplace(mask, placement, date),
+                                 compiled.render(SHOW_NAME_VALUE, TITLE_VALUE, placement,
+                                                 RESOLUTION_VALUE, date));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledOncePerMask() {
+        RenameTemplate first = RenameTemplate.compile(new String("%S [%sx%e] %t"));
+        assertSame(first, RenameTemplate.compile(new String("%S [%sx%e] %t")));
+    }
+
+    @Test
+    public void testValuesNotRescanned() {
+        RenameTemplate compiled = RenameTemplate.compile("%S %t");
+        assertEquals("100%d Show Day %m",
+                     compiled.render("100%d Show", "Day %m", new EpisodePlacement(1, 1),
+                                     "", LocalDate.of(2010, 1, 2)));
+    }
+}
@@ -0,0 +1,87 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class ScanIndexTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static BasicFileAttributes attributesOf(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private static String keyOf(final Path file) {
+        return file.toAbsolutePath().toString();
+    }
+
+    @Test
+    public void testUnchangedFilesReused() throws IOException {
+        final Path folder = tempFolder.newFolder("preload").toPath();
+        final Path indexFile = tempFolder.getRoot().toPath().resolve("index.dat");
+        final Path same = Files.write(folder.resolve("Index.Show.S02E05.720p.avi"),
+                                      new byte[] { 1, 2, 3 });
+        final Path changed = Files.write(folder.resolve("Index.Show.S02E06.avi"),
+                                         new byte[] { 1, 2, 3 });
+        final Path unparsed = Files.write(folder.resolve("nothing to see here.avi"),
+                                          new byte[] { 1 });
+
+        EpisodeDb first = new EpisodeDb();
+        first.preloadFolder(folder.toString(), indexFile);
+        assertTrue(Files.exists(indexFile));
+
+        Files.write(changed, new byte[] { 4, 5 }, StandardOpenOption.APPEND);
+
+        ScanIndex index = ScanIndex.load(indexFile);
+        ScanIndex.Entry entry = index.reuse(keyOf(same), attributesOf(same));
+        assertNotNull(entry);
+        assertTrue(entry.parsed);
+        assertEquals(2, entry.season);
+        assertEquals(5, entry.episode);
+        assertEquals("720p", entry.resolution);
+        assertNull(index.reuse(keyOf(changed), attributesOf(changed)));
+        ScanIndex.Entry failed = index.reuse(keyOf(unparsed), attributesOf(unparsed));
+        assertNotNull(failed);
+        assertFalse(failed.parsed);
+
+        // A restored FileEpisode should look just like one that was parsed
+        EpisodeDb second = new EpisodeDb();
+        second.preloadFolder(folder.toString(), indexFile);
+        FileEpisode parsed = first.get(keyOf(same));
+        FileEpisode restored = second.get(keyOf(same));
+        assertNotNull(restored);
+        assertTrue(restored.wasParsed());
+        assertEquals(parsed.getFilenameShow(), restored.getFilenameShow());
+        assertEquals(parsed.getEpisodePlacement().season,
+                     restored.getEpisodePlacement().season);
+        assertEquals(parsed.getEpisodePlacement().episode,
+                     restored.getEpisodePlacement().episode);
+        assertEquals(parsed.getFilenameResolution(), restored.getFilenameResolution());
+        assertEquals(5L, second.get(keyOf(changed)).getFileSize());
+        assertFalse(second.get(keyOf(unparsed)).wasParsed());
+    }
+
+    @Test
+    public void testUnreadableIndexIgnored() throws IOException {
+        final Path indexFile = tempFolder.newFile("garbage.dat").toPath();
+        Files.write(indexFile, new byte[] { 9, 9, 9, 9, 9, 9, 9, 9, 9 });
+        final Path file = tempFolder.newFile("Garbage.Show.S01E01.avi").toPath();
+        ScanIndex index = ScanIndex.load(indexFile);
+        assertNull(index.reuse(keyOf(file), attributesOf(file)));
+        assertEquals(0, index.size());
+    }
+}
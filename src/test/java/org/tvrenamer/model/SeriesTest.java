@@ -0,0 +1,115 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SeriesTest {
+
+    // IDs chosen to be well out of the way of any real series used by other tests
+    private static int nextSeriesId = 987650001;
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static Series loadedSeries(String name, int numEpisodes) {
+        Series series = Series.createSeries(nextSeriesId++, name);
+        EpisodeInfo[] infos = new EpisodeInfo[numEpisodes];
+        for (int i = 0; i < numEpisodes; i++) {
+            infos[i] = new EpisodeInfo.Builder()
+                .episodeId(series.getIdString() + "-" + i)
+                .seasonNumber("1")
+                .episodeNumber(String.valueOf(i + 1))
+                .episodeName(name + " " + (i + 1))
+                .firstAired("2001-01-01")
+                .build();
+        }
+        assertTrue(series.beginDownload());
+        series.addEpisodeInfos(infos);
+        series.listingsSucceeded();
+        return series;
+    }
+
+    @After
+    public void restoreBound() {
+        Series.setMaxResidentEpisodes(Series.DEFAULT_MAX_RESIDENT_EPISODES);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedListingsEvicted() {
+        Series.setMaxResidentEpisodes(Series.getResidentEpisodeCount() + 50);
+
+        Series first = loadedSeries("Eviction First", 20);
+        Series second = loadedSeries("Eviction Second", 20);
+        assertFalse(first.noEpisodes());
+        assertTrue(Series.getResidentListingsBytes() > 0);
+
+        // Use the first series, so the second becomes the least recently used
+        assertNotNull(first.getEpisode(new EpisodePlacement(1, 3)));
+        Series third = loadedSeries("Eviction Third", 20);
+
+        assertTrue("second series should have been evicted", second.noEpisodes());
+        assertFalse(first.noEpisodes());
+        assertFalse(third.noEpisodes());
+
+        // The evicted series can be downloaded again
+        assertTrue(second.beginDownload());
+        assertEquals(second, Series.getExistingSeries(second.getIdString()));
+    }
+
+    @Test
+    public void testListingsInUseNotEvicted() throws IOException {
+        Series.setMaxResidentEpisodes(Series.getResidentEpisodeCount() + 15);
+
+        Series pinned = loadedSeries("Pinned Show", 10);
+
+        Path file = tempFolder.newFile("Pinned.Show.S01E02.avi").toPath();
+        assertTrue(Files.exists(file));
+        EpisodeDb episodeDb = new EpisodeDb();
+        episodeDb.addArrayOfStringsToQueue(new String[] { file.toString() });
+        FileEpisode fileEpisode = episodeDb.get(file.toAbsolutePath().toString());
+        assertNotNull(fileEpisode);
+        fileEpisode.setEpisodeShow(pinned);
+
+        Series other = loadedSeries("Unpinned Show", 10);
+        assertFalse("series in use should not be evicted", pinned.noEpisodes());
+        assertFalse(other.noEpisodes());
+
+        // Once the file is gone from the EpisodeDb, the listings may be evicted
+        episodeDb.remove(file.toAbsolutePath().toString());
+        Series.setMaxResidentEpisodes(0);
+        Series.trimResidentListings(null);
+        assertTrue(pinned.noEpisodes());
+    }
+
+    @Test
+    public void testEvictionRechecksReferences() throws IOException {
+        Series late = loadedSeries("Late Show", 10);
+
+        // A file takes up the series after the victims have been picked; the
+        // eviction itself must notice
+        Path file = tempFolder.newFile("Late.Show.S01E03.avi").toPath();
+        EpisodeDb episodeDb = new EpisodeDb();
+        episodeDb.addArrayOfStringsToQueue(new String[] { file.toString() });
+        FileEpisode fileEpisode = episodeDb.get(file.toAbsolutePath().toString());
+        assertNotNull(fileEpisode);
+        fileEpisode.setEpisodeShow(late);
+
+        assertFalse(late.evictListings());
+        assertFalse(late.noEpisodes());
+
+        episodeDb.remove(file.toAbsolutePath().toString());
+        assertTrue(late.evictListings());
+        assertTrue(late.noEpisodes());
+    }
+}
@@ -0,0 +1,82 @@
+package org.tvrenamer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class ShowTest {
+
+    private static EpisodeInfo makeInfo(int id, int season, int episode,
+                                        String dvdSeason, String dvdEpisode)
+    {
+        return new EpisodeInfo.Builder()
+            .episodeId(String.valueOf(id))
+            .seasonNumber(String.valueOf(season))
+            .episodeNumber(String.valueOf(episode))
+            .episodeName("Episode " + id)
+            .firstAired("2010-01-01")
+            .dvdSeason(dvdSeason)
+            .dvdEpisodeNumber(dvdEpisode)
+            .build();
+    }
+
+    private static Show makeShow(int numSeasons, int episodesPerSeason) {
+        Show show = new Show("ShowTest", "Show Test");
+        EpisodeInfo[] infos = new EpisodeInfo[numSeasons * episodesPerSeason];
+        int id = 1;
+        for (int s = 1; s <= numSeasons; s++) {
+            for (int e = 1; e <= episodesPerSeason; e++) {
+                infos[id - 1] = makeInfo(id, s, e, null, null);
+                id++;
+            }
+        }
+        show.addEpisodeInfos(infos);
+        return show;
+    }
+
+    @Test
+    public void testEpisodesCreatedOnlyOnDemand() {
+        Show show = makeShow(10, 24);
+        assertFalse(show.noEpisodes());
+        assertEquals(240, show.listings.size());
+        assertEquals(0, show.listings.materializedCount());
+
+        List<Episode> found = show.getEpisodes(new EpisodePlacement(3, 5));
+        assertNotNull(found);
+        assertEquals(1, found.size());
+        assertEquals("Episode 53", found.get(0).getTitle());
+        assertEquals(1, show.listings.materializedCount());
+
+        Episode again = show.getEpisode(new EpisodePlacement(3, 5));
+        assertSame(found.get(0), again);
+        assertEquals(1, show.listings.materializedCount());
+    }
+
+    @Test
+    public void testDuplicateAndMissingPlacements() {
+        Show show = new Show("ShowTest2", "Show Test Two");
+        EpisodeInfo first = makeInfo(1, 4, 10, "3", "16");
+        EpisodeInfo second = makeInfo(2, 5, 8, "4", "10");
+        show.addEpisodeInfos(new EpisodeInfo[] { first, second, first });
+        assertEquals(2, show.listings.size());
+
+        List<Episode> both = show.getEpisodes(new EpisodePlacement(4, 10));
+        assertNotNull(both);
+        assertEquals(2, both.size());
+        // DVD ordering is preferred
+        assertEquals("2", both.get(0).getEpisodeId());
+        assertEquals("1", both.get(1).getEpisodeId());
+
+        show.setPreferDvd(false);
+        show.indexEpisodesBySeason();
+        assertEquals("1", show.getEpisode(new EpisodePlacement(4, 10)).getEpisodeId());
+        assertNull(show.getEpisodes(new EpisodePlacement(4, 11)));
+        assertNull(show.getEpisodes(new EpisodePlacement(9, 1)));
+    }
+}